@@ -1,5 +1,6 @@
 package com.horizon.engine;
 
+import com.horizon.engine.component.Component;
 import com.horizon.engine.component.ComponentType;
 import com.horizon.engine.component.component.mesh.Mesh;
 import com.horizon.engine.component.component.mesh.TerrainMesh;
@@ -8,6 +9,7 @@ import com.horizon.engine.graphics.object.GameObject;
 import com.horizon.engine.graphics.object.scene.Scene;
 import com.horizon.engine.graphics.render.Renderer;
 import com.horizon.engine.input.other.MouseInput;
+import com.horizon.engine.startup.StartupPipeline;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -23,28 +25,46 @@ public abstract class AbstractGameLogic {
 
     public abstract void onEnable() throws Exception;
 
+    /**
+     * Can be overridden to add own stages into engine startup, for example CPU only
+     * generation which can run on workers while engine initializes.
+     * @param pipeline - Startup pipeline of the engine.
+     */
+    public void registerStartupStages(StartupPipeline pipeline) {
+
+    }
+
     public abstract void onDisable();
 
+    /**
+     * Called on the main thread, because window input can be read only there. In pipelined
+     * mode it never runs at the same time as <code>onUpdate</code> or render snapshot capture.
+     */
     public abstract void onInput(Window window, MouseInput mouseInput);
 
+    /**
+     * In pipelined mode called on the simulation thread with its own copy of the mouse input,
+     * display vector of that copy contains movement of every frame since the previous tick.
+     */
     public abstract void onUpdate(float interval, MouseInput mouseInput);
 
     public abstract void onRender(Window window);
 
     public void cleanup(Renderer renderer) {
         renderer.cleanup();
-        for (GameObject gameObject : getScene().getSceneObjects().values()) {
-            if(!gameObject.getComponents().containsKey(ComponentType.MESH))
-                continue;
 
-            if(gameObject.getMesh() != null)
-                gameObject.getMesh().cleanUp();
+        if (getScene() == null)
+            return;
 
-            if(gameObject.getComponent(ComponentType.MESH) instanceof TerrainMesh) {
-                ((TerrainMesh) gameObject.getComponent(ComponentType.MESH)).cleanUp();
-            }
+        for (GameObject gameObject : getScene().getSceneObjects().values()) {
+            Component component = gameObject.getComponent(ComponentType.MESH);
 
-            gameObject.getMesh().cleanUpTexture();
+            if (component instanceof TerrainMesh) {
+                ((TerrainMesh) component).cleanUp();
+            } else if (component instanceof Mesh) {
+                ((Mesh) component).cleanUp();
+                ((Mesh) component).cleanUpTexture();
+            }
         }
     }
 }
@@ -2,22 +2,48 @@ package com.horizon.engine;
 
 import com.google.common.flogger.FluentLogger;
 import com.horizon.engine.asset.AssetManager;
+import com.horizon.engine.data.ApplicationData;
+import com.horizon.engine.component.component.hud.text.TextFont;
 import com.horizon.engine.debug.Debugger;
 import com.horizon.engine.event.EventManager;
 import com.horizon.engine.graphics.hud.Canvas;
 import com.horizon.engine.graphics.object.scene.Scene;
+import com.horizon.engine.graphics.object.scene.ScenePreloader;
+import com.horizon.engine.graphics.render.HeadlessRenderer;
+import com.horizon.engine.graphics.render.Renderer;
+import com.horizon.engine.graphics.render.snapshot.RenderSnapshot;
+import com.horizon.engine.graphics.render.snapshot.RenderSnapshotBuffer;
 import com.horizon.engine.hud.HudManager;
 import com.horizon.engine.input.InputManager;
 import com.horizon.engine.input.other.MouseInput;
+import com.horizon.engine.job.JobSystem;
 import com.horizon.engine.model.ModelManager;
+import com.horizon.engine.scheduler.BudgetScheduler;
+import com.horizon.engine.scheduler.FixedStepScheduler;
+import com.horizon.engine.scheduler.FramePacer;
+import com.horizon.engine.startup.StartupPipeline;
+import com.horizon.engine.system.SystemScheduler;
 import com.horizon.engine.tool.ToolManager;
 import com.horizon.game.DummyGame;
 import lombok.Getter;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 public class GameEngine implements Runnable {
 
     public static final int TARGET_FPS = 75;
     public static final int TARGET_UPS = 30;
+    private static final long TARGET_FRAME_TIME = 1_000_000_000L / TARGET_FPS;
+
+    //Startup stages
+    public static final String STAGE_WINDOW = "Window";
+    public static final String STAGE_MANAGERS = "Managers";
+    public static final String STAGE_PRIMITIVES = "Primitives";
+    public static final String STAGE_FONTS = "Fonts";
+    public static final String STAGE_FONT_ATLASES = "Font Atlases";
+    public static final String STAGE_GAME_LOGIC = "Game Logic";
+    public static final String STAGE_POST_INITIALIZE = "Post Initialize";
 
     @Getter private static final FluentLogger logger = FluentLogger.forEnclosingClass();
     @Getter private Debugger debugger;
@@ -25,6 +51,12 @@ public class GameEngine implements Runnable {
     @Getter private final Window window;
     @Getter private final Timer timer;
     @Getter private final AbstractGameLogic gameLogic;
+    @Getter private final FixedStepScheduler fixedStepScheduler;
+    @Getter private final FramePacer framePacer;
+    @Getter private final BudgetScheduler budgetScheduler;
+    @Getter private final ScenePreloader scenePreloader;
+    @Getter private final JobSystem jobSystem;
+    @Getter private final SystemScheduler systemScheduler;
 
     //Managers
     @Getter private final MouseInput mouseInput;
@@ -40,12 +72,38 @@ public class GameEngine implements Runnable {
     @Getter private long currentFramesPerSecond = 0;
     @Getter private long lastFramesPerSecond = 0;
 
+    //Pipelined rendering
+    @Getter private RenderSnapshotBuffer renderSnapshotBuffer;
+    @Getter private long simulationTick = 0;
+    private volatile boolean simulationRunning;
+    private volatile CountDownLatch sceneCommandRequest;
+
+    /**
+     * Hands input over from the main thread to the simulation thread. Held by the main thread
+     * for <code>onInput</code> and by the simulation thread for <code>onUpdate</code> and
+     * render snapshot capture.
+     */
+    private final Object inputLock = new Object();
+    private final MouseInput simulationMouseInput = new MouseInput();
+
     public GameEngine(String windowTitle, int width, int height, boolean vSync, AbstractGameLogic gameLogic) throws Exception {
-        window = new Window(this, windowTitle, width, height, vSync);
+        if (ApplicationData.isHeadless()) {
+            System.setProperty("java.awt.headless", "true");
+            window = new HeadlessWindow(this, windowTitle, width, height);
+        } else {
+            window = new Window(this, windowTitle, width, height, vSync);
+        }
+
         mouseInput = new MouseInput();
         this.gameLogic = gameLogic;
         timer = new Timer();
+        fixedStepScheduler = new FixedStepScheduler(ApplicationData.getUpdatesPerSecond(), ApplicationData.getMaxCatchUpSteps());
+        framePacer = new FramePacer(TARGET_FPS);
+        budgetScheduler = new BudgetScheduler(ApplicationData.getBackgroundWorkBudget());
         this.debugger = new Debugger(this);
+        jobSystem = new JobSystem(ApplicationData.getJobWorkerThreads());
+        systemScheduler = new SystemScheduler(jobSystem);
+        scenePreloader = new ScenePreloader(this);
     }
 
     @Override
@@ -61,24 +119,48 @@ public class GameEngine implements Runnable {
     }
 
     protected void initialize() throws Exception {
-        //Initializations
-        window.init();
-        timer.init();
-        mouseInput.init(window);
+        StartupPipeline startupPipeline = new StartupPipeline();
+        registerStartupStages(startupPipeline);
+        gameLogic.registerStartupStages(startupPipeline);
 
-        //Managers
-        assetManager = new AssetManager(this);
-        inputManager = new InputManager(this);
-        modelManager = new ModelManager(this);
-        eventManager = new EventManager(this);
-
-        loadAssets();
-
-        //Final initialization
-        gameLogic.setGameEngine(this);
-        gameLogic.onEnable();
+        startupPipeline.run(ApplicationData.isParallelStartup() ? jobSystem : null);
+    }
 
-        postInitialize();
+    /**
+     * Registers engine initialization stages. Stages touching window or GL run on the main
+     * thread, CPU only stages run on job workers in parallel with them.
+     * @param pipeline - Pipeline where stages are registered.
+     */
+    protected void registerStartupStages(StartupPipeline pipeline) {
+        pipeline.addMainStage(STAGE_WINDOW, () -> {
+            window.init();
+            timer.init();
+
+            if (ApplicationData.isHeadless()) {
+                gameLogic.setRenderer(new HeadlessRenderer());
+            } else {
+                mouseInput.init(window);
+            }
+        });
+
+        pipeline.addMainStage(STAGE_MANAGERS, () -> {
+            assetManager = new AssetManager(this);
+            inputManager = new InputManager(this);
+            modelManager = new ModelManager(this);
+            eventManager = new EventManager(this);
+        }, STAGE_WINDOW);
+
+        pipeline.addWorkerStage(STAGE_PRIMITIVES, () -> assetManager.initialize(), STAGE_MANAGERS);
+        pipeline.addWorkerStage(STAGE_FONTS, this::loadFonts);
+        // Rasterizes font atlases, textures are uploaded later on first use
+        pipeline.addWorkerStage(STAGE_FONT_ATLASES, TextFont::values, STAGE_FONTS);
+
+        pipeline.addMainStage(STAGE_GAME_LOGIC, () -> {
+            gameLogic.setGameEngine(this);
+            gameLogic.onEnable();
+        }, STAGE_MANAGERS, STAGE_PRIMITIVES, STAGE_FONTS);
+
+        pipeline.addMainStage(STAGE_POST_INITIALIZE, this::postInitialize, STAGE_GAME_LOGIC, STAGE_FONT_ATLASES);
     }
 
     protected void postInitialize() {
@@ -88,37 +170,45 @@ public class GameEngine implements Runnable {
         toolManager.initialize();
     }
 
-    protected void loadAssets() {
-        assetManager.initialize();
-
-        loadFonts();
-    }
-
     protected void loadFonts() {
         AssetManager.loadFont("Baba.otf");
         AssetManager.loadFont("ModernSans-Light.otf");
     }
 
     protected void gameLoop() {
-        float elapsedTime;
-        float accumulator = 0f;
-        float interval = 1f / TARGET_UPS;
+        if (ApplicationData.isHeadless()) {
+            headlessGameLoop();
+            return;
+        }
+
+        if (ApplicationData.isPipelinedRendering()) {
+            pipelinedGameLoop();
+            return;
+        }
 
+        fixedStepScheduler.reset();
         boolean running = true;
 
         while (running && !window.windowShouldClose()) {
             long startDeltaTime = System.currentTimeMillis();
-            elapsedTime = timer.getElapsedTime();
-            accumulator += elapsedTime;
+            long frameStart = System.nanoTime();
+            int steps = fixedStepScheduler.advance(timer.getElapsedTime());
 
             input();
 
-            while (accumulator >= interval) {
-                update(interval);
-                accumulator -= interval;
+            for (int i = 0; i < steps; i++) {
+                update(fixedStepScheduler.getInterval());
             }
 
-            render();
+            applySceneCommands();
+
+            render(ApplicationData.isRenderInterpolation() ? fixedStepScheduler.getAlpha() : 1.0f);
+            jobSystem.endFrame();
+
+            // Background work uses the time left until the frame deadline
+            budgetScheduler.runFrame(frameStart + TARGET_FRAME_TIME);
+            updateScenePreloader(frameStart + TARGET_FRAME_TIME);
+            updateWorldPartition(frameStart + TARGET_FRAME_TIME);
 
             if (!window.isvSync()) {
                 sync();
@@ -131,25 +221,235 @@ public class GameEngine implements Runnable {
         }
     }
 
-    private void sync() {
-        float loopSlot = 1f / TARGET_FPS;
-        double endTime = timer.getLastLoopTime() + loopSlot;
-        while (timer.getTime() < endTime) {
-            try {
-                Thread.sleep(1);
-            } catch (InterruptedException ignored) {
+    /**
+     * Game loop without window and rendering. Fixed step updates are run as fast as
+     * possible, or at <code>ApplicationData.getHeadlessUpdateRate()</code> ticks per second
+     * when it is set. Loop ends after the tick limit is reached or when engine is stopped.
+     */
+    protected void headlessGameLoop() {
+        float interval = fixedStepScheduler.getInterval();
+        int updateRate = ApplicationData.getHeadlessUpdateRate();
+        long tickLimit = ApplicationData.getHeadlessTickLimit();
+
+        FramePacer tickPacer = updateRate > 0 ? new FramePacer(updateRate) : null;
+        double startTime = timer.getTime();
+
+        while (!window.windowShouldClose() && (tickLimit <= 0 || simulationTick < tickLimit)) {
+            input();
+            gameLogic.onUpdate(interval, mouseInput);
+            systemScheduler.update(getScene(), interval);
+            jobSystem.endFrame();
+            budgetScheduler.runFrame();
+            updateScenePreloader(Long.MAX_VALUE);
+            updateWorldPartition(Long.MAX_VALUE);
+            applySceneCommands();
+            simulationTick++;
+
+            if (tickPacer != null)
+                tickPacer.waitForNextFrame();
+        }
+
+        double elapsedTime = timer.getTime() - startTime;
+        Debugger.log("Game Engine", "Headless simulation finished after " + simulationTick + " ticks in "
+                + String.format("%.3f", elapsedTime) + " s (" + String.format("%.1f", simulationTick / Math.max(elapsedTime, 1e-9)) + " ticks per second).");
+    }
+
+    /**
+     * Game loop where simulation runs on its own thread. Every simulated tick is published
+     * as a render snapshot and the main thread, which owns the GL context and the window,
+     * renders the newest snapshot while the next tick is simulated.
+     *
+     * @apiNote <code>onUpdate</code> must not create or delete GL resources in this mode,
+     *          because GL context is current only on the main thread.
+     */
+    protected void pipelinedGameLoop() {
+        renderSnapshotBuffer = new RenderSnapshotBuffer();
+        simulationRunning = true;
+
+        Thread simulationThread = new Thread(this::simulationLoop, "Simulation Thread");
+        simulationThread.setDaemon(true);
+        simulationThread.start();
+
+        while (simulationThread.isAlive() && !window.windowShouldClose()) {
+            long startDeltaTime = System.currentTimeMillis();
+            timer.getElapsedTime();
+
+            pipelinedInput();
+            long frameStart = System.nanoTime();
+            serveSceneCommandRequest(frameStart + TARGET_FRAME_TIME);
+            render(renderSnapshotBuffer.acquire());
+            jobSystem.endFrame();
+            updateScenePreloader(frameStart + TARGET_FRAME_TIME);
+
+            if (!window.isvSync()) {
+                sync();
             }
+
+            updateFramesPerSecond();
+            updateFramesPerSecondCounter();
+
+            startDeltaTime = System.currentTimeMillis() - startDeltaTime;
+            timer.setDeltaTime(startDeltaTime / 1000.0f);
+        }
+
+        simulationRunning = false;
+        try {
+            simulationThread.join();
+        } catch (InterruptedException ignored) {
         }
     }
 
+    private void simulationLoop() {
+        Timer simulationTimer = new Timer();
+        simulationTimer.init();
+
+        fixedStepScheduler.reset();
+        float interval = fixedStepScheduler.getInterval();
+
+        // Simulation thread only parks, spinning would take a core from rendering
+        FramePacer stepPacer = new FramePacer(ApplicationData.getUpdatesPerSecond());
+        stepPacer.setSpinThreshold(0L);
+
+        try {
+            while (simulationRunning) {
+                int steps = fixedStepScheduler.advance(simulationTimer.getElapsedTime());
+                if (steps == 0) {
+                    stepPacer.waitUntil(System.nanoTime() + (long) (fixedStepScheduler.getTimeToNextStep() * 1_000_000_000L));
+                    continue;
+                }
+
+                for (int i = 0; i < steps; i++) {
+                    synchronized (inputLock) {
+                        gameLogic.onUpdate(interval, simulationMouseInput);
+                    }
+                    systemScheduler.update(getScene(), interval);
+                    simulationTick++;
+                }
+
+                synchronized (inputLock) {
+                    simulationMouseInput.clearDisplayVector();
+                }
+
+                budgetScheduler.runFrame();
+                awaitSceneCommands();
+
+                publishRenderSnapshot();
+            }
+        } catch (InterruptedException ignored) {
+        } catch (Exception exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Sync point of the scene command buffer. Recorded commands are applied on the main
+     * thread, which owns GL context.
+     */
+    protected void applySceneCommands() {
+        scenePreloader.applyPendingSwitch();
+
+        Scene scene = getScene();
+        if (scene != null)
+            scene.applyCommands();
+    }
+
+    /**
+     * Called from simulation thread in pipelined mode. Commands are applied and world
+     * partition is updated by the main thread while simulation waits, so scene is never
+     * changed under running tick.
+     */
+    private void awaitSceneCommands() throws InterruptedException {
+        Scene scene = getScene();
+        boolean commandsPending = scene != null && !scene.getCommandBuffer().isEmpty();
+        boolean partitionPending = ApplicationData.isWorldPartition() && scene != null && scene.getSceneCamera() != null
+                && scene.getWorldPartition().isUpdatePending(scene.getSceneCamera().getPosition());
+        if (!commandsPending && !partitionPending && !scenePreloader.isSwitchPending())
+            return;
+
+        CountDownLatch request = new CountDownLatch(1);
+        sceneCommandRequest = request;
+        while (simulationRunning && !request.await(10, TimeUnit.MILLISECONDS)) {
+            // Main thread can be closing, check again later
+        }
+    }
+
+    /**
+     * @param frameDeadline - Time when the current frame should end, limits partition streaming.
+     */
+    private void serveSceneCommandRequest(long frameDeadline) {
+        CountDownLatch request = sceneCommandRequest;
+        if (request == null)
+            return;
+
+        sceneCommandRequest = null;
+        applySceneCommands();
+        // Partition reads live transforms, simulation must not change them meanwhile
+        updateWorldPartition(frameDeadline);
+        request.countDown();
+    }
+
+    /**
+     * Gives scene preloader time for GL uploads and resource releases, limited by
+     * <code>ApplicationData.getSceneUploadBudget()</code> and the frame deadline.
+     * @param frameDeadline - <code>System.nanoTime()</code> when the frame has to be finished.
+     */
+    private void updateScenePreloader(long frameDeadline) {
+        long budget = (long) (ApplicationData.getSceneUploadBudget() * 1_000_000L);
+        scenePreloader.update(Math.max(0, Math.min(budget, frameDeadline - System.nanoTime())));
+    }
+
+    /**
+     * Streams world partition cells around the camera within scene upload budget.
+     * @param frameDeadline - Time when the current frame should end.
+     */
+    private void updateWorldPartition(long frameDeadline) {
+        Scene scene = getScene();
+        if (!ApplicationData.isWorldPartition() || scene == null || scene.getSceneCamera() == null)
+            return;
+
+        long budget = (long) (ApplicationData.getSceneUploadBudget() * 1_000_000L);
+        scene.getWorldPartition().update(scene.getSceneCamera().getPosition(), Math.max(0, Math.min(budget, frameDeadline - System.nanoTime())));
+    }
+
+    private void publishRenderSnapshot() {
+        Scene scene = getScene();
+        if (scene == null)
+            return;
+
+        synchronized (inputLock) {
+            renderSnapshotBuffer.getWriteSnapshot().capture(scene, simulationTick);
+        }
+        renderSnapshotBuffer.publish();
+    }
+
+    private void sync() {
+        framePacer.waitForNextFrame();
+    }
+
     protected void input() {
         mouseInput.input(window);
         gameLogic.onInput(window, mouseInput);
     }
 
+    /**
+     * Input of pipelined mode, simulation thread reads mouse state only from its own copy.
+     */
+    private void pipelinedInput() {
+        mouseInput.input(window);
+
+        synchronized (inputLock) {
+            gameLogic.onInput(window, mouseInput);
+            simulationMouseInput.accumulate(mouseInput);
+        }
+    }
+
     protected void update(float interval) {
+        if (ApplicationData.isRenderInterpolation() && getScene() != null)
+            getScene().storePreviousTransforms();
+
         gameLogic.onUpdate(interval, mouseInput);
-        getHudManager().getFpsCounter().update();
+        systemScheduler.update(getScene(), interval);
+        updateFramesPerSecondCounter();
     }
 
     protected void render() {
@@ -157,10 +457,46 @@ public class GameEngine implements Runnable {
         window.update();
     }
 
+    /**
+     * Renders current scene blended between previous and current simulation step.
+     * @param interpolationAlpha - Blend factor, 1 renders current state.
+     */
+    protected void render(float interpolationAlpha) {
+        Renderer renderer = gameLogic.getRenderer();
+        if (renderer != null)
+            renderer.setInterpolationAlpha(interpolationAlpha);
+
+        render();
+    }
+
+    protected void render(RenderSnapshot renderSnapshot) {
+        Renderer renderer = gameLogic.getRenderer();
+        if (renderer != null)
+            renderer.setRenderSnapshot(renderSnapshot);
+
+        render();
+    }
+
+    protected void updateFramesPerSecondCounter() {
+        if (getHudManager().getFpsCounter() != null)
+            getHudManager().getFpsCounter().update();
+    }
+
     protected void cleanup() {
+        if (framePacer.getPacedFrames() > 0)
+            Debugger.log("Game Engine", "Frame pacing - " + framePacer.getStatistics());
+
         gameLogic.cleanup(getGameLogic().getRenderer());
 
         gameLogic.onDisable();
+        jobSystem.shutdown();
+    }
+
+    /**
+     * Requests end of the game loop. Engine is cleaned up after current frame.
+     */
+    public void stop() {
+        window.close();
     }
 
     protected void updateFramesPerSecond() {
@@ -0,0 +1,59 @@
+package com.horizon.engine;
+
+import org.joml.Vector2f;
+
+/**
+ * Headless window is used when engine runs without display. It never touches
+ * GLFW or GL, it only keeps the window size so projection and hud calculations
+ * still work.
+ *
+ * @author Horizon
+ */
+public class HeadlessWindow extends Window {
+
+    private volatile boolean closeRequested;
+
+    public HeadlessWindow(GameEngine gameEngine, String title, int width, int height) {
+        super(gameEngine, title, width, height, false);
+    }
+
+    @Override
+    public void init() {
+        updateProjectionMatrix();
+    }
+
+    @Override
+    public void setClearColor(float r, float g, float b, float alpha) {
+
+    }
+
+    @Override
+    public boolean isKeyPressed(int keyCode) {
+        return false;
+    }
+
+    @Override
+    public boolean isKeyReleased(int keyCode) {
+        return true;
+    }
+
+    @Override
+    public boolean windowShouldClose() {
+        return closeRequested;
+    }
+
+    @Override
+    public void close() {
+        closeRequested = true;
+    }
+
+    @Override
+    public void update() {
+
+    }
+
+    @Override
+    public Vector2f getScreenSize() {
+        return new Vector2f(Window.getWidth(), Window.getHeight());
+    }
+}
@@ -169,6 +169,10 @@ public @Data class Window {
         return glfwWindowShouldClose(windowHandle);
     }
 
+    public void close() {
+        glfwSetWindowShouldClose(windowHandle, true);
+    }
+
     public boolean isResized() {
         return resized;
     }
@@ -5,29 +5,26 @@ import com.horizon.engine.GameEngine;
 import com.horizon.engine.asset.prefab.ModelPrefab;
 import com.horizon.engine.asset.prefab.Prefab;
 import com.horizon.engine.asset.prefab.data.MeshData;
+import com.horizon.engine.common.NameGenerator;
 import com.horizon.engine.common.UtilFont;
 import com.horizon.engine.common.UtilModelLoader;
-import com.horizon.engine.component.component.mesh.InstancedMesh;
-import com.horizon.engine.component.component.mesh.Mesh;
 import com.horizon.engine.debug.Debugger;
-import com.horizon.engine.graphics.object.GameObject;
+import com.horizon.engine.job.JobSystem;
 import lombok.Getter;
 
 import java.awt.*;
 import java.util.*;
-import java.util.List;
 
 public class AssetManager extends AbstractManager {
 
-    //Rework meshes to save it here.
+    private static final String PRIMITIVES_PATH = "/models";
+    private static final String[] PRIMITIVES = {"cube.obj", "cylinder.obj", "plane.obj", "error.obj"};
 
     //This map is static because we need to use this in TextureFont enum. For now it works.
     //But later this needs to be fixed to classic map and create custom font manager maybe for custom fonts.
-    @Getter private static final Map<String, Font> loadedFonts = new HashMap<>();
+    @Getter private static final Map<String, Font> loadedFonts = Collections.synchronizedMap(new HashMap<>());
     @Getter private final Map<String, Prefab> loadedPrefabs = new HashMap<>();
-
-    @Getter private final Map<Integer, Map.Entry<Mesh, GameObject>> nonInstancedMeshes = new HashMap<>();
-    @Getter private final Map<Integer, Map.Entry<InstancedMesh, List<GameObject>>> instancedMeshes = new HashMap<>();
+    private final NameGenerator prefabNames = new NameGenerator();
 
     public AssetManager(GameEngine engine) {
         super(engine, "Asset Manager");
@@ -46,13 +43,29 @@ public class AssetManager extends AbstractManager {
     //TODO this can be done with xml file or something like that.
     public void loadPrimitives() {
         Debugger.log(getManagerName(), "Loading primitives...");
-        loadModel("/models", "cube.obj");
-        loadModel("/models", "cylinder.obj");
-        loadModel("/models", "plane.obj");
-        loadModel("/models", "error.obj");
+
+        // Parsing is CPU only, so models are parsed in parallel and registered in order afterwards
+        MeshData[] meshData = new MeshData[PRIMITIVES.length];
+        JobSystem jobSystem = getGameEngine().getJobSystem();
+        if (jobSystem != null) {
+            jobSystem.parallelFor(0, PRIMITIVES.length, 1, (from, to) -> parsePrimitives(meshData, from, to));
+        } else {
+            parsePrimitives(meshData, 0, PRIMITIVES.length);
+        }
+
+        for (MeshData data : meshData) {
+            registerModel(data);
+        }
+
         Debugger.log(getManagerName(), "Primitives successfully loaded.");
     }
 
+    private void parsePrimitives(MeshData[] meshData, int from, int to) {
+        for (int i = from; i < to; i++) {
+            meshData[i] = UtilModelLoader.loadMesh(PRIMITIVES_PATH + "/" + PRIMITIVES[i]);
+        }
+    }
+
     public static void loadFont(String name) {
         Font font = UtilFont.loadFontFrom("/font/" + name);
         loadedFonts.put(name, font);
@@ -65,10 +78,16 @@ public class AssetManager extends AbstractManager {
     public ModelPrefab loadModel(String path, String modelName) {
         Debugger.log(getManagerName(), "Loading mesh " + path + "/" + modelName + "...");
         MeshData meshData = UtilModelLoader.loadMesh(path + "/" + modelName);
+        ModelPrefab prefab = registerModel(meshData);
+
+        Debugger.log(getManagerName(), "Mesh " + modelName + " loaded.");
+        return prefab;
+    }
+
+    private ModelPrefab registerModel(MeshData meshData) {
         ModelPrefab prefab = new ModelPrefab(getGameEngine(), loadedPrefabs.containsKey(meshData.getName()) ? generatePrefabName(meshData.getName()) : meshData.getName(), meshData);
 
         loadedPrefabs.put(prefab.getName(), prefab);
-        Debugger.log(getManagerName(), "Mesh " + modelName + " loaded.");
         return prefab;
     }
 
@@ -85,72 +104,7 @@ public class AssetManager extends AbstractManager {
         return (ModelPrefab) loadedPrefabs.get(modelName);
     }
 
-    public void addMesh(GameObject gameObject) {
-        if(gameObject.getMesh() != null) {
-            Mesh mesh = gameObject.getMesh();
-            if(mesh instanceof InstancedMesh) {
-                List<GameObject> list = instancedMeshes.get(mesh.getMeshId()).getValue();
-                if(list == null) {
-                    list = new ArrayList<>();
-                    instancedMeshes.put(generateMeshIdentifier(mesh), new AbstractMap.SimpleEntry<>((InstancedMesh) mesh, list));
-                }
-                list.add(gameObject);
-            } else {
-                nonInstancedMeshes.put(generateMeshIdentifier(mesh), new AbstractMap.SimpleEntry<>(mesh, gameObject));
-            }
-        }
-    }
-
     private String generatePrefabName(String name) {
-        String generatedPrefabName;
-        int index = 1;
-
-        while(true) {
-            generatedPrefabName = name + "(" + index + ")";
-            if(!loadedPrefabs.containsKey(generatedPrefabName))
-                break;
-            else
-                index++;
-        }
-
-        return generatedPrefabName;
-    }
-
-    private int generateMeshIdentifier(Mesh mesh) {
-        int identifier = -1;
-
-        if(mesh instanceof InstancedMesh) {
-            if(instancedMeshes.size() == 0)
-                identifier = 0;
-
-            for(int i = 0; i <= instancedMeshes.size(); i++) {
-                if(!instancedMeshes.containsKey(i))
-                    identifier = i;
-            }
-
-            mesh.setMeshId(identifier);
-            return identifier;
-        }
-
-        if(nonInstancedMeshes.size() == 0)
-            identifier = 0;
-
-        for(int i = 0; i <= nonInstancedMeshes.size(); i++) {
-            if(!nonInstancedMeshes.containsKey(i))
-                identifier = i;
-        }
-
-        mesh.setMeshId(identifier);
-        return identifier;
-    }
-
-    public void cleanUp() {
-        for (int identifier : nonInstancedMeshes.keySet()) {
-            nonInstancedMeshes.get(identifier).getKey().cleanUp();
-        }
-
-        for (int identifier : instancedMeshes.keySet()) {
-            instancedMeshes.get(identifier).getKey().cleanUp();
-        }
+        return prefabNames.generate(name, loadedPrefabs::containsKey);
     }
 }
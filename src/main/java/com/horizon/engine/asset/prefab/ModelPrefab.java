@@ -19,11 +19,19 @@ import lombok.Setter;
  */
 public class ModelPrefab extends Prefab {
 
+    private static final String ERROR_TEXTURE = "src/textures/error.png";
+
     @Getter private final GameEngine gameEngine;
 
     @Getter private final MeshData meshData;
     @Getter @Setter private Material material;
 
+    /**
+     * Decoded fallback texture, every object gets its own texture created from it, so the
+     * image is not decoded for every instantiated object.
+     */
+    private Texture.ImageData errorImage;
+
     public ModelPrefab(GameEngine gameEngine, String name, MeshData meshData) {
         super(name);
 
@@ -38,9 +46,16 @@ public class ModelPrefab extends Prefab {
 
         addParameters(modelObject);
 
-        mesh.setMaterial(material == null ? new Material(new Texture("src/textures/error.png")) : material);
+        mesh.setMaterial(material == null ? new Material(createErrorTexture()) : material);
         modelObject.addComponent(mesh);
 
         return modelObject;
     }
+
+    private Texture createErrorTexture() {
+        if (errorImage == null)
+            errorImage = Texture.loadImage(ERROR_TEXTURE);
+
+        return errorImage != null ? new Texture(errorImage) : new Texture(ERROR_TEXTURE);
+    }
 }
@@ -39,11 +39,15 @@ public @Data abstract class Prefab {
     }
 
     public void addParameters(GameObject gameObject) {
+        gameObject.setPrefabName(name);
+
         for(Component component : components.values()) {
             gameObject.addComponent(component);
         }
 
-        gameObject.getGameObjectTags().addAll(gameObjectTags);
+        for (GameObjectTag tag : gameObjectTags) {
+            gameObject.addTag(tag);
+        }
         gameObject.setScale(transform.getScale());
         gameObject.setRotation(transform.getRotation());
     }
@@ -1,7 +1,9 @@
 package com.horizon.engine.asset.prefab.data;
 
 import com.horizon.engine.component.component.mesh.Mesh;
+import com.horizon.engine.common.UtilModel;
 import lombok.Data;
+import org.joml.Vector3f;
 
 /**
  * MeshData can store data of mesh and eventually create Mesh itself
@@ -26,6 +28,13 @@ public @Data class MeshData {
     private int[] jointIndices;
     private float[] weights;
 
+    /**
+     * Model space bounds calculated once when the mesh data are imported.
+     */
+    private final Vector3f boundsMin = new Vector3f();
+    private final Vector3f boundsMax = new Vector3f();
+    private float boundingRadius;
+
     /**
      * This type of MeshData are used for classic mesh.
      * @param positions Corner positions of vertices. <code>Vector3.x(), Vector3.y(), Vector3.z()</code> are used for these positions.
@@ -38,6 +47,8 @@ public @Data class MeshData {
         this.textCoordinates = textureCoordinates;
         this.normals = normals;
         this.indices = indices;
+
+        this.boundingRadius = UtilModel.calculateBounds(positions, boundsMin, boundsMax);
     }
 
     /**
@@ -57,6 +68,8 @@ public @Data class MeshData {
 
         this.jointIndices = jointIndices;
         this.weights = weights;
+
+        this.boundingRadius = UtilModel.calculateBounds(positions, boundsMin, boundsMax);
     }
 
     /**
@@ -66,9 +79,13 @@ public @Data class MeshData {
      * @return Mesh instance that is automatically created and inserted into memory.
      */
     public Mesh createMesh() {
+        Mesh mesh;
         if (jointIndices == null)
-            return new Mesh(positions.clone(), textCoordinates.clone(), normals.clone(), indices.clone());
+            mesh = new Mesh(positions.clone(), textCoordinates.clone(), normals.clone(), indices.clone());
         else
-            return new Mesh(positions.clone(), textCoordinates.clone(), normals.clone(), indices.clone(), jointIndices.clone(), weights.clone());
+            mesh = new Mesh(positions.clone(), textCoordinates.clone(), normals.clone(), indices.clone(), jointIndices.clone(), weights.clone());
+
+        mesh.setBounds(boundsMin, boundsMax, boundingRadius);
+        return mesh;
     }
 }
@@ -25,6 +25,13 @@ public class Font {
 
     private Texture texture;
 
+    /**
+     * Encoded atlas image waiting for upload. Atlas is rasterized on construction, which
+     * doesn't need GL, so fonts can be built on worker threads. Texture is created on
+     * first use from the thread that owns GL context.
+     */
+    private ByteBuffer atlasData;
+
     @Getter private int height;
     @Getter private int width;
 
@@ -37,6 +44,11 @@ public class Font {
     }
 
     public Texture getTexture() {
+        if (texture == null && atlasData != null) {
+            texture = new Texture(atlasData);
+            atlasData = null;
+        }
+
         return texture;
     }
 
@@ -105,7 +117,8 @@ public class Font {
                 buf.put(data, 0, data.length);
                 buf.flip();
             }
-            texture = new Texture(buf);
+            texture = null;
+            atlasData = buf;
         } catch(Exception exception) {
             exception.printStackTrace();
         }
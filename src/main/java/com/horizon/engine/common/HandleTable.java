@@ -0,0 +1,203 @@
+package com.horizon.engine.common;
+
+import java.util.Arrays;
+
+/**
+ * Table of values addressed by generational integer handles. Handle contains index of the
+ * slot and generation of the slot, generation is increased whenever the slot is freed, so
+ * handle of removed value never resolves to other value stored in the same slot later.
+ *
+ * @apiNote Handle <code>0</code> is never used, so it can be used as invalid handle.
+ *          Free slots are reused in the order they were freed and only after
+ *          <code>MIN_FREE_SLOTS</code> slots are free, so one slot is reused at most once per
+ *          that many removals. Slot whose generation would wrap is retired and never reused.
+ *
+ * @author Horizon
+ */
+public class HandleTable<T> {
+
+    public static final int INVALID_HANDLE = 0;
+
+    private static final int INDEX_BITS = 20;
+    private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    private static final int GENERATION_MASK = (1 << (31 - INDEX_BITS)) - 1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * New slot is created while fewer slots are free.
+     */
+    private static final int MIN_FREE_SLOTS = 1024;
+
+    /**
+     * Generation of the retired slot, no valid handle has it.
+     */
+    private static final int RETIRED_GENERATION = 0;
+
+    private Object[] values;
+    private int[] generations;
+
+    // Free slots stored as a queue in ring buffer
+    private int[] freeIndices;
+    private int freeHead;
+    private int freeCount;
+
+    private int slotCount;
+    private int size;
+
+    public HandleTable() {
+        this.values = new Object[INITIAL_CAPACITY];
+        this.generations = new int[INITIAL_CAPACITY];
+        this.freeIndices = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * @param value - Value that will be stored, must not be null.
+     * @return - Handle of the stored value.
+     */
+    public int add(T value) {
+        if (value == null)
+            throw new IllegalArgumentException("Value must not be null.");
+
+        int index;
+        if (freeCount > 0 && (freeCount >= MIN_FREE_SLOTS || slotCount > INDEX_MASK)) {
+            index = pollFree();
+        } else {
+            if (slotCount > INDEX_MASK)
+                throw new IllegalStateException("Handle table is full.");
+            if (slotCount == values.length)
+                grow();
+
+            index = slotCount++;
+            generations[index] = 1;
+        }
+
+        values[index] = value;
+        size++;
+        return (generations[index] << INDEX_BITS) | index;
+    }
+
+    /**
+     * Stores value under handle created earlier, for example by other table whose content
+     * was saved. Slots skipped below the index are marked as free.
+     * @param handle - Handle that will be used, its slot must be free.
+     * @param value - Value that will be stored, must not be null.
+     * @return - False if the slot of the handle is already used or retired.
+     */
+    public boolean insert(int handle, T value) {
+        if (value == null)
+            throw new IllegalArgumentException("Value must not be null.");
+
+        int index = handle & INDEX_MASK;
+        int generation = handle >>> INDEX_BITS;
+        if (handle < 0 || generation == 0 || generation > GENERATION_MASK)
+            throw new IllegalArgumentException("Handle " + handle + " is not valid.");
+
+        while (slotCount <= index) {
+            if (slotCount == values.length)
+                grow();
+
+            generations[slotCount] = 1;
+            addFree(slotCount++);
+        }
+
+        if (values[index] != null || generations[index] == RETIRED_GENERATION)
+            return false;
+
+        // Slot is free, so it is in the free queue
+        for (int i = 0; i < freeCount; i++) {
+            int position = (freeHead + i) % freeIndices.length;
+            if (freeIndices[position] == index) {
+                freeIndices[position] = freeIndices[(freeHead + freeCount - 1) % freeIndices.length];
+                freeCount--;
+                break;
+            }
+        }
+
+        generations[index] = generation;
+        values[index] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * @return - Value of the handle or null if the handle is not valid anymore.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int handle) {
+        int index = handle & INDEX_MASK;
+        if (index >= slotCount || generations[index] != handle >>> INDEX_BITS)
+            return null;
+
+        return (T) values[index];
+    }
+
+    public boolean isValid(int handle) {
+        return get(handle) != null;
+    }
+
+    /**
+     * @return - True if handle was valid and its value was removed.
+     */
+    public boolean remove(int handle) {
+        if (!isValid(handle))
+            return false;
+
+        int index = handle & INDEX_MASK;
+        values[index] = null;
+        release(index);
+        size--;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(values, 0, slotCount, null);
+        freeHead = 0;
+        freeCount = 0;
+        for (int i = 0; i < slotCount; i++) {
+            if (generations[i] != RETIRED_GENERATION)
+                release(i);
+        }
+
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Increases generation of the freed slot and queues it, slot is retired instead when
+     * its generation would wrap.
+     */
+    private void release(int index) {
+        int generation = (generations[index] + 1) & GENERATION_MASK;
+        generations[index] = generation;
+        if (generation != RETIRED_GENERATION)
+            addFree(index);
+    }
+
+    private void addFree(int index) {
+        freeIndices[(freeHead + freeCount++) % freeIndices.length] = index;
+    }
+
+    private int pollFree() {
+        int index = freeIndices[freeHead];
+        freeHead = (freeHead + 1) % freeIndices.length;
+        freeCount--;
+        return index;
+    }
+
+    private void grow() {
+        int capacity = values.length * 2;
+        values = Arrays.copyOf(values, capacity);
+        generations = Arrays.copyOf(generations, capacity);
+
+        // Queue is unwrapped, so it stays in order in the larger buffer
+        int[] grownFreeIndices = new int[capacity];
+        for (int i = 0; i < freeCount; i++) {
+            grownFreeIndices[i] = freeIndices[(freeHead + i) % freeIndices.length];
+        }
+        freeIndices = grownFreeIndices;
+        freeHead = 0;
+    }
+}
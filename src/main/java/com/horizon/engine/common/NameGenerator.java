@@ -0,0 +1,43 @@
+package com.horizon.engine.common;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Generates unique names in <code>name(index)</code> format. Last used index is remembered
+ * for every base name, so generating many names with the same base is linear instead of
+ * probing all the indices from the beginning every time.
+ *
+ * @author Horizon
+ */
+public class NameGenerator {
+
+    private final Map<String, Integer> counters;
+
+    public NameGenerator() {
+        this.counters = new HashMap<>();
+    }
+
+    /**
+     * @param name - Base name.
+     * @param taken - Returns true for names which are already used.
+     * @return - Unique name.
+     */
+    public synchronized String generate(String name, Predicate<String> taken) {
+        int index = counters.getOrDefault(name, 0);
+
+        String generatedName;
+        do {
+            index++;
+            generatedName = name + "(" + index + ")";
+        } while (taken.test(generatedName));
+
+        counters.put(name, index);
+        return generatedName;
+    }
+
+    public synchronized void reset() {
+        counters.clear();
+    }
+}
@@ -19,6 +19,7 @@ public @Data class Raycast {
     private final Vector3f max;
     private final Vector3f min;
     private final Vector2f nearFar;
+    private final Vector3f scale;
     private Vector3f direction;
 
     public Raycast() {
@@ -26,6 +27,7 @@ public @Data class Raycast {
         min = new Vector3f();
         max = new Vector3f();
         nearFar = new Vector2f();
+        scale = new Vector3f();
     }
 
     public GameObject selectGameObject(Scene scene, Camera camera) {
@@ -51,10 +53,11 @@ public @Data class Raycast {
             if(gameObject.getComponent(ComponentType.MESH) == null)
                 continue;
 
-            min.set(gameObject.getPosition());
-            max.set(gameObject.getPosition());
-            min.add(-gameObject.getTransform().getScale().x(), -gameObject.getTransform().getScale().y(), -gameObject.getTransform().getScale().z());
-            max.add(gameObject.getTransform().getScale().x(), gameObject.getTransform().getScale().y(), gameObject.getTransform().getScale().z());
+            gameObject.getTransform().getWorldPosition(min);
+            max.set(min);
+            gameObject.getTransform().getWorldScale(scale);
+            min.sub(scale);
+            max.add(scale);
             if (Intersectionf.intersectRayAab(center, dir, min, max, nearFar) && nearFar.x < closestDistance) {
                 closestDistance = nearFar.x;
                 selectedGameObject = gameObject;
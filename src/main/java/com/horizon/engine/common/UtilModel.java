@@ -1,6 +1,7 @@
 package com.horizon.engine.common;
 
 import com.horizon.engine.graphics.data.Vertex;
+import org.joml.Vector3f;
 
 import java.nio.FloatBuffer;
 import java.text.DecimalFormat;
@@ -73,4 +74,36 @@ public class UtilModel {
 
         return buffer;
     }
+
+    /**
+     * Calculates axis aligned bounding box of positions and radius of bounding sphere
+     * centered in the origin of the model.
+     * @param positions - Positions stored as <code>x, y, z</code>.
+     * @param min - Destination of the box minimum.
+     * @param max - Destination of the box maximum.
+     * @return - Distance of the farthest position from the origin.
+     */
+    public static float calculateBounds(float[] positions, Vector3f min, Vector3f max) {
+        if (positions == null || positions.length < 3) {
+            min.zero();
+            max.zero();
+            return 0.0f;
+        }
+
+        min.set(Float.POSITIVE_INFINITY);
+        max.set(Float.NEGATIVE_INFINITY);
+        float radiusSquared = 0.0f;
+
+        for (int i = 0; i + 2 < positions.length; i += 3) {
+            float x = positions[i];
+            float y = positions[i + 1];
+            float z = positions[i + 2];
+
+            min.set(Math.min(min.x, x), Math.min(min.y, y), Math.min(min.z, z));
+            max.set(Math.max(max.x, x), Math.max(max.y, y), Math.max(max.z, z));
+            radiusSquared = Math.max(radiusSquared, x * x + y * y + z * z);
+        }
+
+        return (float) Math.sqrt(radiusSquared);
+    }
 }
@@ -4,6 +4,7 @@ import com.horizon.engine.component.component.generator.BiomeGenerator;
 import com.horizon.engine.component.component.mesh.Mesh;
 import com.horizon.engine.component.component.light.Light;
 import com.horizon.engine.component.component.hud.text.TextComponent;
+import com.horizon.engine.graphics.data.Transform;
 
 public enum ComponentType {
 
@@ -12,6 +13,11 @@ public enum ComponentType {
     TEXT(TextComponent.class),
     GENERATOR(BiomeGenerator.class),
     GRAVITY(null),
+    /**
+     * Transform of every game object, it is not stored as component. Used by game systems
+     * to declare access to positions, rotations and scales.
+     */
+    TRANSFORM(Transform.class),
     CUSTOM(null);
 
     private final Object clazz;
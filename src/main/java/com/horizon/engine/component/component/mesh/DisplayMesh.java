@@ -3,6 +3,7 @@ package com.horizon.engine.component.component.mesh;
 import com.horizon.engine.common.UtilModel;
 import com.horizon.engine.component.Component;
 import com.horizon.engine.component.ComponentType;
+import com.horizon.engine.data.ApplicationData;
 import com.horizon.engine.graphics.data.Material;
 import com.horizon.engine.graphics.texture.Texture;
 import lombok.Getter;
@@ -99,6 +100,10 @@ public class DisplayMesh extends Component {
         try {
             vertexCount = positions.length / 2;
             vboIdList = new LinkedList<>();
+
+            if (ApplicationData.isHeadless())
+                return;
+
             vaoId = glGenVertexArrays();
 
             glBindVertexArray(vaoId);
@@ -124,6 +129,10 @@ public class DisplayMesh extends Component {
         try {
             vertexCount = indices.length;
             vboIdList = new LinkedList<>();
+
+            if (ApplicationData.isHeadless())
+                return;
+
             vaoId = glGenVertexArrays();
 
             glBindVertexArray(vaoId);
@@ -168,6 +177,11 @@ public class DisplayMesh extends Component {
     }
 
     public void updatePositions(float[] positions, int size) {
+        if (ApplicationData.isHeadless()) {
+            this.positions = positions;
+            return;
+        }
+
         try {
             glBindBuffer(GL_ARRAY_BUFFER, positionVboId);
             glBufferSubData(GL_ARRAY_BUFFER, 0, UtilModel.updateFlippedBuffer(positionBuffer, positions, size));
@@ -178,6 +192,9 @@ public class DisplayMesh extends Component {
     }
 
     public void cleanUp() {
+        if (ApplicationData.isHeadless())
+            return;
+
         glDisableVertexAttribArray(0);
         glDisableVertexAttribArray(1);
         glDisableVertexAttribArray(2);
@@ -193,6 +210,9 @@ public class DisplayMesh extends Component {
     }
 
     public void cleanUpTexture(){
+        if (ApplicationData.isHeadless())
+            return;
+
         Texture texture = material.getTexture();
         if (texture != null) {
             texture.cleanup();
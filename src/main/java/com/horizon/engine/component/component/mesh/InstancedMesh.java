@@ -1,14 +1,18 @@
 package com.horizon.engine.component.component.mesh;
 
+import com.horizon.engine.data.ApplicationData;
 import com.horizon.engine.graphics.texture.Texture;
 import com.horizon.engine.graphics.data.Transformation;
 import com.horizon.engine.graphics.object.GameObject;
+import com.horizon.engine.job.JobSystem;
 import lombok.Getter;
 import org.joml.Matrix4f;
 import org.lwjgl.system.MemoryUtil;
 
 import java.nio.FloatBuffer;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
 
 import static org.lwjgl.opengl.GL11.GL_FLOAT;
 import static org.lwjgl.opengl.GL11.GL_TRIANGLES;
@@ -29,23 +33,50 @@ public class InstancedMesh extends Mesh {
     @Getter private static final int INSTANCE_SIZE_BYTES = InstancedMesh.MATRIX_SIZE_BYTES * 2 + InstancedMesh.FLOAT_SIZE_BYTES * 2 + InstancedMesh.FLOAT_SIZE_BYTES;
     @Getter private static final int INSTANCE_SIZE_FLOATS = InstancedMesh.MATRIX_SIZE_FLOATS * 2 + 3;
 
+    // Floats read by shaders, model matrix, texture offsets and selected data
+    private static final int INSTANCE_DATA_FLOATS = InstancedMesh.MATRIX_SIZE_FLOATS + 3;
+    private static final int MERGED_CLEAN_SLOTS = 8;
+    private static final int COMPACT_MIN_SLOTS = 64;
+
+    /**
+     * View rendered by the main camera, other views are for example shadow cascades.
+     */
+    public static final int MAIN_VIEW = 0;
+
+    /**
+     * Initial number of instance slots, buffer grows when more instances are rendered.
+     */
     @Getter private final int numInstances;
-    @Getter private final int instanceDataVBO;
 
-    @Getter private FloatBuffer instanceDataBuffer;
+    // Every view keeps its own instance buffer, so views with different visible objects don't rewrite each other
+    private InstanceBuffer[] instanceBuffers;
+    private int attributeView = -1;
 
     public InstancedMesh(float[] positions, float[] textureCoordinates, float[] normals, int[] indices, int numInstances) {
         super(positions, textureCoordinates, normals, indices, Mesh.createEmptyIntArray(Mesh.MAX_WEIGHTS * positions.length / 3, 0), Mesh.createEmptyFloatArray(Mesh.MAX_WEIGHTS * positions.length / 3, 0));
 
         this.numInstances = numInstances;
+        updateBounds();
+
+        this.instanceBuffers = new InstanceBuffer[1];
+        instanceBuffers[MAIN_VIEW] = createInstanceBuffer(MAIN_VIEW);
+
+        if (ApplicationData.isHeadless())
+            return;
 
         glBindVertexArray(getVaoId());
+        bindInstanceAttributes(MAIN_VIEW);
+        glBindVertexArray(0);
+    }
+
+    /**
+     * Points instance attributes of the vertex array to the buffer of the view. Vertex array
+     * has to be bound.
+     */
+    private void bindInstanceAttributes(int view) {
+        glBindBuffer(GL_ARRAY_BUFFER, instanceBuffers[view].vbo);
 
         // Model View Matrix
-        instanceDataVBO = glGenBuffers();
-        getVboIdList().add(instanceDataVBO);
-        instanceDataBuffer = MemoryUtil.memAllocFloat(numInstances * InstancedMesh.INSTANCE_SIZE_FLOATS);
-        glBindBuffer(GL_ARRAY_BUFFER, instanceDataVBO);
         int start = 5;
         int strideStart = 0;
         for (int i = 0; i < 4; i++) {
@@ -76,73 +107,376 @@ public class InstancedMesh extends Mesh {
         glVertexAttribPointer(start, 1, GL_FLOAT, false, InstancedMesh.INSTANCE_SIZE_BYTES, strideStart);
         glVertexAttribDivisor(start, 1);
         glEnableVertexAttribArray(start);
-        start++;
 
         glBindBuffer(GL_ARRAY_BUFFER, 0);
-        glBindVertexArray(0);
+        attributeView = view;
     }
 
     @Override
     public void cleanUp() {
         super.cleanUp();
-        if (this.instanceDataBuffer != null) {
-            MemoryUtil.memFree(this.instanceDataBuffer);
-            this.instanceDataBuffer = null;
+        for (InstanceBuffer instanceBuffer : instanceBuffers) {
+            if (instanceBuffer != null)
+                instanceBuffer.free();
         }
     }
 
     public void renderListInstanced(List<GameObject> gameObjects, Transformation transformation, Matrix4f viewMatrix) {
-        renderListInstanced(gameObjects, false, transformation, viewMatrix);
+        renderListInstanced(gameObjects, false, transformation, viewMatrix, MAIN_VIEW);
     }
 
     public void renderListInstanced(List<GameObject> gameObjects, boolean billBoard, Transformation transformation, Matrix4f viewMatrix) {
+        renderListInstanced(gameObjects, billBoard, transformation, viewMatrix, MAIN_VIEW);
+    }
+
+    /**
+     * Renders the game objects from persistent instance buffer of the view. Every object keeps
+     * its slot while it is rendered in consecutive frames, data of the slot is written only
+     * when it differs from uploaded data and only dirty ranges are uploaded, so static
+     * instances cost no buffer bandwidth.
+     *
+     * @apiNote Slots of objects which are not rendered anymore are cleared and reused, cleared
+     *          slot has zero matrix, so it produces no fragments.
+     *
+     * @param view - Index of the view, for example <code>MAIN_VIEW</code> or shadow cascade.
+     */
+    public void renderListInstanced(List<GameObject> gameObjects, boolean billBoard, Transformation transformation, Matrix4f viewMatrix, int view) {
+        InstanceBuffer instanceBuffer = getInstanceBuffer(view);
+
         start();
+        if (attributeView != view)
+            bindInstanceAttributes(view);
 
-        int chunkSize = numInstances;
-        int length = gameObjects.size();
-        for (int i = 0; i < length; i += chunkSize) {
-            int end = Math.min(length, i + chunkSize);
-            List<GameObject> subList = gameObjects.subList(i, end);
-            renderChunkInstanced(subList, billBoard, transformation, viewMatrix);
-        }
+        updateSlots(instanceBuffer, gameObjects, billBoard, transformation, viewMatrix);
 
+        glBindBuffer(GL_ARRAY_BUFFER, instanceBuffer.vbo);
+        instanceBuffer.upload();
+
+        if (instanceBuffer.slotCount > 0)
+            glDrawElementsInstanced(GL_TRIANGLES, getVertexCount(), GL_UNSIGNED_INT, 0, instanceBuffer.slotCount);
+
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
         stop();
     }
 
-    private void renderChunkInstanced(List<GameObject> gameObjects, boolean billBoard, Transformation transformation, Matrix4f viewMatrix) {
-        this.instanceDataBuffer.clear();
+    /**
+     * @return - Number of instances drawn by the last render of the view, including empty slots.
+     */
+    public int getSlotCount(int view) {
+        return view < instanceBuffers.length && instanceBuffers[view] != null ? instanceBuffers[view].slotCount : 0;
+    }
+
+    /**
+     * @return - Number of instance slots uploaded by the last render of the view.
+     */
+    public int getUploadedSlots(int view) {
+        return view < instanceBuffers.length && instanceBuffers[view] != null ? instanceBuffers[view].uploadedSlots : 0;
+    }
+
+    public int getSlotCount() {
+        return getSlotCount(MAIN_VIEW);
+    }
+
+    public int getUploadedSlots() {
+        return getUploadedSlots(MAIN_VIEW);
+    }
+
+    public FloatBuffer getInstanceDataBuffer() {
+        return instanceBuffers[MAIN_VIEW].data;
+    }
 
-        int i = 0;
+    private InstanceBuffer getInstanceBuffer(int view) {
+        if (view >= instanceBuffers.length)
+            instanceBuffers = Arrays.copyOf(instanceBuffers, view + 1);
 
+        if (instanceBuffers[view] == null)
+            instanceBuffers[view] = createInstanceBuffer(view);
+
+        return instanceBuffers[view];
+    }
+
+    private InstanceBuffer createInstanceBuffer(int view) {
+        InstanceBuffer instanceBuffer = new InstanceBuffer(view, numInstances);
+        if (!ApplicationData.isHeadless()) {
+            instanceBuffer.vbo = glGenBuffers();
+            getVboIdList().add(instanceBuffer.vbo);
+        }
+
+        return instanceBuffer;
+    }
+
+    /**
+     * Assigns slots to the game objects and writes their changed data into instance buffer.
+     */
+    private void updateSlots(InstanceBuffer instanceBuffer, List<GameObject> gameObjects, boolean billBoard, Transformation transformation, Matrix4f viewMatrix) {
+        instanceBuffer.assignSlots(gameObjects);
+
+        JobSystem jobSystem = transformation.getJobSystem();
+        if (jobSystem != null && gameObjects instanceof RandomAccess) {
+            jobSystem.parallelFor(0, gameObjects.size(), (from, to) -> storeInstanceData(instanceBuffer, gameObjects, from, to, billBoard, transformation, viewMatrix, new Matrix4f(), new float[InstancedMesh.INSTANCE_DATA_FLOATS]));
+        } else {
+            storeInstanceData(instanceBuffer, gameObjects, 0, gameObjects.size(), billBoard, transformation, viewMatrix, new Matrix4f(), new float[InstancedMesh.INSTANCE_DATA_FLOATS]);
+        }
+    }
+
+    /**
+     * Writes instance data of the game objects in range into their slots.
+     * Every instance has its own slot in buffer, so ranges can be stored in parallel.
+     */
+    private void storeInstanceData(InstanceBuffer instanceBuffer, List<GameObject> gameObjects, int from, int to, boolean billBoard, Transformation transformation, Matrix4f viewMatrix, Matrix4f modelMatrix, float[] instanceData) {
         Texture text = getMaterial().getTexture();
-        for (GameObject gameObject : gameObjects) {
-            Matrix4f modelMatrix = transformation.buildModelMatrix(gameObject);
+        for (int i = from; i < to; i++) {
+            GameObject gameObject = gameObjects.get(i);
+
+            transformation.buildModelMatrix(gameObject, modelMatrix);
             if (viewMatrix != null && billBoard) {
                 viewMatrix.transpose3x3(modelMatrix);
             }
-            modelMatrix.get(InstancedMesh.INSTANCE_SIZE_FLOATS * i, instanceDataBuffer);
+            modelMatrix.get(instanceData);
+
+            // Texture offsets
             if (text != null) {
                 int col = gameObject.getTexturePosition() % text.getNumCols();
                 int row = gameObject.getTexturePosition() / text.getNumCols();
-                float textXOffset = (float) col / text.getNumCols();
-                float textYOffset = (float) row / text.getNumRows();
-                int buffPos = InstancedMesh.INSTANCE_SIZE_FLOATS * i + InstancedMesh.MATRIX_SIZE_FLOATS;
-                this.instanceDataBuffer.put(buffPos, textXOffset);
-                this.instanceDataBuffer.put(buffPos + 1, textYOffset);
+                instanceData[InstancedMesh.MATRIX_SIZE_FLOATS] = (float) col / text.getNumCols();
+                instanceData[InstancedMesh.MATRIX_SIZE_FLOATS + 1] = (float) row / text.getNumRows();
+            } else {
+                instanceData[InstancedMesh.MATRIX_SIZE_FLOATS] = 0;
+                instanceData[InstancedMesh.MATRIX_SIZE_FLOATS + 1] = 0;
             }
 
             // Selected data or scaling for billboard
-            int buffPos = InstancedMesh.INSTANCE_SIZE_FLOATS * i + InstancedMesh.MATRIX_SIZE_FLOATS + 2;
-            this.instanceDataBuffer.put(buffPos, billBoard ? Math.max(gameObject.getTransform().getScaleX(), Math.max(gameObject.getTransform().getScaleY(), gameObject.getTransform().getScaleZ())) : 0);
+            instanceData[InstancedMesh.MATRIX_SIZE_FLOATS + 2] = billBoard ? gameObject.getTransform().getWorldMaxScale() : 0;
 
-            i++;
+            instanceBuffer.writeSlot(gameObject.getInstanceSlot(instanceBuffer.view), instanceData);
         }
+    }
 
-        glBindBuffer(GL_ARRAY_BUFFER, instanceDataVBO);
-        glBufferData(GL_ARRAY_BUFFER, instanceDataBuffer, GL_DYNAMIC_READ);
+    /**
+     * Instance buffer of one view. Slots are stored in the game objects per view.
+     */
+    private static class InstanceBuffer {
 
-        glDrawElementsInstanced(GL_TRIANGLES, getVertexCount(), GL_UNSIGNED_INT, 0, gameObjects.size());
+        private final int view;
+        private int vbo;
+        private FloatBuffer data;
 
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        private GameObject[] slotObjects;
+        private int[] slotFrames;
+        private boolean[] dirtySlots;
+        private int dirtyEnd;
+        private int[] freeSlots;
+        private int freeCount;
+        private int frame;
+        private int bufferCapacity;
+
+        private int slotCount;
+        private int uploadedSlots;
+
+        private InstanceBuffer(int view, int capacity) {
+            this.view = view;
+            this.data = MemoryUtil.memCallocFloat(capacity * InstancedMesh.INSTANCE_SIZE_FLOATS);
+
+            slotObjects = new GameObject[capacity];
+            slotFrames = new int[capacity];
+            dirtySlots = new boolean[capacity];
+            freeSlots = new int[capacity];
+        }
+
+        private void assignSlots(List<GameObject> gameObjects) {
+            int frame = ++this.frame;
+            for (GameObject gameObject : gameObjects) {
+                int slot = gameObject.getInstanceSlot(view);
+                if (slot >= 0 && slot < slotCount && slotObjects[slot] == gameObject)
+                    slotFrames[slot] = frame;
+            }
+
+            releaseSlots(frame);
+
+            for (GameObject gameObject : gameObjects) {
+                int slot = gameObject.getInstanceSlot(view);
+                if (slot < 0 || slot >= slotCount || slotObjects[slot] != gameObject) {
+                    slot = allocateSlot();
+                    slotObjects[slot] = gameObject;
+                    slotFrames[slot] = frame;
+                    gameObject.setInstanceSlot(view, slot);
+                }
+            }
+        }
+
+        private void writeSlot(int slot, float[] instanceData) {
+            int offset = InstancedMesh.INSTANCE_SIZE_FLOATS * slot;
+            boolean changed = false;
+            for (int i = 0; i < instanceData.length; i++) {
+                if (data.get(offset + i) != instanceData[i]) {
+                    data.put(offset + i, instanceData[i]);
+                    changed = true;
+                }
+            }
+
+            if (changed)
+                dirtySlots[slot] = true;
+        }
+
+        private void clearSlot(int slot) {
+            int offset = InstancedMesh.INSTANCE_SIZE_FLOATS * slot;
+            for (int i = 0; i < InstancedMesh.INSTANCE_DATA_FLOATS; i++) {
+                if (data.get(offset + i) != 0) {
+                    data.put(offset + i, 0);
+                    markDirty(slot);
+                }
+            }
+        }
+
+        private void moveSlot(int from, int to) {
+            int fromOffset = InstancedMesh.INSTANCE_SIZE_FLOATS * from;
+            int toOffset = InstancedMesh.INSTANCE_SIZE_FLOATS * to;
+            for (int i = 0; i < InstancedMesh.INSTANCE_DATA_FLOATS; i++) {
+                float value = data.get(fromOffset + i);
+                if (data.get(toOffset + i) != value) {
+                    data.put(toOffset + i, value);
+                    markDirty(to);
+                }
+            }
+            clearSlot(from);
+
+            GameObject gameObject = slotObjects[from];
+            slotObjects[to] = gameObject;
+            slotFrames[to] = slotFrames[from];
+            slotObjects[from] = null;
+            gameObject.setInstanceSlot(view, to);
+        }
+
+        private void markDirty(int slot) {
+            dirtySlots[slot] = true;
+            dirtyEnd = Math.max(dirtyEnd, slot + 1);
+        }
+
+        /**
+         * Clears slots of objects which were not rendered in the frame. When most of the slots
+         * are empty, last slots are moved into empty ones, so drawn instance count stays small.
+         */
+        private void releaseSlots(int frame) {
+            int usedSlots = 0;
+            for (int slot = 0; slot < slotCount; slot++) {
+                GameObject gameObject = slotObjects[slot];
+                if (gameObject == null)
+                    continue;
+
+                if (slotFrames[slot] == frame) {
+                    usedSlots++;
+                    continue;
+                }
+
+                if (gameObject.getInstanceSlot(view) == slot)
+                    gameObject.setInstanceSlot(view, -1);
+
+                slotObjects[slot] = null;
+                clearSlot(slot);
+                freeSlots[freeCount++] = slot;
+            }
+
+            if (slotCount - usedSlots > slotCount / 2 && slotCount > InstancedMesh.COMPACT_MIN_SLOTS) {
+                int empty = 0;
+                for (int slot = slotCount - 1; slot >= usedSlots; slot--) {
+                    if (slotObjects[slot] == null)
+                        continue;
+
+                    while (slotObjects[empty] != null)
+                        empty++;
+                    moveSlot(slot, empty);
+                }
+
+                slotCount = usedSlots;
+                freeCount = 0;
+            }
+
+            while (slotCount > 0 && slotObjects[slotCount - 1] == null)
+                slotCount--;
+        }
+
+        private int allocateSlot() {
+            while (freeCount > 0) {
+                int slot = freeSlots[--freeCount];
+                // Free list can contain slots trimmed from the end or already reused
+                if (slot < slotCount && slotObjects[slot] == null)
+                    return slot;
+            }
+
+            if (slotCount == slotObjects.length)
+                growSlots(Math.max(1, slotObjects.length * 2));
+
+            return slotCount++;
+        }
+
+        private void growSlots(int capacity) {
+            int oldCapacity = slotObjects.length;
+
+            data.clear();
+            data = MemoryUtil.memRealloc(data, capacity * InstancedMesh.INSTANCE_SIZE_FLOATS);
+            MemoryUtil.memSet(MemoryUtil.memAddress(data) + (long) oldCapacity * InstancedMesh.INSTANCE_SIZE_BYTES, 0, (long) (capacity - oldCapacity) * InstancedMesh.INSTANCE_SIZE_BYTES);
+
+            slotObjects = Arrays.copyOf(slotObjects, capacity);
+            slotFrames = Arrays.copyOf(slotFrames, capacity);
+            dirtySlots = Arrays.copyOf(dirtySlots, capacity);
+            freeSlots = Arrays.copyOf(freeSlots, capacity);
+        }
+
+        /**
+         * Uploads dirty ranges of instance buffer, ranges separated by only a few clean slots are
+         * merged, so scattered changes don't issue one upload per slot. Buffer has to be bound.
+         */
+        private void upload() {
+            uploadedSlots = 0;
+
+            if (bufferCapacity != slotObjects.length) {
+                // Buffer was grown, whole storage is allocated again
+                data.clear();
+                glBufferData(GL_ARRAY_BUFFER, data, GL_DYNAMIC_DRAW);
+
+                bufferCapacity = slotObjects.length;
+                uploadedSlots = bufferCapacity;
+                Arrays.fill(dirtySlots, false);
+                dirtyEnd = 0;
+                return;
+            }
+
+            int end = Math.max(slotCount, dirtyEnd);
+            int slot = 0;
+            while (slot < end) {
+                if (!dirtySlots[slot]) {
+                    slot++;
+                    continue;
+                }
+
+                int last = slot;
+                for (int i = slot + 1; i < end && i - last <= InstancedMesh.MERGED_CLEAN_SLOTS; i++) {
+                    if (dirtySlots[i])
+                        last = i;
+                }
+                Arrays.fill(dirtySlots, slot, last + 1, false);
+
+                data.limit((last + 1) * InstancedMesh.INSTANCE_SIZE_FLOATS);
+                data.position(slot * InstancedMesh.INSTANCE_SIZE_FLOATS);
+                glBufferSubData(GL_ARRAY_BUFFER, (long) slot * InstancedMesh.INSTANCE_SIZE_BYTES, data);
+
+                uploadedSlots += last + 1 - slot;
+                slot = last + 1;
+            }
+
+            data.clear();
+            dirtyEnd = 0;
+        }
+
+        private void free() {
+            if (data != null) {
+                MemoryUtil.memFree(data);
+                data = null;
+            }
+
+            Arrays.fill(slotObjects, null);
+            slotCount = 0;
+            freeCount = 0;
+        }
     }
 }
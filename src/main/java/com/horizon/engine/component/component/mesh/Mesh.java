@@ -4,12 +4,15 @@ import com.horizon.engine.common.UtilModel;
 import com.horizon.engine.common.UtilResource;
 import com.horizon.engine.component.Component;
 import com.horizon.engine.component.ComponentType;
+import com.horizon.engine.data.ApplicationData;
 import com.horizon.engine.graphics.data.Material;
 import com.horizon.engine.graphics.texture.Texture;
 import com.horizon.engine.graphics.data.Vertex;
 import com.horizon.engine.graphics.object.GameObject;
 import lombok.Getter;
 import lombok.Setter;
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
 import org.lwjgl.system.MemoryUtil;
 
 import java.nio.FloatBuffer;
@@ -25,6 +28,11 @@ import static org.lwjgl.opengl.GL15.*;
 import static org.lwjgl.opengl.GL20.*;
 import static org.lwjgl.opengl.GL30.*;
 
+/**
+ * Mesh data with its GL buffers. In headless mode there is no GL context, so mesh keeps
+ * only CPU side data and every upload, update and delete of GL resources is skipped, same
+ * as in <code>TerrainMesh</code> and <code>DisplayMesh</code>.
+ */
 public class Mesh extends Component {
 
     public static final int MAX_WEIGHTS = 4;
@@ -61,7 +69,13 @@ public class Mesh extends Component {
     protected int jointIndicesVboId;
     protected int weightVboId;
 
+    /**
+     * Bounds of the model space positions, meshes created from mesh data get bounds
+     * calculated when the model was imported.
+     */
     @Getter @Setter private float boundingRadius = 1.0f;
+    @Getter private final Vector3f boundsMin = new Vector3f(-1.0f);
+    @Getter private final Vector3f boundsMax = new Vector3f(1.0f);
 
     public Mesh(){
         super(ComponentType.MESH);
@@ -137,6 +151,10 @@ public class Mesh extends Component {
         try {
             vertexCount = positions.length / 2;
             vboIdList = new LinkedList<>();
+
+            if (ApplicationData.isHeadless())
+                return;
+
             vaoId = glGenVertexArrays();
 
             glBindVertexArray(vaoId);
@@ -165,6 +183,10 @@ public class Mesh extends Component {
         try {
             vertexCount = indices.length;
             vboIdList = new LinkedList<>();
+
+            if (ApplicationData.isHeadless())
+                return;
+
             vaoId = glGenVertexArrays();
 
             glBindVertexArray(vaoId);
@@ -283,7 +305,32 @@ public class Mesh extends Component {
         stop();
     }
 
+    /**
+     * @param boundsMin - Minimum of the model space bounding box.
+     * @param boundsMax - Maximum of the model space bounding box.
+     * @param boundingRadius - Radius of the bounding sphere centered in the model origin.
+     */
+    public void setBounds(Vector3fc boundsMin, Vector3fc boundsMax, float boundingRadius) {
+        this.boundsMin.set(boundsMin);
+        this.boundsMax.set(boundsMax);
+        this.boundingRadius = boundingRadius;
+    }
+
+    /**
+     * Calculates bounds from current positions.
+     */
+    public void updateBounds() {
+        boundingRadius = UtilModel.calculateBounds(positions, boundsMin, boundsMax);
+    }
+
     public void updatePositions(float[] positions, int size) {
+        if (ApplicationData.isHeadless()) {
+            this.positions = positions;
+            if (size == 3)
+                updateBounds();
+            return;
+        }
+
         try {
             // Activate array buffer and set positions.
             glBindBuffer(GL_ARRAY_BUFFER, positionVboId);
@@ -293,6 +340,8 @@ public class Mesh extends Component {
             glBindBuffer(GL_ARRAY_BUFFER, 0);
         } finally {
             this.positions = positions;
+            if (size == 3)
+                updateBounds();
         }
     }
 
@@ -313,6 +362,9 @@ public class Mesh extends Component {
     }
 
     public void cleanUp() {
+        if (ApplicationData.isHeadless())
+            return;
+
         glDisableVertexAttribArray(0);
 
         // Delete the VBOs
@@ -332,7 +384,38 @@ public class Mesh extends Component {
         glDeleteVertexArrays(vaoId);
     }
 
+    /**
+     * Releases GPU buffers of this mesh, but keeps its CPU data and texture, so mesh
+     * can be uploaded again with <code>upload()</code>.
+     */
+    public void releaseBuffers() {
+        deleteBuffers();
+
+        vboIdList = new LinkedList<>();
+        vaoId = 0;
+        positionVboId = 0;
+        textureVboId = 0;
+        normalsVboId = 0;
+        indicesVboId = 0;
+        jointIndicesVboId = 0;
+        weightVboId = 0;
+    }
+
+    /**
+     * Uploads CPU data of this mesh into new GPU buffers. Does nothing if mesh
+     * still has its buffers.
+     */
+    public void upload() {
+        if (vaoId != 0 || indices == null)
+            return;
+
+        render(positions, textureCoordinates, normals, indices, jointIndices, weights);
+    }
+
     public void deleteBuffers() {
+        if (ApplicationData.isHeadless())
+            return;
+
         // Delete the VBOs
         glBindBuffer(GL_ARRAY_BUFFER, 0);
         for (int vboId : vboIdList) {
@@ -345,6 +428,9 @@ public class Mesh extends Component {
     }
 
     public void cleanUpTexture(){
+        if (ApplicationData.isHeadless())
+            return;
+
         // Check if texture is not null.
         Texture texture = material.getTexture();
         if (texture != null) {
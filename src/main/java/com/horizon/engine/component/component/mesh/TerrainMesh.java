@@ -4,6 +4,7 @@ import com.horizon.engine.common.UtilModel;
 import com.horizon.engine.common.UtilResource;
 import com.horizon.engine.component.Component;
 import com.horizon.engine.component.ComponentType;
+import com.horizon.engine.data.ApplicationData;
 import com.horizon.engine.graphics.data.Material;
 import com.horizon.engine.graphics.object.GameObject;
 import com.horizon.engine.graphics.texture.Texture;
@@ -79,6 +80,10 @@ public class TerrainMesh extends Component {
         try {
             vertexCount = indices.length;
             vboIdList = new LinkedList<>();
+
+            if (ApplicationData.isHeadless())
+                return;
+
             vaoId = glGenVertexArrays();
 
             glBindVertexArray(vaoId);
@@ -171,6 +176,11 @@ public class TerrainMesh extends Component {
     }
 
     public void updatePositions(float[] positions, int size) {
+        if (ApplicationData.isHeadless()) {
+            this.positions = positions;
+            return;
+        }
+
         try {
             // Activate array buffer and set positions.
             glBindBuffer(GL_ARRAY_BUFFER, positionVboId);
@@ -200,6 +210,9 @@ public class TerrainMesh extends Component {
     }
 
     public void cleanUp() {
+        if (ApplicationData.isHeadless())
+            return;
+
         glDisableVertexAttribArray(0);
 
         // Delete the VBOs
@@ -220,6 +233,9 @@ public class TerrainMesh extends Component {
     }
 
     public void deleteBuffers() {
+        if (ApplicationData.isHeadless())
+            return;
+
         // Delete the VBOs
         glBindBuffer(GL_ARRAY_BUFFER, 0);
         for (int vboId : vboIdList) {
@@ -232,6 +248,9 @@ public class TerrainMesh extends Component {
     }
 
     public void cleanUpTexture(){
+        if (ApplicationData.isHeadless())
+            return;
+
         // Check if texture is not null.
         Texture texture = material.getTexture();
         if (texture != null) {
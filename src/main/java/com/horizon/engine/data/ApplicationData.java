@@ -18,6 +18,12 @@ public class ApplicationData {
     @Getter @Setter private static boolean compatibleProfile = true;
     @Getter @Setter private static boolean backFaceCulling = false;
     @Getter @Setter private static boolean frustumCulling = true;
+    @Getter @Setter private static boolean boundingVolumeCulling = true;
+    @Getter @Setter private static boolean cullingCache = true;
+    @Getter @Setter private static boolean occlusionCulling = false;
+    @Getter @Setter private static int occlusionBufferWidth = 256;
+    @Getter @Setter private static int occlusionBufferHeight = 128;
+    @Getter @Setter private static int maxOccluders = 32;
     @Getter @Setter private static boolean antialiasing = true;
 
     //Camera settings
@@ -27,6 +33,28 @@ public class ApplicationData {
     @Getter @Setter private static Random random = new Random();
     @Getter @Setter private static boolean showFPS = true;
     @Getter @Setter private static boolean developerMenu = true;
+    @Getter @Setter private static boolean pipelinedRendering = false;
+    @Getter @Setter private static int jobWorkerThreads = 0;
+    @Getter @Setter private static boolean parallelStartup = true;
+    @Getter @Setter private static boolean entityStorage = false;
+    @Getter @Setter private static String sceneSnapshot = null;
+
+    //Simulation
+    @Getter @Setter private static int updatesPerSecond = 30;
+    @Getter @Setter private static int maxCatchUpSteps = 5;
+    @Getter @Setter private static boolean renderInterpolation = true;
+    @Getter @Setter private static float backgroundWorkBudget = 2.0f;
+    @Getter @Setter private static float sceneUploadBudget = 2.0f;
+
+    //World partition
+    @Getter @Setter private static boolean worldPartition = false;
+    @Getter @Setter private static float partitionCellSize = 100.0f;
+    @Getter @Setter private static float partitionStreamingRadius = 400.0f;
+
+    //Headless mode
+    @Getter @Setter private static boolean headless = false;
+    @Getter @Setter private static int headlessUpdateRate = 0;
+    @Getter @Setter private static long headlessTickLimit = 0;
 
     //Color Pallet
     @Getter @Setter private static Color mainBackground = new Color(50.0f, 50.0f, 50.0f, 200.0f);
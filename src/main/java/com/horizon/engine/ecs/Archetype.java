@@ -0,0 +1,118 @@
+package com.horizon.engine.ecs;
+
+import com.horizon.engine.component.ComponentType;
+import com.horizon.engine.graphics.object.GameObject;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Archetype stores all entities with the same set of components. Every entity
+ * value is kept in its own dense primitive array, so passes over many entities
+ * read contiguous memory instead of following references of every game object.
+ *
+ * @apiNote Arrays are exposed directly for hot loops. Only first <code>getSize()</code>
+ *          elements are valid and arrays are replaced when the archetype grows, so
+ *          never keep them between frames.
+ *
+ * @author Horizon
+ */
+@Getter
+public class Archetype {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final EntityStorage storage;
+    private final int componentMask;
+    private int size;
+
+    private GameObject[] objects;
+
+    //Transform, rotation and scale are folded into the bounding radius
+    private float[] positionX;
+    private float[] positionY;
+    private float[] positionZ;
+
+    //Render data
+    private float[] boundingRadius;
+    private int[] meshIds;
+    private int[] flags;
+
+    Archetype(EntityStorage storage, int componentMask) {
+        this.storage = storage;
+        this.componentMask = componentMask;
+
+        this.objects = new GameObject[INITIAL_CAPACITY];
+
+        this.positionX = new float[INITIAL_CAPACITY];
+        this.positionY = new float[INITIAL_CAPACITY];
+        this.positionZ = new float[INITIAL_CAPACITY];
+
+        this.boundingRadius = new float[INITIAL_CAPACITY];
+        this.meshIds = new int[INITIAL_CAPACITY];
+        this.flags = new int[INITIAL_CAPACITY];
+    }
+
+    public boolean hasComponent(ComponentType componentType) {
+        return (componentMask & EntityStorage.getComponentBit(componentType)) != 0;
+    }
+
+    public boolean hasFlag(int index, int flag) {
+        return (flags[index] & flag) != 0;
+    }
+
+    public void setFlag(int index, int flag, boolean value) {
+        flags[index] = value ? flags[index] | flag : flags[index] & ~flag;
+    }
+
+    /**
+     * @return - Index of the new entity.
+     */
+    int add(GameObject gameObject) {
+        if (size == objects.length)
+            grow();
+
+        objects[size] = gameObject;
+        meshIds[size] = -1;
+        flags[size] = 0;
+        return size++;
+    }
+
+    /**
+     * Removes entity by moving the last one into its place.
+     * @return - Game object moved into removed index, or null if removed entity was the last one.
+     */
+    GameObject remove(int index) {
+        int last = --size;
+        GameObject moved = null;
+
+        if (index != last) {
+            moved = objects[last];
+            objects[index] = moved;
+
+            positionX[index] = positionX[last];
+            positionY[index] = positionY[last];
+            positionZ[index] = positionZ[last];
+
+            boundingRadius[index] = boundingRadius[last];
+            meshIds[index] = meshIds[last];
+            flags[index] = flags[last];
+        }
+
+        objects[last] = null;
+        return moved;
+    }
+
+    private void grow() {
+        int capacity = objects.length * 2;
+        objects = Arrays.copyOf(objects, capacity);
+
+        positionX = Arrays.copyOf(positionX, capacity);
+        positionY = Arrays.copyOf(positionY, capacity);
+        positionZ = Arrays.copyOf(positionZ, capacity);
+
+        boundingRadius = Arrays.copyOf(boundingRadius, capacity);
+        meshIds = Arrays.copyOf(meshIds, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+    }
+}
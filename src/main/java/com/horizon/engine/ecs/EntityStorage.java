@@ -0,0 +1,172 @@
+package com.horizon.engine.ecs;
+
+import com.horizon.engine.component.Component;
+import com.horizon.engine.component.ComponentType;
+import com.horizon.engine.component.component.mesh.Mesh;
+import com.horizon.engine.graphics.data.Transform;
+import com.horizon.engine.graphics.object.GameObject;
+import lombok.Getter;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entity storage keeps transform and render data of game objects in struct of arrays
+ * layout, grouped into archetypes by the set of components. Game object registered in the
+ * storage only holds its archetype and index, and writes every transform change through.
+ *
+ * @apiNote Transform of the game object is still the authoring copy, so transform has to be
+ *          changed with game object setters, not by changing its vectors directly. Storage
+ *          is not thread-safe, it belongs to the thread that changes the scene.
+ *
+ * @author Horizon
+ */
+public class EntityStorage {
+
+    public static final int FLAG_INSIDE_FRUSTUM = 1;
+    public static final int FLAG_DISABLE_FRUSTUM_CULLING = 1 << 1;
+
+    private final Map<Integer, Archetype> archetypes;
+    private final List<Archetype> archetypeList;
+    private final List<Archetype> archetypeView;
+
+    @Getter private int entityCount;
+
+    public EntityStorage() {
+        this.archetypes = new HashMap<>();
+        this.archetypeList = new ArrayList<>();
+        this.archetypeView = Collections.unmodifiableList(archetypeList);
+    }
+
+    /**
+     * Registers game object in the archetype matching its components.
+     * @param gameObject - Game object that will be stored.
+     */
+    public void add(GameObject gameObject) {
+        if (gameObject.getEntityArchetype() != null)
+            return;
+
+        insert(gameObject, getArchetype(getComponentMask(gameObject)));
+        entityCount++;
+    }
+
+    /**
+     * Removes game object from the storage, does nothing if it is not stored.
+     */
+    public void remove(GameObject gameObject) {
+        if (gameObject.getEntityArchetype() == null)
+            return;
+
+        detach(gameObject);
+        entityCount--;
+    }
+
+    /**
+     * Moves game object into other archetype after its components were changed.
+     */
+    public void refresh(GameObject gameObject) {
+        Archetype archetype = gameObject.getEntityArchetype();
+        if (archetype == null)
+            return;
+
+        int componentMask = getComponentMask(gameObject);
+        if (archetype.getComponentMask() == componentMask) {
+            sync(gameObject);
+            return;
+        }
+
+        boolean insideFrustum = archetype.hasFlag(gameObject.getEntityIndex(), FLAG_INSIDE_FRUSTUM);
+        detach(gameObject);
+        insert(gameObject, getArchetype(componentMask));
+        gameObject.getEntityArchetype().setFlag(gameObject.getEntityIndex(), FLAG_INSIDE_FRUSTUM, insideFrustum);
+    }
+
+    /**
+     * Copies transform and mesh data of stored game object into its arrays.
+     */
+    public static void sync(GameObject gameObject) {
+        Archetype archetype = gameObject.getEntityArchetype();
+        if (archetype == null)
+            return;
+
+        int index = gameObject.getEntityIndex();
+        Transform transform = gameObject.getTransform();
+
+        // Storage holds world values, local vectors are the same for root objects
+        Vector3f position = transform.getParent() == null ? transform.getPosition() : transform.getWorldPosition(new Vector3f());
+        archetype.getPositionX()[index] = position.x();
+        archetype.getPositionY()[index] = position.y();
+        archetype.getPositionZ()[index] = position.z();
+
+        Component component = gameObject.getComponent(ComponentType.MESH);
+        if (component instanceof Mesh) {
+            Mesh mesh = (Mesh) component;
+            archetype.getMeshIds()[index] = mesh.getMeshId();
+            archetype.getBoundingRadius()[index] = mesh.getBoundingRadius() * transform.getWorldMaxScale();
+        } else {
+            archetype.getMeshIds()[index] = -1;
+            archetype.getBoundingRadius()[index] = 0.0f;
+        }
+    }
+
+    /**
+     * @return - All archetypes of this storage, including the empty ones.
+     */
+    public List<Archetype> getArchetypes() {
+        return archetypeView;
+    }
+
+    public static int getComponentBit(ComponentType componentType) {
+        return 1 << componentType.ordinal();
+    }
+
+    public static int getComponentMask(GameObject gameObject) {
+        int mask = 0;
+        for (ComponentType componentType : gameObject.getComponents().keySet()) {
+            mask |= getComponentBit(componentType);
+        }
+
+        return mask;
+    }
+
+    private Archetype getArchetype(int componentMask) {
+        Archetype archetype = archetypes.get(componentMask);
+        if (archetype == null) {
+            archetype = new Archetype(this, componentMask);
+            archetypes.put(componentMask, archetype);
+            archetypeList.add(archetype);
+        }
+
+        return archetype;
+    }
+
+    private void insert(GameObject gameObject, Archetype archetype) {
+        boolean disableFrustumCulling = gameObject.isDisableFrustumCulling();
+
+        int index = archetype.add(gameObject);
+        gameObject.setEntityArchetype(archetype);
+        gameObject.setEntityIndex(index);
+
+        archetype.setFlag(index, FLAG_DISABLE_FRUSTUM_CULLING, disableFrustumCulling);
+        sync(gameObject);
+    }
+
+    private void detach(GameObject gameObject) {
+        Archetype archetype = gameObject.getEntityArchetype();
+        int index = gameObject.getEntityIndex();
+
+        // Game object keeps last stored flags, so it behaves the same after removal
+        boolean insideFrustum = archetype.hasFlag(index, FLAG_INSIDE_FRUSTUM);
+        gameObject.setEntityArchetype(null);
+        gameObject.setEntityIndex(-1);
+        gameObject.setInsideFrustum(insideFrustum);
+
+        GameObject moved = archetype.remove(index);
+        if (moved != null)
+            moved.setEntityIndex(index);
+    }
+}
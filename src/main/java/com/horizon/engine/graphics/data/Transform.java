@@ -1,6 +1,12 @@
 package com.horizon.engine.graphics.data;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.joml.Matrix4f;
 import org.joml.Quaternionf;
 import org.joml.Vector3f;
 
@@ -10,6 +16,43 @@ public @Data class Transform {
     private final Vector3f position;
     private final Quaternionf rotation;
 
+    /**
+     * State from the start of the last simulation step, used for interpolation
+     * between steps when rendering.
+     */
+    private final Vector3f previousScale;
+    private final Vector3f previousPosition;
+    private final Quaternionf previousRotation;
+
+    /**
+     * Set by every change and cleared when state is stored as previous one, so static
+     * transforms are never compared with their previous state.
+     */
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude private boolean moving;
+
+    /**
+     * Increased on every change of the transform, so caches built from it know when they
+     * are stale. Vectors changed directly have to be followed by <code>markChanged()</code>.
+     */
+    @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude private long version;
+
+    @Getter(AccessLevel.NONE) @EqualsAndHashCode.Exclude @ToString.Exclude private final Matrix4f modelMatrix = new Matrix4f();
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude private long modelMatrixVersion = -1;
+
+    /**
+     * Parent transform, position, rotation and scale of this transform are relative to it.
+     * Set through <code>GameObject.setParent()</code>.
+     */
+    @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude @ToString.Exclude private Transform parent;
+
+    /**
+     * Increased whenever model matrix is rebuilt, children compare it with the value
+     * their matrix was built from, so they are rebuilt only when some ancestor changed.
+     */
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude private long worldVersion;
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude private long parentWorldVersion = -1;
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude @ToString.Exclude private Matrix4f localMatrix;
+
     public Transform() {
         this(new Vector3f(1, 1, 1), new Vector3f(), new Quaternionf());
     }
@@ -18,6 +61,96 @@ public @Data class Transform {
         this.scale = scale;
         this.position = position;
         this.rotation = rotation;
+
+        this.previousScale = new Vector3f(scale);
+        this.previousPosition = new Vector3f(position);
+        this.previousRotation = new Quaternionf(rotation);
+    }
+
+    /**
+     * Stores current state as previous one. Should be called before every simulation step.
+     */
+    public void storePrevious() {
+        previousScale.set(scale);
+        previousPosition.set(position);
+        previousRotation.set(rotation);
+        moving = false;
+    }
+
+    public void markChanged() {
+        version++;
+        moving = true;
+    }
+
+    public void setParent(Transform parent) {
+        this.parent = parent;
+        this.parentWorldVersion = -1;
+        this.modelMatrixVersion = -1;
+
+        if (parent != null && localMatrix == null)
+            localMatrix = new Matrix4f();
+    }
+
+    /**
+     * Model matrix is cached and rebuilt only when this transform or any of its ancestors
+     * was changed since last call. Unchanged ancestors are only checked, not rebuilt.
+     * @return - World model matrix of this transform, must not be modified.
+     */
+    public Matrix4f getModelMatrix() {
+        if (parent == null) {
+            if (modelMatrixVersion != version) {
+                modelMatrix.translationRotateScale(position.x(), position.y(), position.z(), rotation.x(), rotation.y(), rotation.z(), rotation.w(), scale.x(), scale.y(), scale.z());
+                modelMatrixVersion = version;
+                worldVersion++;
+            }
+
+            return modelMatrix;
+        }
+
+        Matrix4f parentMatrix = parent.getModelMatrix();
+        if (modelMatrixVersion != version || parentWorldVersion != parent.worldVersion) {
+            localMatrix.translationRotateScale(position.x(), position.y(), position.z(), rotation.x(), rotation.y(), rotation.z(), rotation.w(), scale.x(), scale.y(), scale.z());
+            parentMatrix.mulAffine(localMatrix, modelMatrix);
+
+            modelMatrixVersion = version;
+            parentWorldVersion = parent.worldVersion;
+            worldVersion++;
+        }
+
+        return modelMatrix;
+    }
+
+    public Vector3f getWorldPosition(Vector3f destination) {
+        return parent == null ? destination.set(position) : getModelMatrix().getTranslation(destination);
+    }
+
+    public Vector3f getWorldScale(Vector3f destination) {
+        return parent == null ? destination.set(scale) : getModelMatrix().getScale(destination);
+    }
+
+    public Quaternionf getWorldRotation(Quaternionf destination) {
+        return parent == null ? destination.set(rotation) : getModelMatrix().getNormalizedRotation(destination);
+    }
+
+    /**
+     * @return - Largest world scale of all axes, used for bounding spheres.
+     */
+    public float getWorldMaxScale() {
+        if (parent == null)
+            return Math.max(scale.x(), Math.max(scale.y(), scale.z()));
+
+        Matrix4f matrix = getModelMatrix();
+        float scaleX = matrix.m00() * matrix.m00() + matrix.m01() * matrix.m01() + matrix.m02() * matrix.m02();
+        float scaleY = matrix.m10() * matrix.m10() + matrix.m11() * matrix.m11() + matrix.m12() * matrix.m12();
+        float scaleZ = matrix.m20() * matrix.m20() + matrix.m21() * matrix.m21() + matrix.m22() * matrix.m22();
+        return (float) Math.sqrt(Math.max(scaleX, Math.max(scaleY, scaleZ)));
+    }
+
+    /**
+     * @return - True if transform or any of its ancestors was changed during last simulation step.
+     */
+    public boolean isMoving() {
+        return moving || (parent != null && parent.isMoving());
     }
 
     public float getScaleX() {
@@ -1,7 +1,12 @@
 package com.horizon.engine.graphics.data;
 
 import com.horizon.engine.graphics.object.Camera;
+import com.horizon.engine.graphics.hud.HudObject;
 import com.horizon.engine.graphics.object.GameObject;
+import com.horizon.engine.graphics.render.snapshot.RenderSnapshot;
+import com.horizon.engine.job.JobSystem;
+import lombok.Getter;
+import lombok.Setter;
 import org.joml.Matrix4f;
 import org.joml.Quaternionf;
 import org.joml.Vector3f;
@@ -16,6 +21,25 @@ public class Transformation {
     private final Matrix4f ortho2DMatrix;
     private final Matrix4f orthoModelMatrix;
 
+    /**
+     * When snapshot is set, model matrices are taken from it instead of the
+     * live game object transforms. Objects which are not in the snapshot are
+     * not drawn, except hud objects owned by the render thread.
+     */
+    @Getter @Setter private RenderSnapshot renderSnapshot;
+
+    /**
+     * Blend factor between previous and current simulation step. Value 1 means
+     * that current state is rendered without any interpolation.
+     */
+    @Getter @Setter private float interpolationAlpha = 1.0f;
+
+    /**
+     * Job system used by render passes to split work across cores. Can be null,
+     * then everything runs on the render thread.
+     */
+    @Getter @Setter private JobSystem jobSystem;
+
     public Transformation() {
         projectionMatrix = new Matrix4f();
         modelMatrix = new Matrix4f();
@@ -44,11 +68,93 @@ public class Transformation {
         return ortho2DMatrix.setOrtho2D(left, right, bottom, top);
     }
 
+    /**
+     * Matrix of static object is the cached matrix of its transform, so it is not rebuilt
+     * in every pass.
+     * @param gameObject - Game object whose matrix is built.
+     * @return - Model matrix, must not be modified.
+     */
     public Matrix4f buildModelMatrix(GameObject gameObject) {
-        Vector3f position = gameObject.getPosition();
-        Vector3f scale = gameObject.getTransform().getScale();
-        Quaternionf rotation = gameObject.getTransform().getRotation();
-        return modelMatrix.translationRotateScale(position.x(), position.y(), position.z(), rotation.x(), rotation.y(), rotation.z(), rotation.w(), scale.x(), scale.y(), scale.z());
+        if (renderSnapshot != null && !(gameObject instanceof HudObject))
+            return buildSnapshotModelMatrix(gameObject, modelMatrix);
+
+        if (interpolationAlpha < 1.0f && gameObject.getTransform().isMoving())
+            return buildInterpolatedModelMatrix(gameObject.getTransform(), modelMatrix);
+
+        return gameObject.getTransform().getModelMatrix();
+    }
+
+    /**
+     * Builds model matrix into inserted matrix. Unlike <code>buildModelMatrix(GameObject)</code>
+     * this method does not write shared matrix of this class. It can be called from job workers
+     * only after <code>Scene.updateWorldTransforms()</code>, then cached world matrices are
+     * only read.
+     * @param gameObject - Game object whose matrix is built.
+     * @param destination - Matrix where result is stored.
+     * @return - Destination matrix.
+     */
+    public Matrix4f buildModelMatrix(GameObject gameObject, Matrix4f destination) {
+        if (renderSnapshot != null && !(gameObject instanceof HudObject))
+            return buildSnapshotModelMatrix(gameObject, destination);
+
+        if (interpolationAlpha < 1.0f && gameObject.getTransform().isMoving())
+            return buildInterpolatedModelMatrix(gameObject.getTransform(), destination);
+
+        return destination.set(gameObject.getTransform().getModelMatrix());
+    }
+
+    /**
+     * Live transform is never read here, simulation thread can be changing it. Object
+     * instantiated after the capture gets zero matrix, so nothing of it is rasterized.
+     */
+    private Matrix4f buildSnapshotModelMatrix(GameObject gameObject, Matrix4f destination) {
+        int index = renderSnapshot.indexOf(gameObject);
+        return index >= 0 ? renderSnapshot.getModelMatrix(index, destination) : destination.zero();
+    }
+
+    /**
+     * Child transform is blended in parent space and multiplied by blended parent matrix,
+     * so attached objects move together with their parent.
+     */
+    private Matrix4f buildInterpolatedModelMatrix(Transform transform, Matrix4f destination) {
+        Transform parent = transform.getParent();
+        if (parent == null)
+            return buildInterpolatedLocalMatrix(transform, destination);
+
+        Matrix4f localMatrix = buildInterpolatedLocalMatrix(transform, new Matrix4f());
+        Matrix4f parentMatrix = parent.isMoving() ? buildInterpolatedModelMatrix(parent, new Matrix4f()) : parent.getModelMatrix();
+        return parentMatrix.mulAffine(localMatrix, destination);
+    }
+
+    private Matrix4f buildInterpolatedLocalMatrix(Transform transform, Matrix4f destination) {
+        float alpha = interpolationAlpha;
+
+        Vector3f previousPosition = transform.getPreviousPosition();
+        Vector3f position = transform.getPosition();
+        float positionX = previousPosition.x() + (position.x() - previousPosition.x()) * alpha;
+        float positionY = previousPosition.y() + (position.y() - previousPosition.y()) * alpha;
+        float positionZ = previousPosition.z() + (position.z() - previousPosition.z()) * alpha;
+
+        Vector3f previousScale = transform.getPreviousScale();
+        Vector3f scale = transform.getScale();
+        float scaleX = previousScale.x() + (scale.x() - previousScale.x()) * alpha;
+        float scaleY = previousScale.y() + (scale.y() - previousScale.y()) * alpha;
+        float scaleZ = previousScale.z() + (scale.z() - previousScale.z()) * alpha;
+
+        // Normalized lerp of rotations, taking the shorter path
+        Quaternionf previousRotation = transform.getPreviousRotation();
+        Quaternionf rotation = transform.getRotation();
+        float dot = previousRotation.x() * rotation.x() + previousRotation.y() * rotation.y() + previousRotation.z() * rotation.z() + previousRotation.w() * rotation.w();
+        float sign = dot < 0.0f ? -1.0f : 1.0f;
+        float rotationX = previousRotation.x() + (sign * rotation.x() - previousRotation.x()) * alpha;
+        float rotationY = previousRotation.y() + (sign * rotation.y() - previousRotation.y()) * alpha;
+        float rotationZ = previousRotation.z() + (sign * rotation.z() - previousRotation.z()) * alpha;
+        float rotationW = previousRotation.w() + (sign * rotation.w() - previousRotation.w()) * alpha;
+        float inverseLength = (float) (1.0 / Math.sqrt(rotationX * rotationX + rotationY * rotationY + rotationZ * rotationZ + rotationW * rotationW));
+
+        return destination.translationRotateScale(positionX, positionY, positionZ,
+                rotationX * inverseLength, rotationY * inverseLength, rotationZ * inverseLength, rotationW * inverseLength,
+                scaleX, scaleY, scaleZ);
     }
 
     public Matrix4f buildModelViewMatrix(GameObject gameItem, Matrix4f viewMatrix) {
@@ -1,18 +1,33 @@
 package com.horizon.engine.graphics.object;
 
 import com.horizon.engine.GameEngine;
+import com.horizon.engine.common.HandleTable;
 import com.horizon.engine.common.UtilModel;
 import com.horizon.engine.component.Component;
 import com.horizon.engine.component.ComponentType;
 import com.horizon.engine.component.component.mesh.Mesh;
+import com.horizon.engine.ecs.Archetype;
+import com.horizon.engine.ecs.EntityStorage;
 import com.horizon.engine.graphics.data.Transform;
 import com.horizon.engine.graphics.object.data.GameObjectTag;
+import com.horizon.engine.graphics.object.scene.BoundingVolumeHierarchy;
+import com.horizon.engine.graphics.object.scene.Scene;
+import com.horizon.engine.graphics.object.scene.SceneTagIndex;
+import com.horizon.engine.graphics.object.scene.WorldPartition;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import org.joml.Quaternionf;
 import org.joml.Vector3f;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -23,8 +38,28 @@ public @Data abstract class GameObject {
 
     private String gameObjectName;
 
+    /**
+     * Generational handle of this object in its scene, invalid when object is not instantiated.
+     */
+    private int handle = HandleTable.INVALID_HANDLE;
+
+    /**
+     * Name of the prefab this object was created from, null for objects created directly.
+     */
+    private String prefabName;
+
     private Map<ComponentType, Component> components = new LinkedHashMap<ComponentType, Component>();
-    private List<GameObjectTag> gameObjectTags = new LinkedList<>();
+
+    //Hierarchy
+    @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude @ToString.Exclude private GameObject parent;
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude @ToString.Exclude private List<GameObject> children = new ArrayList<>();
+
+    /**
+     * Bit mask of <code>GameObjectTag</code> masks, changed only by <code>addTag()</code>
+     * and <code>removeTag()</code>, so scene tag index stays valid.
+     */
+    @Setter(AccessLevel.NONE) private long tagMask;
+    private SceneTagIndex tagIndex;
 
     private boolean selected;
 
@@ -33,6 +68,48 @@ public @Data abstract class GameObject {
     private boolean disableFrustumCulling;
     private boolean insideFrustum;
 
+    /**
+     * Large solid object which hides objects behind it in occlusion culling.
+     */
+    private boolean occluder;
+
+    /**
+     * Slots of this object in the instance buffers of its instanced mesh indexed by view,
+     * slot is -1 when object has no slot in the view.
+     */
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude @ToString.Exclude private int[] instanceSlots;
+
+    /**
+     * Leaf of this object in the bounding volume hierarchy of its scene, hierarchy is null
+     * when object is not stored.
+     */
+    @EqualsAndHashCode.Exclude @ToString.Exclude private BoundingVolumeHierarchy boundingVolumes;
+    private int boundingVolumeProxy = -1;
+
+    /**
+     * Location of this object in the entity storage, archetype is null when object
+     * is not stored.
+     */
+    private Archetype entityArchetype;
+    private int entityIndex = -1;
+
+    /**
+     * Scene this object is instantiated in, null when object is not part of any scene.
+     */
+    @EqualsAndHashCode.Exclude @ToString.Exclude private Scene scene;
+
+    /**
+     * True while the object is queued in its scene for world matrix update or for storing
+     * of its previous transform, so it is queued only once.
+     */
+    @EqualsAndHashCode.Exclude private boolean changeQueued;
+    @EqualsAndHashCode.Exclude private boolean movingQueued;
+
+    /**
+     * Partition which streams this object, null when object is not streamed.
+     */
+    @EqualsAndHashCode.Exclude @ToString.Exclude private WorldPartition worldPartition;
+
     public GameObject(GameEngine gameEngine, String gameObjectName, Mesh mesh) {
         this.gameEngine = gameEngine;
         this.gameObjectName = gameObjectName;
@@ -48,6 +125,92 @@ public @Data abstract class GameObject {
 
     public abstract void update();
 
+    /**
+     * Has to be called after transform was changed directly, setters of this class call it.
+     */
+    public void onTransformChanged() {
+        transform.markChanged();
+        if (scene != null)
+            scene.markTransformChanged(this);
+
+        onWorldTransformChanged();
+    }
+
+    /**
+     * World matrices are rebuilt lazily, only data copied out of the transform has to be
+     * updated for the whole subtree.
+     */
+    private void onWorldTransformChanged() {
+        EntityStorage.sync(this);
+        if (boundingVolumes != null)
+            boundingVolumes.markMoved(this);
+        if (worldPartition != null)
+            worldPartition.markMoved(this);
+
+        for (GameObject child : children) {
+            child.onWorldTransformChanged();
+        }
+    }
+
+    public void setTransform(Transform transform) {
+        this.transform = transform;
+        transform.setParent(parent != null ? parent.getTransform() : null);
+
+        for (GameObject child : children) {
+            child.getTransform().setParent(transform);
+        }
+
+        onTransformChanged();
+    }
+
+    /**
+     * Attaches this object to the parent. Transform of this object becomes relative to the
+     * parent transform, so the object moves with its parent.
+     * @param parent - New parent or null to detach this object.
+     */
+    public void setParent(GameObject parent) {
+        if (this.parent == parent)
+            return;
+
+        for (GameObject ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+            if (ancestor == this)
+                throw new IllegalArgumentException("Game object " + gameObjectName + " can't be its own ancestor.");
+        }
+
+        if (this.parent != null)
+            this.parent.children.remove(this);
+
+        this.parent = parent;
+        if (parent != null)
+            parent.children.add(this);
+
+        transform.setParent(parent != null ? parent.getTransform() : null);
+        if (scene != null)
+            scene.markTransformChanged(this);
+
+        onWorldTransformChanged();
+    }
+
+    public void addChild(GameObject child) {
+        child.setParent(this);
+    }
+
+    public void removeChild(GameObject child) {
+        if (child.parent == this)
+            child.setParent(null);
+    }
+
+    public List<GameObject> getChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
+    /**
+     * @return - True if world partition parked this object, so its mesh has no GPU buffers.
+     */
+    public boolean isParked() {
+        return worldPartition != null && worldPartition.isParked(this);
+    }
+
     public Vector3f getPosition() {
         return transform.getPosition();
     }
@@ -70,6 +233,21 @@ public @Data abstract class GameObject {
 
     public GameObject setPosition(float x, float y, float z) {
         this.transform.getPosition().set(x, y, z);
+        onTransformChanged();
+        return this;
+    }
+
+    /**
+     * Moves object without interpolation, so it is not rendered on the way from its
+     * previous position.
+     */
+    public GameObject teleport(Vector3f position) {
+        return teleport(position.x(), position.y(), position.z());
+    }
+
+    public GameObject teleport(float x, float y, float z) {
+        setPosition(x, y, z);
+        transform.storePrevious();
         return this;
     }
 
@@ -80,27 +258,61 @@ public @Data abstract class GameObject {
     public GameObject setScale(float x, float y, float z) {
         this.transform.getScale().set(x, y, z);
 
-        if(!getComponents().containsKey(ComponentType.MESH))
-            return this;
-
-        Mesh mesh = getMesh();
-        mesh.updatePositions(UtilModel.upScalePositions(mesh.getPositions(), x, y, z), 3);
+        // Positions are scaled first, so bounds read by the change listeners are current
+        if(getComponents().containsKey(ComponentType.MESH)) {
+            Mesh mesh = getMesh();
+            mesh.updatePositions(UtilModel.upScalePositions(mesh.getPositions(), x, y, z), 3);
+        }
 
+        onTransformChanged();
         return this;
     }
 
     public GameObject setRotation(Quaternionf q) {
         this.transform.getRotation().set(q);
+        onTransformChanged();
         return this;
     }
 
     public GameObject setRotation(float x, float y, float z) {
         this.transform.getRotation().rotateXYZ((float) Math.toRadians(x), (float) Math.toRadians(y), (float) Math.toRadians(z));
+        onTransformChanged();
         return this;
     }
 
     public boolean hasTag(GameObjectTag tag) {
-        return gameObjectTags.contains(tag);
+        return (tagMask & tag.getMask()) != 0;
+    }
+
+    public void addTag(GameObjectTag tag) {
+        if (hasTag(tag))
+            return;
+
+        tagMask |= tag.getMask();
+        if (tagIndex != null)
+            tagIndex.onTagChanged(this, tag, true);
+    }
+
+    public void removeTag(GameObjectTag tag) {
+        if (!hasTag(tag))
+            return;
+
+        tagMask &= ~tag.getMask();
+        if (tagIndex != null)
+            tagIndex.onTagChanged(this, tag, false);
+    }
+
+    /**
+     * @return - Copy of the tags of this object.
+     */
+    public EnumSet<GameObjectTag> getTags() {
+        EnumSet<GameObjectTag> tags = EnumSet.noneOf(GameObjectTag.class);
+        for (GameObjectTag tag : GameObjectTag.values()) {
+            if (hasTag(tag))
+                tags.add(tag);
+        }
+
+        return tags;
     }
 
     public Mesh getMesh() {
@@ -109,6 +321,55 @@ public @Data abstract class GameObject {
 
     public void addComponent(Component component){
         components.put(component.getComponentType(), component);
+
+        if (entityArchetype != null)
+            entityArchetype.getStorage().refresh(this);
+    }
+
+    public void removeComponent(ComponentType componentType){
+        components.remove(componentType);
+
+        if (entityArchetype != null)
+            entityArchetype.getStorage().refresh(this);
+    }
+
+    public int getInstanceSlot(int view) {
+        return instanceSlots != null && view < instanceSlots.length ? instanceSlots[view] : -1;
+    }
+
+    public void setInstanceSlot(int view, int slot) {
+        if (instanceSlots == null || view >= instanceSlots.length) {
+            if (slot < 0)
+                return;
+
+            int length = instanceSlots == null ? 0 : instanceSlots.length;
+            instanceSlots = instanceSlots == null ? new int[view + 1] : Arrays.copyOf(instanceSlots, view + 1);
+            Arrays.fill(instanceSlots, length, view + 1, -1);
+        }
+
+        instanceSlots[view] = slot;
+    }
+
+    public boolean isInsideFrustum() {
+        return entityArchetype != null ? entityArchetype.hasFlag(entityIndex, EntityStorage.FLAG_INSIDE_FRUSTUM) : insideFrustum;
+    }
+
+    public void setInsideFrustum(boolean insideFrustum) {
+        if (entityArchetype != null) {
+            entityArchetype.setFlag(entityIndex, EntityStorage.FLAG_INSIDE_FRUSTUM, insideFrustum);
+            return;
+        }
+
+        this.insideFrustum = insideFrustum;
+    }
+
+    public void setDisableFrustumCulling(boolean disableFrustumCulling) {
+        this.disableFrustumCulling = disableFrustumCulling;
+
+        if (entityArchetype != null)
+            entityArchetype.setFlag(entityIndex, EntityStorage.FLAG_DISABLE_FRUSTUM_CULLING, disableFrustumCulling);
+        if (boundingVolumes != null)
+            boundingVolumes.onCullingChanged(this);
     }
 
     public Component getComponent(ComponentType componentType){
@@ -3,4 +3,11 @@ package com.horizon.engine.graphics.object.data;
 public enum GameObjectTag {
 
     RAYCAST_IGNORE;
+
+    /**
+     * @return - Bit of this tag in tag mask of the game object.
+     */
+    public long getMask() {
+        return 1L << ordinal();
+    }
 }
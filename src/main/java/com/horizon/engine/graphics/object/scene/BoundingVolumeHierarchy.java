@@ -0,0 +1,610 @@
+package com.horizon.engine.graphics.object.scene;
+
+import com.horizon.engine.component.component.mesh.Mesh;
+import com.horizon.engine.graphics.object.GameObject;
+import lombok.Getter;
+import org.joml.FrustumIntersection;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Dynamic bounding volume hierarchy of scene objects with mesh. Every object is a leaf
+ * whose box is world box of its mesh enlarged by a margin, inner nodes are kept balanced
+ * by rotations. Object moving inside its enlarged box doesn't change the tree, so only
+ * objects which really left their leaf are inserted again.
+ *
+ * @apiNote Moved objects are only queued, tree is changed by <code>update()</code>
+ *          which has to be called from the main thread before the tree is queried.
+ *
+ * @author Horizon
+ */
+public class BoundingVolumeHierarchy {
+
+    private static final int NULL_NODE = -1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Leaf boxes are enlarged by this margin in every direction.
+     */
+    private static final float BOUNDS_MARGIN = 0.5f;
+
+    // Node box is stored as minX, minY, minZ, maxX, maxY, maxZ
+    private float[] bounds;
+    private int[] parents;
+    private int[] leftChildren;
+    private int[] rightChildren;
+    private int[] heights;
+    private GameObject[] objects;
+    private boolean[] moved;
+
+    private int capacity;
+    private int freeNode;
+    private int root = NULL_NODE;
+
+    @Getter private int nodeCount;
+    @Getter private int leafCount;
+
+    /**
+     * Increased whenever a leaf box or stored objects change, so same frustum
+     * returns same objects while version is unchanged.
+     */
+    @Getter private int version;
+
+    private final List<GameObject> movedObjects;
+
+    // Objects with disabled frustum culling are returned by every query
+    private final Set<GameObject> unculledObjects;
+    private final Vector3f boundsMin;
+    private final Vector3f boundsMax;
+
+    public BoundingVolumeHierarchy() {
+        this.movedObjects = new ArrayList<>();
+        this.unculledObjects = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.boundsMin = new Vector3f();
+        this.boundsMax = new Vector3f();
+
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Inserts object with mesh into the tree, object reports its transform changes
+     * until it is removed.
+     * @param gameObject - Inserted object.
+     * @return - False if object has no mesh or it is already stored.
+     */
+    public boolean insert(GameObject gameObject) {
+        if (gameObject.getMesh() == null || gameObject.getBoundingVolumes() != null)
+            return false;
+
+        int leaf = createNode();
+        objects[leaf] = gameObject;
+        setLeafBounds(leaf, gameObject);
+        insertLeaf(leaf);
+
+        gameObject.setBoundingVolumes(this);
+        gameObject.setBoundingVolumeProxy(leaf);
+        leafCount++;
+        version++;
+
+        if (gameObject.isDisableFrustumCulling())
+            unculledObjects.add(gameObject);
+        return true;
+    }
+
+    /**
+     * @return - False if object is not stored in this tree.
+     */
+    public boolean remove(GameObject gameObject) {
+        if (gameObject.getBoundingVolumes() != this)
+            return false;
+
+        int leaf = gameObject.getBoundingVolumeProxy();
+        removeLeaf(leaf);
+        freeNode(leaf);
+
+        gameObject.setBoundingVolumes(null);
+        gameObject.setBoundingVolumeProxy(NULL_NODE);
+        leafCount--;
+        version++;
+
+        unculledObjects.remove(gameObject);
+        return true;
+    }
+
+    /**
+     * Called by the game object when its frustum culling is enabled or disabled.
+     */
+    public void onCullingChanged(GameObject gameObject) {
+        if (gameObject.getBoundingVolumes() != this)
+            return;
+
+        if (gameObject.isDisableFrustumCulling()) {
+            unculledObjects.add(gameObject);
+        } else {
+            unculledObjects.remove(gameObject);
+        }
+        version++;
+    }
+
+    /**
+     * Queues object whose world transform changed. Can be called from any thread.
+     */
+    public synchronized void markMoved(GameObject gameObject) {
+        int leaf = gameObject.getBoundingVolumeProxy();
+        if (gameObject.getBoundingVolumes() != this || leaf == NULL_NODE || moved[leaf])
+            return;
+
+        moved[leaf] = true;
+        movedObjects.add(gameObject);
+    }
+
+    /**
+     * Inserts queued objects which left their leaf box again.
+     */
+    public synchronized void update() {
+        for (int i = 0; i < movedObjects.size(); i++) {
+            GameObject gameObject = movedObjects.get(i);
+            int leaf = gameObject.getBoundingVolumeProxy();
+
+            // Object could be removed or stored again after it was queued
+            if (gameObject.getBoundingVolumes() != this || leaf == NULL_NODE || !moved[leaf])
+                continue;
+
+            moved[leaf] = false;
+            calculateBounds(gameObject, boundsMin, boundsMax);
+            if (contains(leaf, boundsMin, boundsMax))
+                continue;
+
+            removeLeaf(leaf);
+            setLeafBounds(leaf, boundsMin, boundsMax);
+            insertLeaf(leaf);
+            version++;
+        }
+
+        movedObjects.clear();
+    }
+
+    /**
+     * Walks the tree from the root, subtrees outside of the frustum are skipped and
+     * subtrees inside of the frustum are accepted without testing their leaves.
+     * @param frustum - Tested frustum.
+     * @param result - Destination of objects whose leaf box intersects the frustum and
+     *                 objects with disabled frustum culling.
+     */
+    public void query(FrustumIntersection frustum, List<GameObject> result) {
+        if (root != NULL_NODE)
+            query(root, frustum, result);
+
+        result.addAll(unculledObjects);
+    }
+
+    /**
+     * Same as frustum query, but planes are moved outwards by the margin.
+     * @param planes - Normalized planes stored as normal x, y, z and distance, normals
+     *                 point inside of the volume.
+     * @param margin - Distance the planes are moved by.
+     * @param result - Destination of objects whose leaf box is not farther than margin
+     *                 outside of any plane and objects with disabled frustum culling.
+     */
+    public void query(float[] planes, float margin, List<GameObject> result) {
+        if (root != NULL_NODE)
+            query(root, planes, margin, result);
+
+        result.addAll(unculledObjects);
+    }
+
+    /**
+     * @return - False if object is not stored in this tree.
+     */
+    public boolean getLeafBounds(GameObject gameObject, Vector3f min, Vector3f max) {
+        if (gameObject.getBoundingVolumes() != this)
+            return false;
+
+        int offset = gameObject.getBoundingVolumeProxy() * 6;
+        min.set(bounds[offset], bounds[offset + 1], bounds[offset + 2]);
+        max.set(bounds[offset + 3], bounds[offset + 4], bounds[offset + 5]);
+        return true;
+    }
+
+    public void clear() {
+        for (int node = 0; node < capacity; node++) {
+            GameObject gameObject = objects[node];
+            if (gameObject != null && gameObject.getBoundingVolumes() == this) {
+                gameObject.setBoundingVolumes(null);
+                gameObject.setBoundingVolumeProxy(NULL_NODE);
+            }
+        }
+
+        movedObjects.clear();
+        unculledObjects.clear();
+        root = NULL_NODE;
+        nodeCount = 0;
+        leafCount = 0;
+        version++;
+        allocate(capacity);
+    }
+
+    /**
+     * @return - Height of the tree, 0 for tree with single leaf and -1 for empty tree.
+     */
+    public int getHeight() {
+        return root == NULL_NODE ? -1 : heights[root];
+    }
+
+    private void query(int node, FrustumIntersection frustum, List<GameObject> result) {
+        int offset = node * 6;
+        int intersection = frustum.intersectAab(bounds[offset], bounds[offset + 1], bounds[offset + 2],
+                bounds[offset + 3], bounds[offset + 4], bounds[offset + 5]);
+
+        if (intersection == FrustumIntersection.INSIDE) {
+            collect(node, result);
+            return;
+        }
+
+        // Other results are indices of the plane the box is outside of
+        if (intersection != FrustumIntersection.INTERSECT)
+            return;
+
+        if (isLeaf(node)) {
+            addLeaf(node, result);
+            return;
+        }
+
+        query(leftChildren[node], frustum, result);
+        query(rightChildren[node], frustum, result);
+    }
+
+    private void query(int node, float[] planes, float margin, List<GameObject> result) {
+        int offset = node * 6;
+        float centerX = (bounds[offset] + bounds[offset + 3]) * 0.5f;
+        float centerY = (bounds[offset + 1] + bounds[offset + 4]) * 0.5f;
+        float centerZ = (bounds[offset + 2] + bounds[offset + 5]) * 0.5f;
+        float extentX = bounds[offset + 3] - centerX;
+        float extentY = bounds[offset + 4] - centerY;
+        float extentZ = bounds[offset + 5] - centerZ;
+
+        boolean inside = true;
+        for (int i = 0; i < planes.length; i += 4) {
+            float distance = planes[i] * centerX + planes[i + 1] * centerY + planes[i + 2] * centerZ + planes[i + 3] + margin;
+            float radius = Math.abs(planes[i]) * extentX + Math.abs(planes[i + 1]) * extentY + Math.abs(planes[i + 2]) * extentZ;
+            if (distance + radius < 0)
+                return;
+
+            inside &= distance - radius >= 0;
+        }
+
+        if (inside) {
+            collect(node, result);
+        } else if (isLeaf(node)) {
+            addLeaf(node, result);
+        } else {
+            query(leftChildren[node], planes, margin, result);
+            query(rightChildren[node], planes, margin, result);
+        }
+    }
+
+    private void collect(int node, List<GameObject> result) {
+        if (isLeaf(node)) {
+            addLeaf(node, result);
+            return;
+        }
+
+        collect(leftChildren[node], result);
+        collect(rightChildren[node], result);
+    }
+
+    private void addLeaf(int leaf, List<GameObject> result) {
+        // Unculled objects are added by the query
+        if (!objects[leaf].isDisableFrustumCulling())
+            result.add(objects[leaf]);
+    }
+
+    //Tree structure
+
+    private void insertLeaf(int leaf) {
+        if (root == NULL_NODE) {
+            root = leaf;
+            parents[leaf] = NULL_NODE;
+            return;
+        }
+
+        // Sibling is chosen by the surface area increase of the tree
+        int node = root;
+        while (!isLeaf(node)) {
+            int left = leftChildren[node];
+            int right = rightChildren[node];
+
+            float area = area(node);
+            float combinedArea = unionArea(node, leaf);
+
+            float cost = 2.0f * combinedArea;
+            float inheritanceCost = 2.0f * (combinedArea - area);
+
+            float leftCost = descendCost(left, leaf) + inheritanceCost;
+            float rightCost = descendCost(right, leaf) + inheritanceCost;
+
+            if (cost < leftCost && cost < rightCost)
+                break;
+
+            node = leftCost < rightCost ? left : right;
+        }
+
+        int sibling = node;
+        int oldParent = parents[sibling];
+        int newParent = createNode();
+        parents[newParent] = oldParent;
+        heights[newParent] = heights[sibling] + 1;
+        union(newParent, sibling, leaf);
+
+        if (oldParent != NULL_NODE) {
+            replaceChild(oldParent, sibling, newParent);
+        } else {
+            root = newParent;
+        }
+
+        leftChildren[newParent] = sibling;
+        rightChildren[newParent] = leaf;
+        parents[sibling] = newParent;
+        parents[leaf] = newParent;
+
+        refit(parents[leaf]);
+    }
+
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NULL_NODE;
+            return;
+        }
+
+        int parent = parents[leaf];
+        int grandParent = parents[parent];
+        int sibling = leftChildren[parent] == leaf ? rightChildren[parent] : leftChildren[parent];
+
+        freeNode(parent);
+        if (grandParent == NULL_NODE) {
+            root = sibling;
+            parents[sibling] = NULL_NODE;
+            return;
+        }
+
+        replaceChild(grandParent, parent, sibling);
+        parents[sibling] = grandParent;
+        refit(grandParent);
+    }
+
+    /**
+     * Balances nodes and recalculates their boxes and heights from the node up to the root.
+     */
+    private void refit(int node) {
+        while (node != NULL_NODE) {
+            node = balance(node);
+
+            int left = leftChildren[node];
+            int right = rightChildren[node];
+            heights[node] = 1 + Math.max(heights[left], heights[right]);
+            union(node, left, right);
+
+            node = parents[node];
+        }
+    }
+
+    /**
+     * Rotates higher child of the node up when heights of its children differ by more
+     * than one.
+     * @return - Node which took place of the node.
+     */
+    private int balance(int a) {
+        if (isLeaf(a) || heights[a] < 2)
+            return a;
+
+        int b = leftChildren[a];
+        int c = rightChildren[a];
+        int balance = heights[c] - heights[b];
+
+        if (balance > 1) {
+            int f = leftChildren[c];
+            int g = rightChildren[c];
+
+            rotateUp(a, c);
+            leftChildren[c] = a;
+
+            if (heights[f] > heights[g]) {
+                rightChildren[c] = f;
+                rightChildren[a] = g;
+                parents[g] = a;
+                finishRotation(a, b, g, c, f);
+            } else {
+                rightChildren[c] = g;
+                rightChildren[a] = f;
+                parents[f] = a;
+                finishRotation(a, b, f, c, g);
+            }
+            return c;
+        }
+
+        if (balance < -1) {
+            int d = leftChildren[b];
+            int e = rightChildren[b];
+
+            rotateUp(a, b);
+            leftChildren[b] = a;
+
+            if (heights[d] > heights[e]) {
+                rightChildren[b] = d;
+                leftChildren[a] = e;
+                parents[e] = a;
+                finishRotation(a, c, e, b, d);
+            } else {
+                rightChildren[b] = e;
+                leftChildren[a] = d;
+                parents[d] = a;
+                finishRotation(a, c, d, b, e);
+            }
+            return b;
+        }
+
+        return a;
+    }
+
+    /**
+     * Moves the child into place of the node, node becomes child of the moved child.
+     */
+    private void rotateUp(int node, int child) {
+        parents[child] = parents[node];
+        parents[node] = child;
+
+        if (parents[child] != NULL_NODE) {
+            replaceChild(parents[child], node, child);
+        } else {
+            root = child;
+        }
+    }
+
+    private void finishRotation(int lowered, int loweredLeft, int loweredRight, int raised, int raisedRight) {
+        union(lowered, loweredLeft, loweredRight);
+        union(raised, lowered, raisedRight);
+
+        heights[lowered] = 1 + Math.max(heights[loweredLeft], heights[loweredRight]);
+        heights[raised] = 1 + Math.max(heights[lowered], heights[raisedRight]);
+    }
+
+    private void replaceChild(int parent, int oldChild, int newChild) {
+        if (leftChildren[parent] == oldChild) {
+            leftChildren[parent] = newChild;
+        } else {
+            rightChildren[parent] = newChild;
+        }
+    }
+
+    private boolean isLeaf(int node) {
+        return leftChildren[node] == NULL_NODE;
+    }
+
+    //Boxes
+
+    private void setLeafBounds(int leaf, GameObject gameObject) {
+        calculateBounds(gameObject, boundsMin, boundsMax);
+        setLeafBounds(leaf, boundsMin, boundsMax);
+    }
+
+    private void setLeafBounds(int leaf, Vector3f min, Vector3f max) {
+        int offset = leaf * 6;
+        bounds[offset] = min.x - BOUNDS_MARGIN;
+        bounds[offset + 1] = min.y - BOUNDS_MARGIN;
+        bounds[offset + 2] = min.z - BOUNDS_MARGIN;
+        bounds[offset + 3] = max.x + BOUNDS_MARGIN;
+        bounds[offset + 4] = max.y + BOUNDS_MARGIN;
+        bounds[offset + 5] = max.z + BOUNDS_MARGIN;
+    }
+
+    private static void calculateBounds(GameObject gameObject, Vector3f min, Vector3f max) {
+        Mesh mesh = gameObject.getMesh();
+        gameObject.getTransform().getModelMatrix().transformAab(mesh.getBoundsMin(), mesh.getBoundsMax(), min, max);
+    }
+
+    private boolean contains(int node, Vector3f min, Vector3f max) {
+        int offset = node * 6;
+        return bounds[offset] <= min.x && bounds[offset + 1] <= min.y && bounds[offset + 2] <= min.z
+                && bounds[offset + 3] >= max.x && bounds[offset + 4] >= max.y && bounds[offset + 5] >= max.z;
+    }
+
+    private void union(int destination, int a, int b) {
+        int offset = destination * 6;
+        int offsetA = a * 6;
+        int offsetB = b * 6;
+
+        for (int i = 0; i < 3; i++) {
+            bounds[offset + i] = Math.min(bounds[offsetA + i], bounds[offsetB + i]);
+            bounds[offset + 3 + i] = Math.max(bounds[offsetA + 3 + i], bounds[offsetB + 3 + i]);
+        }
+    }
+
+    private float area(int node) {
+        int offset = node * 6;
+        return area(bounds[offset + 3] - bounds[offset], bounds[offset + 4] - bounds[offset + 1], bounds[offset + 5] - bounds[offset + 2]);
+    }
+
+    private float unionArea(int a, int b) {
+        int offsetA = a * 6;
+        int offsetB = b * 6;
+
+        float x = Math.max(bounds[offsetA + 3], bounds[offsetB + 3]) - Math.min(bounds[offsetA], bounds[offsetB]);
+        float y = Math.max(bounds[offsetA + 4], bounds[offsetB + 4]) - Math.min(bounds[offsetA + 1], bounds[offsetB + 1]);
+        float z = Math.max(bounds[offsetA + 5], bounds[offsetB + 5]) - Math.min(bounds[offsetA + 2], bounds[offsetB + 2]);
+        return area(x, y, z);
+    }
+
+    /**
+     * @return - Area added to the tree when the leaf is inserted under the node.
+     */
+    private float descendCost(int node, int leaf) {
+        if (isLeaf(node))
+            return unionArea(node, leaf);
+
+        return unionArea(node, leaf) - area(node);
+    }
+
+    private static float area(float x, float y, float z) {
+        return x * y + y * z + z * x;
+    }
+
+    //Node storage
+
+    private int createNode() {
+        if (freeNode == NULL_NODE)
+            allocate(capacity * 2);
+
+        int node = freeNode;
+        freeNode = parents[node];
+
+        parents[node] = NULL_NODE;
+        leftChildren[node] = NULL_NODE;
+        rightChildren[node] = NULL_NODE;
+        heights[node] = 0;
+        objects[node] = null;
+        moved[node] = false;
+        nodeCount++;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        objects[node] = null;
+        moved[node] = false;
+        heights[node] = -1;
+        parents[node] = freeNode;
+        freeNode = node;
+        nodeCount--;
+    }
+
+    /**
+     * Grows node arrays to the capacity, when tree is empty all nodes are freed.
+     */
+    private void allocate(int newCapacity) {
+        int oldCapacity = nodeCount == 0 ? 0 : capacity;
+
+        bounds = bounds == null ? new float[newCapacity * 6] : Arrays.copyOf(bounds, newCapacity * 6);
+        parents = parents == null ? new int[newCapacity] : Arrays.copyOf(parents, newCapacity);
+        leftChildren = leftChildren == null ? new int[newCapacity] : Arrays.copyOf(leftChildren, newCapacity);
+        rightChildren = rightChildren == null ? new int[newCapacity] : Arrays.copyOf(rightChildren, newCapacity);
+        heights = heights == null ? new int[newCapacity] : Arrays.copyOf(heights, newCapacity);
+        objects = objects == null ? new GameObject[newCapacity] : Arrays.copyOf(objects, newCapacity);
+        moved = moved == null ? new boolean[newCapacity] : Arrays.copyOf(moved, newCapacity);
+
+        // New nodes are linked into the free list
+        for (int node = oldCapacity; node < newCapacity; node++) {
+            parents[node] = node + 1 < newCapacity ? node + 1 : NULL_NODE;
+            objects[node] = null;
+            moved[node] = false;
+            heights[node] = -1;
+        }
+
+        freeNode = oldCapacity;
+        capacity = newCapacity;
+    }
+}
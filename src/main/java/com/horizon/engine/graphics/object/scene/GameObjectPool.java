@@ -0,0 +1,154 @@
+package com.horizon.engine.graphics.object.scene;
+
+import com.horizon.engine.component.component.mesh.InstancedMesh;
+import com.horizon.engine.component.component.mesh.Mesh;
+import com.horizon.engine.graphics.object.GameObject;
+import lombok.Getter;
+import lombok.Setter;
+import org.joml.Vector3f;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Pool of game objects of one type. Released object is removed from the scene, so it
+ * is skipped by every pass, but it keeps its components and mesh buffers and is
+ * instantiated again by the next <code>acquire()</code>.
+ *
+ * @apiNote Pool changes the scene, so it has to be used from the main thread or
+ *          through the scene command buffer.
+ *
+ * @author Horizon
+ */
+public class GameObjectPool<T extends GameObject> {
+
+    private final Scene scene;
+    private final Supplier<T> factory;
+    private final Deque<T> freeObjects;
+
+    /**
+     * Called on every released object, can be used to reset its state. Can be null.
+     */
+    @Getter @Setter private Consumer<T> releaseHandler;
+
+    /**
+     * Released objects above this count are destroyed instead of pooled.
+     */
+    @Getter @Setter private int maxFreeObjects;
+
+    @Getter private int createdObjects;
+    @Getter private int activeObjects;
+
+    /**
+     * @param scene - Scene where objects are instantiated.
+     * @param factory - Creates new object when pool is empty, for example <code>prefab::instantiateObject</code>.
+     */
+    public GameObjectPool(Scene scene, Supplier<T> factory) {
+        this(scene, factory, Integer.MAX_VALUE);
+    }
+
+    public GameObjectPool(Scene scene, Supplier<T> factory, int maxFreeObjects) {
+        this.scene = scene;
+        this.factory = factory;
+        this.maxFreeObjects = maxFreeObjects;
+        this.freeObjects = new ArrayDeque<>();
+    }
+
+    /**
+     * Creates objects in advance, so first acquires don't create meshes.
+     * @param count - Number of created objects.
+     */
+    public void prewarm(int count) {
+        for (int i = 0; i < count && freeObjects.size() < maxFreeObjects; i++) {
+            freeObjects.push(create());
+        }
+    }
+
+    /**
+     * Object keeps position it was released at, move it with <code>teleport</code> or use
+     * <code>acquire(Vector3f)</code>, so it is not interpolated from the old position.
+     * @return - Pooled or new object instantiated in the scene together with its children.
+     */
+    public T acquire() {
+        T gameObject = take();
+        instantiate(gameObject);
+        return gameObject;
+    }
+
+    /**
+     * @param position - Position of the object, it is placed there before it is instantiated.
+     * @return - Pooled or new object instantiated in the scene together with its children.
+     */
+    public T acquire(Vector3f position) {
+        T gameObject = take();
+        gameObject.setPosition(position);
+        instantiate(gameObject);
+        return gameObject;
+    }
+
+    private T take() {
+        T gameObject = freeObjects.isEmpty() ? create() : freeObjects.pop();
+        activeObjects++;
+        return gameObject;
+    }
+
+    /**
+     * Removes object from the scene and returns it into the pool.
+     * @param gameObject - Object acquired from this pool.
+     * @return - False if object is not part of the scene.
+     */
+    public boolean release(T gameObject) {
+        if (!scene.remove(gameObject))
+            return false;
+
+        activeObjects--;
+        if (releaseHandler != null)
+            releaseHandler.accept(gameObject);
+
+        if (freeObjects.size() >= maxFreeObjects) {
+            releaseMesh(gameObject);
+            return true;
+        }
+
+        freeObjects.push(gameObject);
+        return true;
+    }
+
+    public int getFreeObjects() {
+        return freeObjects.size();
+    }
+
+    /**
+     * Releases meshes of all pooled objects, active objects are not affected.
+     */
+    public void clear() {
+        while (!freeObjects.isEmpty()) {
+            releaseMesh(freeObjects.pop());
+        }
+    }
+
+    private T create() {
+        createdObjects++;
+        return factory.get();
+    }
+
+    private void instantiate(GameObject gameObject) {
+        scene.instantiate(gameObject);
+
+        for (GameObject child : gameObject.getChildren()) {
+            instantiate(child);
+        }
+    }
+
+    private void releaseMesh(GameObject gameObject) {
+        Mesh mesh = gameObject.getMesh();
+        if (mesh != null && !(mesh instanceof InstancedMesh))
+            mesh.cleanUp();
+
+        for (GameObject child : gameObject.getChildren()) {
+            releaseMesh(child);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.horizon.engine.graphics.object.scene;
+
+import com.horizon.engine.component.component.mesh.Mesh;
+
+import java.util.Arrays;
+
+/**
+ * Registry of meshes addressed by mesh identifiers. Freed identifiers are reused from a
+ * free list, entries are kept packed in dense arrays, so registration, removal and
+ * iteration are constant per mesh.
+ *
+ * @apiNote Slot of the entry (<code>0..size()</code>) changes when other entry is removed,
+ *          mesh identifier stays the same until the entry is removed.
+ *
+ * @author Horizon
+ */
+public class MeshTable<M extends Mesh, V> {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Identifier -> slot, -1 for free identifiers
+    private int[] slots;
+    private int[] freeIdentifiers;
+    private int freeCount;
+    private int identifierCount;
+
+    // Dense entries
+    private int[] identifiers;
+    private Mesh[] meshes;
+    private Object[] values;
+    private int size;
+
+    public MeshTable() {
+        this.slots = new int[INITIAL_CAPACITY];
+        this.freeIdentifiers = new int[INITIAL_CAPACITY];
+        this.identifiers = new int[INITIAL_CAPACITY];
+        this.meshes = new Mesh[INITIAL_CAPACITY];
+        this.values = new Object[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Registers mesh under new identifier and stores the identifier in the mesh.
+     * @param mesh - Registered mesh.
+     * @param value - Value stored with the mesh.
+     * @return - Mesh identifier.
+     */
+    public int add(M mesh, V value) {
+        int identifier;
+        if (freeCount > 0) {
+            identifier = freeIdentifiers[--freeCount];
+        } else {
+            if (identifierCount == slots.length)
+                slots = Arrays.copyOf(slots, slots.length * 2);
+
+            identifier = identifierCount++;
+        }
+
+        if (size == meshes.length) {
+            int capacity = meshes.length * 2;
+            identifiers = Arrays.copyOf(identifiers, capacity);
+            meshes = Arrays.copyOf(meshes, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        slots[identifier] = size;
+        identifiers[size] = identifier;
+        meshes[size] = mesh;
+        values[size] = value;
+        size++;
+
+        mesh.setMeshId(identifier);
+        return identifier;
+    }
+
+    /**
+     * @return - True if the mesh is registered under its current identifier.
+     */
+    public boolean contains(Mesh mesh) {
+        int slot = getSlot(mesh.getMeshId());
+        return slot >= 0 && meshes[slot] == mesh;
+    }
+
+    /**
+     * @return - Value of the identifier or null if identifier is not registered.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int identifier) {
+        int slot = getSlot(identifier);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    /**
+     * Removes entry, last entry is moved into its slot.
+     * @return - True if identifier was registered.
+     */
+    public boolean remove(int identifier) {
+        int slot = getSlot(identifier);
+        if (slot < 0)
+            return false;
+
+        int last = --size;
+        if (slot != last) {
+            identifiers[slot] = identifiers[last];
+            meshes[slot] = meshes[last];
+            values[slot] = values[last];
+            slots[identifiers[slot]] = slot;
+        }
+
+        meshes[last] = null;
+        values[last] = null;
+        slots[identifier] = -1;
+
+        if (freeCount == freeIdentifiers.length)
+            freeIdentifiers = Arrays.copyOf(freeIdentifiers, freeIdentifiers.length * 2);
+        freeIdentifiers[freeCount++] = identifier;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(meshes, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        Arrays.fill(slots, 0, identifierCount, -1);
+
+        freeCount = 0;
+        identifierCount = 0;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    //Dense iteration
+
+    @SuppressWarnings("unchecked")
+    public M getMeshAt(int slot) {
+        return (M) meshes[slot];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V getValueAt(int slot) {
+        return (V) values[slot];
+    }
+
+    public int getIdentifierAt(int slot) {
+        return identifiers[slot];
+    }
+
+    private int getSlot(int identifier) {
+        if (identifier < 0 || identifier >= identifierCount)
+            return -1;
+
+        return slots[identifier];
+    }
+}
@@ -2,33 +2,67 @@ package com.horizon.engine.graphics.object.scene;
 
 import com.horizon.engine.GameEngine;
 import com.horizon.engine.common.Color;
+import com.horizon.engine.common.HandleTable;
+import com.horizon.engine.common.NameGenerator;
 import com.horizon.engine.component.Component;
 import com.horizon.engine.component.ComponentType;
 import com.horizon.engine.component.component.light.DirectionalLightComponent;
 import com.horizon.engine.component.component.light.PointLightComponent;
 import com.horizon.engine.component.component.light.SpotLightComponent;
+import com.horizon.engine.component.component.mesh.InstancedMesh;
+import com.horizon.engine.component.component.mesh.Mesh;
+import com.horizon.engine.component.component.mesh.TerrainMesh;
 import com.horizon.engine.data.ApplicationData;
+import com.horizon.engine.ecs.EntityStorage;
 import com.horizon.engine.graphics.light.DirectionalLight;
 import com.horizon.engine.graphics.light.PointLight;
 import com.horizon.engine.graphics.light.SpotLight;
 import com.horizon.engine.graphics.object.Camera;
 import com.horizon.engine.graphics.object.GameObject;
+import com.horizon.engine.graphics.object.data.GameObjectTag;
 import com.horizon.engine.graphics.object.objects.ModelObject;
 import com.horizon.engine.graphics.object.primitive.PrimitiveObject;
 import com.horizon.engine.graphics.object.terrain.Terrain;
 import com.horizon.engine.graphics.postprocessing.Fog;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public @Data class Scene {
 
     private final GameEngine gameEngine;
 
     private Map<String, GameObject> sceneObjects = new LinkedHashMap<>();
+    private final HandleTable<GameObject> objectHandles = new HandleTable<>();
+    private final NameGenerator objectNames = new NameGenerator();
+    private final SceneTagIndex tagIndex = new SceneTagIndex();
+    private final MeshTable<Mesh, GameObject> nonInstancedMeshes = new MeshTable<>();
+    private final MeshTable<InstancedMesh, List<GameObject>> instancedMeshes = new MeshTable<>();
+    private final SceneCommandBuffer commandBuffer = new SceneCommandBuffer();
+    private final WorldPartition worldPartition = new WorldPartition(this);
+    private final EntityStorage entityStorage = new EntityStorage();
+    private final BoundingVolumeHierarchy boundingVolumes = new BoundingVolumeHierarchy();
     private Terrain terrain;
 
+    /**
+     * Objects whose transform changed since the last world transform update, subtrees of
+     * other objects have clean world matrices.
+     */
+    @Getter(AccessLevel.NONE) private final List<GameObject> changedTransforms = new ArrayList<>();
+    @Getter(AccessLevel.NONE) private final List<GameObject> updatedTransforms = new ArrayList<>();
+
+    /**
+     * Objects changed since their transforms were stored as previous ones, only these can be
+     * moving when rendering is interpolated. Guarded by <code>changedTransforms</code>.
+     */
+    @Getter(AccessLevel.NONE) private final List<GameObject> movingTransforms = new ArrayList<>();
+
     private Camera sceneCamera;
     private SceneLight sceneLight;
 
@@ -48,12 +82,27 @@ public @Data class Scene {
     }
 
     public boolean initialize(){
+        prepare();
+        activate();
+
+        return true;
+    }
+
+    /**
+     * Creates camera and fog of the scene. Doesn't touch window, so scene can be
+     * prepared while other scene is active.
+     */
+    public void prepare() {
         sceneCamera = new Camera();
 
         setFog(new Fog(true, ApplicationData.getDefaultFogColor().toVector3f(), ApplicationData.getFogDensity()));
-        getGameEngine().getWindow().setClearColor(sceneCamera.getBackgroundColor());
+    }
 
-        return true;
+    /**
+     * Applies window settings of this scene. Called when scene becomes the active one.
+     */
+    public void activate() {
+        getGameEngine().getWindow().setClearColor(sceneCamera.getBackgroundColor());
     }
 
     /**
@@ -64,6 +113,16 @@ public @Data class Scene {
      * @return - Inserted GameObject.
      */
     public GameObject instantiate(GameObject gameObject) {
+        return instantiate(gameObject, HandleTable.INVALID_HANDLE);
+    }
+
+    /**
+     * Instantiates game object under handle it had before, used when saved scene is loaded.
+     * @param gameObject - GameObject that will be initialized.
+     * @param handle - Requested handle, new handle is assigned when it is invalid or used.
+     * @return - Inserted GameObject.
+     */
+    public GameObject instantiate(GameObject gameObject, int handle) {
         if(gameObject.getComponents().containsKey(ComponentType.LIGHT)) {
             Component component = gameObject.getComponents().get(ComponentType.LIGHT);
             if(component instanceof DirectionalLightComponent) {
@@ -79,19 +138,117 @@ public @Data class Scene {
             }
         }
 
+        // Object positioned before it was instantiated is not interpolated from its old state
+        gameObject.getTransform().storePrevious();
+        gameObject.setScene(this);
+        markTransformChanged(gameObject);
+
         gameObject.setGameObjectName(sceneObjects.containsKey(gameObject.getGameObjectName()) ? generateObjectName(gameObject.getGameObjectName()) : gameObject.getGameObjectName());
         sceneObjects.put(gameObject.getGameObjectName(), gameObject);
+        gameObject.setHandle(handle != HandleTable.INVALID_HANDLE && objectHandles.insert(handle, gameObject) ? handle : objectHandles.add(gameObject));
+        tagIndex.register(gameObject);
 
         if(gameObject instanceof Terrain) {
             terrain = (Terrain) gameObject;
+            terrain.uploadMesh();
             return gameObject;
         }
 
-        getGameEngine().getAssetManager().addMesh(gameObject);
+        addMesh(gameObject);
+
+        if (isEntityStorageEnabled())
+            entityStorage.add(gameObject);
+
+        if (ApplicationData.isWorldPartition() && gameObject.getComponent(ComponentType.MESH) instanceof Mesh)
+            worldPartition.add(gameObject);
 
         return gameObject;
     }
 
+    /**
+     * Removes game object and all its children from the scene and releases their meshes
+     * if the objects own them.
+     * @param gameObject - GameObject that will be removed.
+     * @return - True if object was part of this scene.
+     */
+    public boolean destroy(GameObject gameObject) {
+        return remove(gameObject, true);
+    }
+
+    /**
+     * Removes game object and all its children from the scene, but keeps their meshes, so
+     * the object can be instantiated again. Used by object pools.
+     * @param gameObject - GameObject that will be removed.
+     * @return - True if object was part of this scene.
+     */
+    public boolean remove(GameObject gameObject) {
+        return remove(gameObject, false);
+    }
+
+    private boolean remove(GameObject gameObject, boolean release) {
+        if (sceneObjects.get(gameObject.getGameObjectName()) != gameObject)
+            return false;
+
+        // Attached objects are parts of the removed one
+        for (GameObject child : new ArrayList<>(gameObject.getChildren())) {
+            remove(child, release);
+        }
+
+        sceneObjects.remove(gameObject.getGameObjectName());
+        objectHandles.remove(gameObject.getHandle());
+        gameObject.setHandle(HandleTable.INVALID_HANDLE);
+        tagIndex.unregister(gameObject);
+        worldPartition.remove(gameObject, release);
+        entityStorage.remove(gameObject);
+        gameObject.setScene(null);
+        synchronized (changedTransforms) {
+            if (gameObject.isChangeQueued()) {
+                gameObject.setChangeQueued(false);
+                changedTransforms.removeIf(queued -> queued == gameObject);
+            }
+            if (gameObject.isMovingQueued()) {
+                gameObject.setMovingQueued(false);
+                movingTransforms.removeIf(queued -> queued == gameObject);
+            }
+        }
+
+        if (gameObject.getComponents().containsKey(ComponentType.LIGHT)) {
+            Component component = gameObject.getComponents().get(ComponentType.LIGHT);
+            if (component instanceof SpotLightComponent)
+                getSceneLight().removeSpotLight((SpotLight) gameObject);
+
+            if (component instanceof PointLightComponent)
+                getSceneLight().removePointLight((PointLight) gameObject);
+        }
+
+        // Terrain mesh is not in render lists, it is owned only by the terrain
+        if (gameObject == terrain) {
+            TerrainMesh terrainMesh = terrain.getTerrainMesh();
+            if (release && terrainMesh != null)
+                terrainMesh.cleanUp();
+
+            terrain = null;
+            return true;
+        }
+
+        if (release) {
+            removeMesh(gameObject);
+        } else {
+            unregisterMesh(gameObject);
+        }
+
+        return true;
+    }
+
+    /**
+     * Applies commands recorded in scene command buffer. Should be called only
+     * from the main thread.
+     * @return - Number of applied commands.
+     */
+    public int applyCommands() {
+        return commandBuffer.apply(this);
+    }
+
     /**
      * This function is used for creation of primitive object like cube,
      * cone, ball, plane, etc.
@@ -102,22 +259,170 @@ public @Data class Scene {
         return (ModelObject) instantiate(getGameEngine().getAssetManager().getModel(primitiveObject.getMeshName()).instantiateObject());
     }
 
+    public void addMesh(GameObject gameObject) {
+        if(gameObject.getMesh() != null) {
+            Mesh mesh = gameObject.getMesh();
+            if(mesh instanceof InstancedMesh) {
+                // Instanced mesh is shared, all its objects are stored under one identifier
+                List<GameObject> list = instancedMeshes.contains(mesh) ? instancedMeshes.get(mesh.getMeshId()) : null;
+                if(list == null) {
+                    list = new ArrayList<>();
+                    instancedMeshes.add((InstancedMesh) mesh, list);
+                }
+                list.add(gameObject);
+            } else {
+                nonInstancedMeshes.add(mesh, gameObject);
+            }
+
+            // Mesh identifier could change
+            EntityStorage.sync(gameObject);
+
+            if (isBoundingVolumeCullingEnabled())
+                boundingVolumes.insert(gameObject);
+        }
+    }
+
+    /**
+     * Removes game object from render lists. Mesh of non instanced object is owned
+     * by the object, so its buffers are released too.
+     * @param gameObject - Game object whose mesh is removed.
+     */
+    public void removeMesh(GameObject gameObject) {
+        Mesh mesh = gameObject.getMesh();
+        if (unregisterMesh(gameObject) && !(mesh instanceof InstancedMesh))
+            mesh.cleanUp();
+    }
+
+    /**
+     * Removes game object from render lists without releasing anything.
+     * @param gameObject - Game object whose mesh is removed.
+     * @return - True if the object was registered.
+     */
+    public boolean unregisterMesh(GameObject gameObject) {
+        Mesh mesh = gameObject.getMesh();
+        if (mesh == null)
+            return false;
+
+        boundingVolumes.remove(gameObject);
+
+        if (mesh instanceof InstancedMesh) {
+            if (!instancedMeshes.contains(mesh))
+                return false;
+
+            List<GameObject> list = instancedMeshes.get(mesh.getMeshId());
+            if (!list.removeIf(listed -> listed == gameObject))
+                return false;
+
+            // Identifier of unused instanced mesh is freed, next object registers it again
+            if (list.isEmpty())
+                instancedMeshes.remove(mesh.getMeshId());
+            return true;
+        }
+
+        if (!nonInstancedMeshes.contains(mesh) || nonInstancedMeshes.get(mesh.getMeshId()) != gameObject)
+            return false;
+
+        nonInstancedMeshes.remove(mesh.getMeshId());
+        return true;
+    }
+
     public String generateObjectName(String name) {
-        String generatedPrefabName;
-        int index = 1;
-
-        while(true) {
-            generatedPrefabName = name + "(" + index + ")";
-            if(!sceneObjects.containsKey(generatedPrefabName))
-                break;
-            else
-                index++;
+        return objectNames.generate(name, sceneObjects::containsKey);
+    }
+
+    /**
+     * Queues object whose local transform or parent changed. Can be called from any thread.
+     */
+    public void markTransformChanged(GameObject gameObject) {
+        synchronized (changedTransforms) {
+            if (!gameObject.isChangeQueued()) {
+                gameObject.setChangeQueued(true);
+                changedTransforms.add(gameObject);
+            }
+            if (!gameObject.isMovingQueued()) {
+                gameObject.setMovingQueued(true);
+                movingTransforms.add(gameObject);
+            }
         }
+    }
 
-        return generatedPrefabName;
+    /**
+     * Rebuilds world matrices of changed objects and their subtrees, parents before children.
+     * Has to be called on the thread owning the scene before world transforms are read by
+     * parallel jobs, so jobs only read clean matrices and never rebuild shared ones.
+     */
+    public void updateWorldTransforms() {
+        synchronized (changedTransforms) {
+            for (GameObject gameObject : changedTransforms) {
+                gameObject.setChangeQueued(false);
+            }
+            updatedTransforms.addAll(changedTransforms);
+            changedTransforms.clear();
+        }
+
+        for (GameObject gameObject : updatedTransforms) {
+            updateWorldTransform(gameObject);
+        }
+        updatedTransforms.clear();
+    }
+
+    private void updateWorldTransform(GameObject gameObject) {
+        gameObject.getTransform().getModelMatrix();
+        for (GameObject child : gameObject.getChildren()) {
+            updateWorldTransform(child);
+        }
+    }
+
+    /**
+     * Stores current transforms as previous ones, so they can be interpolated while rendering
+     * between simulation steps. Only objects changed since the last call are visited, object
+     * which is not changed again during the next step is not visited anymore.
+     */
+    public void storePreviousTransforms() {
+        synchronized (changedTransforms) {
+            for (GameObject gameObject : movingTransforms) {
+                gameObject.getTransform().storePrevious();
+                gameObject.setMovingQueued(false);
+            }
+            movingTransforms.clear();
+        }
+    }
+
+    /**
+     * Entity storage is used only when scene is not shared with other thread, so it is
+     * disabled in pipelined rendering.
+     * @return - True if scene objects are registered in entity storage.
+     */
+    public boolean isEntityStorageEnabled() {
+        return ApplicationData.isEntityStorage() && !ApplicationData.isPipelinedRendering();
+    }
+
+    /**
+     * Bounding volume hierarchy is used for culling of the objects which are not stored
+     * in the entity storage and it is not shared with other thread.
+     * @return - True if objects with mesh are stored in bounding volume hierarchy.
+     */
+    public boolean isBoundingVolumeCullingEnabled() {
+        return ApplicationData.isBoundingVolumeCulling() && !isEntityStorageEnabled() && !ApplicationData.isPipelinedRendering();
     }
 
     public GameObject getGameObjectByName(String name){
         return sceneObjects.get(name);
     }
+
+    /**
+     * @param tag - Tag of the objects.
+     * @return - Live view of scene objects with inserted tag.
+     */
+    public Set<GameObject> getGameObjectsWithTag(GameObjectTag tag) {
+        return tagIndex.getObjects(tag);
+    }
+
+    /**
+     * @param handle - Handle of the game object.
+     * @return - Game object of the handle or null if it was destroyed.
+     */
+    public GameObject getGameObject(int handle) {
+        return objectHandles.get(handle);
+    }
 }
@@ -0,0 +1,18 @@
+package com.horizon.engine.graphics.object.scene;
+
+/**
+ * Builds content of the scene on worker thread. Builder can do any CPU work directly,
+ * everything which needs GL context (spawning objects with meshes, component changes)
+ * has to be recorded into the scene command buffer.
+ *
+ * @author Horizon
+ */
+@FunctionalInterface
+public interface SceneBuilder {
+
+    /**
+     * @param scene - Scene which is being preloaded, it is not rendered yet.
+     * @param commandBuffer - Command buffer of the preloaded scene.
+     */
+    void build(Scene scene, SceneCommandBuffer commandBuffer) throws Exception;
+}
@@ -0,0 +1,224 @@
+package com.horizon.engine.graphics.object.scene;
+
+import com.horizon.engine.asset.prefab.Prefab;
+import com.horizon.engine.component.Component;
+import com.horizon.engine.component.ComponentType;
+import com.horizon.engine.component.component.mesh.Mesh;
+import com.horizon.engine.graphics.object.GameObject;
+import com.horizon.engine.graphics.object.primitive.PrimitiveObject;
+import lombok.Getter;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Scene command buffer lets any thread record changes of the scene. Commands are
+ * applied in one batch on the main thread at the engine sync point, so scene and
+ * GL resources are touched only from the thread that owns them.
+ *
+ * @apiNote Transform changes are coalesced per game object, only the last value
+ *          of every batch is applied. Scale change re-uploads mesh positions, so
+ *          coalescing means at most one upload per object and batch. Pending transform
+ *          change of an object is applied before any structural command on the object,
+ *          so it is never applied in a different parent space than it was recorded in.
+ *
+ * @author Horizon
+ */
+public class SceneCommandBuffer {
+
+    private final Queue<Command> commands;
+
+    @Getter private long appliedCommands;
+
+    public SceneCommandBuffer() {
+        this.commands = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Spawns already created game object. Object must not own GL resources created
+     * outside of the main thread.
+     * @param gameObject - Game object that will be instantiated.
+     * @return - Future completed with instantiated object when batch is applied.
+     */
+    public CompletableFuture<GameObject> spawn(GameObject gameObject) {
+        CompletableFuture<GameObject> future = new CompletableFuture<>();
+        commands.add((scene, batch) -> {
+            batch.flush(gameObject);
+            future.complete(scene.instantiate(gameObject));
+        });
+        return future;
+    }
+
+    /**
+     * Spawns new game object from prefab. Object and its mesh are created on the main thread.
+     * @param prefab - Prefab of the spawned object.
+     * @param initializer - Called on the main thread before object is inserted into scene, can be null.
+     * @return - Future completed with instantiated object when batch is applied.
+     */
+    public CompletableFuture<GameObject> spawn(Prefab prefab, Consumer<GameObject> initializer) {
+        CompletableFuture<GameObject> future = new CompletableFuture<>();
+        commands.add((scene, batch) -> {
+            GameObject gameObject = prefab.instantiateObject();
+            if (initializer != null)
+                initializer.accept(gameObject);
+
+            future.complete(scene.instantiate(gameObject));
+        });
+        return future;
+    }
+
+    public CompletableFuture<GameObject> spawn(PrimitiveObject primitiveObject, Consumer<GameObject> initializer) {
+        CompletableFuture<GameObject> future = new CompletableFuture<>();
+        commands.add((scene, batch) -> {
+            GameObject gameObject = scene.getGameEngine().getAssetManager().getModel(primitiveObject.getMeshName()).instantiateObject();
+            if (initializer != null)
+                initializer.accept(gameObject);
+
+            future.complete(scene.instantiate(gameObject));
+        });
+        return future;
+    }
+
+    public void destroy(GameObject gameObject) {
+        commands.add((scene, batch) -> {
+            batch.transformChanges.remove(gameObject);
+            scene.destroy(gameObject);
+        });
+    }
+
+    public void setPosition(GameObject gameObject, float x, float y, float z) {
+        commands.add((scene, batch) -> batch.getTransformChange(gameObject).position = new Vector3f(x, y, z));
+    }
+
+    public void setRotation(GameObject gameObject, Quaternionf rotation) {
+        Quaternionf copy = new Quaternionf(rotation);
+        commands.add((scene, batch) -> batch.getTransformChange(gameObject).rotation = copy);
+    }
+
+    public void setScale(GameObject gameObject, float x, float y, float z) {
+        commands.add((scene, batch) -> batch.getTransformChange(gameObject).scale = new Vector3f(x, y, z));
+    }
+
+    /**
+     * @param parent - New parent of the game object or null to detach it.
+     */
+    public void setParent(GameObject gameObject, GameObject parent) {
+        commands.add((scene, batch) -> {
+            batch.flush(gameObject);
+            gameObject.setParent(parent);
+        });
+    }
+
+    /**
+     * Adds or replaces component of the game object. Mesh component is also
+     * re-registered in scene render lists.
+     */
+    public void addComponent(GameObject gameObject, Component component) {
+        commands.add((scene, batch) -> {
+            batch.flush(gameObject);
+            boolean meshChanged = component.getComponentType() == ComponentType.MESH && scene.getSceneObjects().get(gameObject.getGameObjectName()) == gameObject;
+            if (meshChanged)
+                scene.removeMesh(gameObject);
+
+            gameObject.addComponent(component);
+
+            if (meshChanged)
+                scene.addMesh(gameObject);
+        });
+    }
+
+    public void removeComponent(GameObject gameObject, ComponentType componentType) {
+        commands.add((scene, batch) -> {
+            batch.flush(gameObject);
+            if (componentType == ComponentType.MESH && gameObject.getComponent(ComponentType.MESH) instanceof Mesh)
+                scene.removeMesh(gameObject);
+
+            gameObject.removeComponent(componentType);
+        });
+    }
+
+    public boolean isEmpty() {
+        return commands.isEmpty();
+    }
+
+    /**
+     * Applies all recorded commands. Must be called only from the main thread.
+     * @param scene - Scene where commands are applied.
+     * @return - Number of applied commands.
+     */
+    public int apply(Scene scene) {
+        return apply(scene, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Applies at most inserted number of commands, rest is kept for the next call.
+     * Can be used to spread GL uploads over multiple frames.
+     * @param scene - Scene where commands are applied.
+     * @param maxCommands - Maximal number of applied commands.
+     * @return - Number of applied commands.
+     */
+    public int apply(Scene scene, int maxCommands) {
+        Batch batch = new Batch();
+        int count = 0;
+
+        Command command;
+        while (count < maxCommands && (command = commands.poll()) != null) {
+            command.apply(scene, batch);
+            count++;
+        }
+
+        for (Map.Entry<GameObject, TransformChange> entry : batch.transformChanges.entrySet()) {
+            entry.getValue().applyTo(entry.getKey());
+        }
+
+        appliedCommands += count;
+        return count;
+    }
+
+    @FunctionalInterface
+    private interface Command {
+
+        void apply(Scene scene, Batch batch);
+    }
+
+    private static class Batch {
+
+        private final Map<GameObject, TransformChange> transformChanges = new IdentityHashMap<>();
+
+        TransformChange getTransformChange(GameObject gameObject) {
+            return transformChanges.computeIfAbsent(gameObject, key -> new TransformChange());
+        }
+
+        /**
+         * Applies pending transform change of the object, so commands recorded after it
+         * see it applied.
+         */
+        void flush(GameObject gameObject) {
+            TransformChange transformChange = transformChanges.remove(gameObject);
+            if (transformChange != null)
+                transformChange.applyTo(gameObject);
+        }
+    }
+
+    private static class TransformChange {
+
+        private Vector3f position;
+        private Quaternionf rotation;
+        private Vector3f scale;
+
+        void applyTo(GameObject gameObject) {
+            if (position != null)
+                gameObject.setPosition(position);
+            if (rotation != null)
+                gameObject.setRotation(rotation);
+            if (scale != null)
+                gameObject.setScale(scale);
+        }
+    }
+}
@@ -6,6 +6,8 @@ import com.horizon.engine.graphics.light.SpotLight;
 import lombok.Data;
 import org.joml.Vector3f;
 
+import java.util.Arrays;
+
 public @Data class SceneLight {
 
     private Vector3f ambientLight;
@@ -38,4 +40,18 @@ public @Data class SceneLight {
 
         spotLightList = spotLights;
     }
+
+    public void removePointLight(PointLight pointLight) {
+        if (pointLightList == null)
+            return;
+
+        pointLightList = Arrays.stream(pointLightList).filter(light -> light != pointLight).toArray(PointLight[]::new);
+    }
+
+    public void removeSpotLight(SpotLight spotLight) {
+        if (spotLightList == null)
+            return;
+
+        spotLightList = Arrays.stream(spotLightList).filter(light -> light != spotLight).toArray(SpotLight[]::new);
+    }
 }
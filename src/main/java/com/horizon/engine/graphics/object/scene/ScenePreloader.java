@@ -0,0 +1,232 @@
+package com.horizon.engine.graphics.object.scene;
+
+import com.horizon.engine.GameEngine;
+import com.horizon.engine.component.Component;
+import com.horizon.engine.component.ComponentType;
+import com.horizon.engine.component.component.mesh.Mesh;
+import com.horizon.engine.component.component.mesh.TerrainMesh;
+import com.horizon.engine.debug.Debugger;
+import com.horizon.engine.graphics.object.GameObject;
+import com.horizon.engine.graphics.render.snapshot.RenderSnapshot;
+import com.horizon.engine.graphics.render.snapshot.RenderSnapshotBuffer;
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Scene preloader builds next scene in the background while current one is rendered.
+ * Content of the scene is built on worker thread, its GL uploads are applied on the main
+ * thread within per-frame time budget. When the scene is ready, switch is a swap done at
+ * the engine sync point and GPU resources of the old scene are released over next frames.
+ *
+ * @apiNote In pipelined mode old scene is released only after renderer acquired snapshot of
+ *          the new scene, older snapshots still reference meshes of the old scene.
+ *
+ * @author Horizon
+ */
+public class ScenePreloader {
+
+    private static final String LOG_PREFIX = "Scene Preloader";
+
+    @Getter private final GameEngine gameEngine;
+
+    private Preload preload;
+    @Getter private volatile boolean ready;
+    @Getter private volatile boolean switchRequested;
+
+    private final Deque<Scene> retiredScenes;
+    private final Deque<Component> releaseQueue;
+
+    public ScenePreloader(GameEngine gameEngine) {
+        this.gameEngine = gameEngine;
+        this.retiredScenes = new ArrayDeque<>();
+        this.releaseQueue = new ArrayDeque<>();
+    }
+
+    /**
+     * Starts building of new scene. Should be called from the main thread.
+     * @param builder - Builder of the scene content, run on worker thread.
+     * @return - Future completed when scene is built and all of its uploads are done.
+     */
+    public CompletableFuture<Scene> preload(SceneBuilder builder) {
+        if (preload != null)
+            throw new IllegalStateException("Other scene is already being preloaded.");
+
+        Scene scene = new Scene(gameEngine);
+        scene.prepare();
+
+        Preload started = new Preload(scene);
+        preload = started;
+        ready = false;
+
+        Debugger.log(LOG_PREFIX, "Preloading new scene...");
+        gameEngine.getJobSystem().scheduleDetached("Scene Preload", () -> {
+            try {
+                builder.build(scene, scene.getCommandBuffer());
+                started.built = true;
+            } catch (Exception exception) {
+                Debugger.logError(LOG_PREFIX, "Scene preloading failed: " + exception);
+                started.future.completeExceptionally(exception);
+            }
+        });
+
+        return started.future;
+    }
+
+    public Scene getPreloadedScene() {
+        return preload != null ? preload.scene : null;
+    }
+
+    /**
+     * Switches to preloaded scene at the next sync point, immediately if it's ready,
+     * otherwise as soon as it becomes ready.
+     */
+    public void requestSwitch() {
+        if (preload == null)
+            throw new IllegalStateException("There is no preloaded scene to switch to.");
+
+        switchRequested = true;
+    }
+
+    public boolean isSwitchPending() {
+        return switchRequested && ready;
+    }
+
+    /**
+     * Applies uploads of the preloaded scene and releases resources of old scenes.
+     * Must be called from the main thread every frame. At least one upload and one release
+     * is done in every call, so preloading finishes even when frames have no time left.
+     * @param budget - Time in nanoseconds which can be spent in this frame.
+     */
+    public void update(long budget) {
+        long end = System.nanoTime() + budget;
+
+        if (preload != null && !ready) {
+            if (preload.future.isCompletedExceptionally()) {
+                reset();
+            } else if (preload.built) {
+                SceneCommandBuffer commandBuffer = preload.scene.getCommandBuffer();
+                do {
+                    commandBuffer.apply(preload.scene, 1);
+                } while (!commandBuffer.isEmpty() && System.nanoTime() < end);
+
+                if (commandBuffer.isEmpty()) {
+                    ready = true;
+                    Debugger.log(LOG_PREFIX, "Scene preloaded with " + preload.scene.getSceneObjects().size() + " objects.");
+                    preload.future.complete(preload.scene);
+                }
+            }
+        }
+
+        releaseRetiredScenes();
+
+        if (releaseQueue.isEmpty())
+            return;
+
+        do {
+            releaseComponent(releaseQueue.poll());
+        } while (!releaseQueue.isEmpty() && System.nanoTime() < end);
+    }
+
+    /**
+     * Swaps active scene if switch was requested and preloaded scene is ready.
+     * Must be called from the main thread at the engine sync point.
+     * @return - True if scene was switched.
+     */
+    public boolean applyPendingSwitch() {
+        if (!isSwitchPending())
+            return false;
+
+        Scene oldScene = gameEngine.getGameLogic().getScene();
+        gameEngine.getGameLogic().setScene(preload.scene);
+        preload.scene.activate();
+
+        if (oldScene != null)
+            retiredScenes.add(oldScene);
+
+        Debugger.log(LOG_PREFIX, "Switched to preloaded scene.");
+        reset();
+        return true;
+    }
+
+    /**
+     * Releases resources of preloaded scene which was not switched to, also uploads already
+     * applied by unfinished preload. Future of the preload is cancelled if it is not ready,
+     * commands its builder records after that are never applied.
+     */
+    public void cancel() {
+        if (preload == null)
+            return;
+
+        preload.future.completeExceptionally(new CancellationException("Scene preloading was cancelled."));
+        queueRelease(preload.scene);
+        reset();
+    }
+
+    public int getPendingReleases() {
+        return releaseQueue.size();
+    }
+
+    private void reset() {
+        preload = null;
+        ready = false;
+        switchRequested = false;
+    }
+
+    /**
+     * Render snapshots captured before the switch still reference old scenes, so they are
+     * released only after renderer acquired snapshot of the active scene.
+     */
+    private void releaseRetiredScenes() {
+        if (retiredScenes.isEmpty())
+            return;
+
+        RenderSnapshotBuffer snapshotBuffer = gameEngine.getRenderSnapshotBuffer();
+        RenderSnapshot snapshot = snapshotBuffer != null ? snapshotBuffer.getReadSnapshot() : null;
+        if (snapshot != null && snapshot.getScene() != gameEngine.getScene())
+            return;
+
+        while (!retiredScenes.isEmpty()) {
+            queueRelease(retiredScenes.poll());
+        }
+    }
+
+    private void queueRelease(Scene scene) {
+        Set<Component> meshes = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (GameObject gameObject : scene.getSceneObjects().values()) {
+            Component component = gameObject.getComponent(ComponentType.MESH);
+            if ((component instanceof Mesh || component instanceof TerrainMesh) && meshes.add(component))
+                releaseQueue.add(component);
+        }
+    }
+
+    private void releaseComponent(Component component) {
+        if (component instanceof TerrainMesh) {
+            ((TerrainMesh) component).cleanUp();
+        } else {
+            ((Mesh) component).cleanUp();
+            ((Mesh) component).cleanUpTexture();
+        }
+    }
+
+    /**
+     * State of one preload, so job of cancelled preload never changes state of the next one.
+     */
+    private static class Preload {
+
+        private final Scene scene;
+        private final CompletableFuture<Scene> future;
+        private volatile boolean built;
+
+        Preload(Scene scene) {
+            this.scene = scene;
+            this.future = new CompletableFuture<>();
+        }
+    }
+}
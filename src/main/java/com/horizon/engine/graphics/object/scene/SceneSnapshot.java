@@ -0,0 +1,624 @@
+package com.horizon.engine.graphics.object.scene;
+
+import com.horizon.engine.asset.prefab.Prefab;
+import com.horizon.engine.common.Color;
+import com.horizon.engine.component.component.light.DirectionalLightComponent;
+import com.horizon.engine.component.component.light.Light;
+import com.horizon.engine.component.component.light.SpotLightComponent;
+import com.horizon.engine.component.component.mesh.Mesh;
+import com.horizon.engine.component.component.mesh.TerrainMesh;
+import com.horizon.engine.debug.Debugger;
+import com.horizon.engine.graphics.data.Material;
+import com.horizon.engine.graphics.data.Transform;
+import com.horizon.engine.graphics.light.PointLight;
+import com.horizon.engine.graphics.light.SpotLight;
+import com.horizon.engine.graphics.object.GameObject;
+import com.horizon.engine.graphics.object.data.GameObjectTag;
+import com.horizon.engine.graphics.object.terrain.Terrain;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary snapshot of the scene content, objects created from prefabs with their handles,
+ * transforms, hierarchy, tags and colors, terrain data and lights. Snapshot is stored as
+ * arrays of values, so it is read from memory mapped file by bulk reads instead of parsing
+ * every object.
+ *
+ * @apiNote Objects are recreated from prefabs, so all prefabs used by the snapshot have to be
+ *          loaded before it is instantiated. Objects which were not created from prefab, except
+ *          terrain and lights, are not stored.
+ *
+ * @author Horizon
+ */
+public class SceneSnapshot {
+
+    private static final String LOG_PREFIX = "Scene Snapshot";
+
+    private static final int MAGIC = 0x4E535A48;
+    private static final int VERSION = 2;
+
+    // Floats stored for every object, light and material
+    private static final int TRANSFORM_FLOATS = 10;
+    private static final int MATERIAL_FLOATS = 13;
+    private static final int DIRECTIONAL_LIGHT_FLOATS = 14;
+    private static final int POINT_LIGHT_FLOATS = 10;
+    private static final int SPOT_LIGHT_FLOATS = 14;
+
+    //Objects
+    private String[] prefabNames;
+    private String[] objectNames;
+    private int[] handles;
+    private int[] parents;
+    private int[] prefabs;
+    private long[] tagMasks;
+    private int[] texturePositions;
+    private float[] transforms;
+    private int[] materialFlags;
+    private float[] materials;
+
+    //Terrain
+    private String terrainName;
+    private int terrainHandle;
+    private int terrainXSize;
+    private int terrainZSize;
+    private float[][] terrainHeights;
+    private float[] terrainVertices;
+    private float[] terrainColors;
+    private float[] terrainNormals;
+    private int[] terrainIndices;
+
+    //Lights
+    private float[] ambientLight;
+    private float[] directionalLight;
+    private float[] pointLights;
+    private float[] spotLights;
+
+    private SceneSnapshot() {
+
+    }
+
+    public int getObjectCount() {
+        return handles.length;
+    }
+
+    /**
+     * Writes content of the scene into the file.
+     * @param scene - Saved scene.
+     * @param path - File which is created or replaced.
+     */
+    public static void write(Scene scene, Path path) throws IOException {
+        long start = System.nanoTime();
+
+        List<GameObject> gameObjects = new ArrayList<>();
+        Map<GameObject, Integer> indices = new IdentityHashMap<>();
+        Map<String, Integer> prefabIndices = new LinkedHashMap<>();
+
+        for (GameObject gameObject : scene.getSceneObjects().values()) {
+            if (gameObject.getPrefabName() == null || gameObject.getMesh() == null)
+                continue;
+
+            indices.put(gameObject, gameObjects.size());
+            gameObjects.add(gameObject);
+            prefabIndices.putIfAbsent(gameObject.getPrefabName(), prefabIndices.size());
+        }
+
+        int count = gameObjects.size();
+        String[] objectNames = new String[count];
+        int[] handles = new int[count];
+        int[] parents = new int[count];
+        int[] prefabs = new int[count];
+        long[] tagMasks = new long[count];
+        int[] texturePositions = new int[count];
+        float[] transforms = new float[count * TRANSFORM_FLOATS];
+        int[] materialFlags = new int[count];
+        float[] materials = new float[count * MATERIAL_FLOATS];
+
+        for (int i = 0; i < count; i++) {
+            GameObject gameObject = gameObjects.get(i);
+            Integer parent = gameObject.getParent() != null ? indices.get(gameObject.getParent()) : null;
+
+            objectNames[i] = gameObject.getGameObjectName();
+            handles[i] = gameObject.getHandle();
+            parents[i] = parent != null ? parent : -1;
+            prefabs[i] = prefabIndices.get(gameObject.getPrefabName());
+            tagMasks[i] = gameObject.getTagMask();
+            texturePositions[i] = gameObject.getTexturePosition();
+
+            Transform transform = gameObject.getTransform();
+            int offset = i * TRANSFORM_FLOATS;
+            storeVector(transform.getPosition(), transforms, offset);
+            Quaternionf rotation = transform.getRotation();
+            transforms[offset + 3] = rotation.x();
+            transforms[offset + 4] = rotation.y();
+            transforms[offset + 5] = rotation.z();
+            transforms[offset + 6] = rotation.w();
+            storeVector(transform.getScale(), transforms, offset + 7);
+
+            // Textured materials come from prefab, only color materials are stored
+            Material material = gameObject.getMesh().getMaterial();
+            if (material != null && material.getTexture() == null) {
+                materialFlags[i] = 1;
+                offset = i * MATERIAL_FLOATS;
+                storeColor(material.getAmbientColour(), materials, offset);
+                storeColor(material.getDiffuseColour(), materials, offset + 4);
+                storeColor(material.getSpecularColour(), materials, offset + 8);
+                materials[offset + 12] = material.getReflectance();
+            }
+        }
+
+        SnapshotWriter writer = new SnapshotWriter();
+        writer.putInt(MAGIC);
+        writer.putInt(VERSION);
+
+        writer.putStrings(prefabIndices.keySet().toArray(new String[0]));
+        writer.putStrings(objectNames);
+        writer.putInts(handles);
+        writer.putInts(parents);
+        writer.putInts(prefabs);
+        writer.putLongs(tagMasks);
+        writer.putInts(texturePositions);
+        writer.putFloats(transforms);
+        writer.putInts(materialFlags);
+        writer.putFloats(materials);
+
+        writeTerrain(scene.getTerrain(), writer);
+        writeLights(scene.getSceneLight(), writer);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = writer.finish();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        Debugger.log(LOG_PREFIX, "Saved " + count + " objects into " + path + " in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+    }
+
+    private static void writeTerrain(Terrain terrain, SnapshotWriter writer) {
+        TerrainMesh mesh = terrain != null ? terrain.getTerrainMesh() : null;
+        writer.putInt(mesh != null ? 1 : 0);
+        if (mesh == null)
+            return;
+
+        float[][] heightMap = terrain.getHeightMap();
+        int rows = heightMap.length;
+        int columns = rows > 0 ? heightMap[0].length : 0;
+
+        float[] heights = new float[rows * columns];
+        for (int row = 0; row < rows; row++) {
+            System.arraycopy(heightMap[row], 0, heights, row * columns, columns);
+        }
+
+        writer.putStrings(new String[]{terrain.getGameObjectName()});
+        writer.putInt(terrain.getHandle());
+        writer.putInt(terrain.getXSize());
+        writer.putInt(terrain.getZSize());
+        writer.putInt(rows);
+        writer.putInt(columns);
+        writer.putFloats(heights);
+        writer.putFloats(mesh.getPositions());
+        writer.putFloats(mesh.getColors());
+        writer.putFloats(mesh.getNormals());
+        writer.putInts(mesh.getIndices());
+    }
+
+    private static void writeLights(SceneLight sceneLight, SnapshotWriter writer) {
+        float[] ambientLight = new float[3];
+        if (sceneLight.getAmbientLight() != null)
+            storeVector(sceneLight.getAmbientLight(), ambientLight, 0);
+        writer.putFloats(ambientLight);
+
+        float[] directional = new float[0];
+        if (sceneLight.getDirectionalLight() != null) {
+            DirectionalLightComponent light = sceneLight.getDirectionalLight().getDirectionalLight();
+            DirectionalLightComponent.OrthographicCoordinates coordinates = light.getOrthographicCoordinates();
+
+            directional = new float[DIRECTIONAL_LIGHT_FLOATS];
+            storeVector(light.getColor(), directional, 0);
+            storeVector(light.getDirection(), directional, 3);
+            directional[6] = light.getIntensity();
+            directional[7] = light.getShadowPosMulti();
+            directional[8] = coordinates.left;
+            directional[9] = coordinates.right;
+            directional[10] = coordinates.bottom;
+            directional[11] = coordinates.top;
+            directional[12] = coordinates.near;
+            directional[13] = coordinates.far;
+        }
+        writer.putFloats(directional);
+
+        PointLight[] pointLightList = sceneLight.getPointLightList() != null ? sceneLight.getPointLightList() : new PointLight[0];
+        float[] pointLights = new float[pointLightList.length * POINT_LIGHT_FLOATS];
+        for (int i = 0; i < pointLightList.length; i++) {
+            storeLight(pointLightList[i].getPointLight(), pointLights, i * POINT_LIGHT_FLOATS);
+        }
+        writer.putFloats(pointLights);
+
+        SpotLight[] spotLightList = sceneLight.getSpotLightList() != null ? sceneLight.getSpotLightList() : new SpotLight[0];
+        float[] spotLights = new float[spotLightList.length * SPOT_LIGHT_FLOATS];
+        for (int i = 0; i < spotLightList.length; i++) {
+            SpotLightComponent light = spotLightList[i].getSpotLight();
+            int offset = i * SPOT_LIGHT_FLOATS;
+
+            storeLight(light, spotLights, offset);
+            storeVector(light.getConeDirection(), spotLights, offset + POINT_LIGHT_FLOATS);
+            spotLights[offset + POINT_LIGHT_FLOATS + 3] = light.getCutOffAngle();
+        }
+        writer.putFloats(spotLights);
+    }
+
+    /**
+     * Reads snapshot from memory mapped file. Doesn't need GL context, so it can be called
+     * from worker thread.
+     * @param path - Snapshot file.
+     * @return - Snapshot which can be instantiated into the scene.
+     */
+    public static SceneSnapshot read(Path path) throws IOException {
+        long start = System.nanoTime();
+
+        SceneSnapshot snapshot = new SceneSnapshot();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mappedBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            read(new SnapshotReader(mappedBuffer), snapshot, path);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException exception) {
+            throw new IOException("Scene snapshot " + path + " is truncated or corrupted.", exception);
+        }
+
+        Debugger.log(LOG_PREFIX, "Read " + snapshot.getObjectCount() + " objects from " + path + " in " + (System.nanoTime() - start) / 1_000 / 1000.0f + " ms.");
+        return snapshot;
+    }
+
+    private static void read(SnapshotReader reader, SceneSnapshot snapshot, Path path) throws IOException {
+        if (reader.getInt() != MAGIC)
+            throw new IOException("File " + path + " is not scene snapshot.");
+
+        int version = reader.getInt();
+        if (version != VERSION)
+            throw new IOException("Scene snapshot version " + version + " is not supported.");
+
+        snapshot.prefabNames = reader.getStrings();
+        snapshot.objectNames = reader.getStrings();
+        snapshot.handles = reader.getInts();
+        snapshot.parents = reader.getInts();
+        snapshot.prefabs = reader.getInts();
+        snapshot.tagMasks = reader.getLongs();
+        snapshot.texturePositions = reader.getInts();
+        snapshot.transforms = reader.getFloats();
+        snapshot.materialFlags = reader.getInts();
+        snapshot.materials = reader.getFloats();
+
+        if (reader.getInt() != 0) {
+            String[] terrainNames = reader.getStrings();
+            if (terrainNames.length != 1)
+                throw new IOException("Terrain has to have one name.");
+
+            snapshot.terrainName = terrainNames[0];
+            snapshot.terrainHandle = reader.getInt();
+            snapshot.terrainXSize = reader.getInt();
+            snapshot.terrainZSize = reader.getInt();
+
+            int rows = reader.getInt();
+            int columns = reader.getInt();
+            float[] heights = reader.getFloats();
+            if (rows < 0 || columns < 0 || (long) rows * columns > heights.length)
+                throw new IOException("Terrain heights don't match their " + rows + "x" + columns + " size.");
+
+            snapshot.terrainHeights = new float[rows][columns];
+            for (int row = 0; row < rows; row++) {
+                System.arraycopy(heights, row * columns, snapshot.terrainHeights[row], 0, columns);
+            }
+
+            snapshot.terrainVertices = reader.getFloats();
+            snapshot.terrainColors = reader.getFloats();
+            snapshot.terrainNormals = reader.getFloats();
+            snapshot.terrainIndices = reader.getInts();
+        }
+
+        snapshot.ambientLight = reader.getFloats();
+        snapshot.directionalLight = reader.getFloats();
+        snapshot.pointLights = reader.getFloats();
+        snapshot.spotLights = reader.getFloats();
+
+        snapshot.validate();
+    }
+
+    /**
+     * Checks that arrays read from the file describe the same objects and every index
+     * points into its array, so instantiation never reads outside of them.
+     */
+    private void validate() throws IOException {
+        int count = handles.length;
+        if (objectNames.length != count || parents.length != count || prefabs.length != count || tagMasks.length != count
+                || texturePositions.length != count || materialFlags.length != count
+                || transforms.length != count * TRANSFORM_FLOATS || materials.length != count * MATERIAL_FLOATS)
+            throw new IOException("Object arrays of the scene snapshot have different lengths.");
+
+        for (int i = 0; i < count; i++) {
+            if (prefabs[i] < 0 || prefabs[i] >= prefabNames.length || parents[i] < -1 || parents[i] >= count)
+                throw new IOException("Object " + i + " of the scene snapshot has invalid prefab or parent.");
+        }
+
+        if (terrainVertices != null && (terrainXSize < 0 || terrainZSize < 0 || terrainColors.length < (long) terrainXSize * terrainZSize * 16))
+            throw new IOException("Terrain colors don't match terrain size.");
+
+        if (ambientLight.length != 3 || (directionalLight.length != 0 && directionalLight.length != DIRECTIONAL_LIGHT_FLOATS)
+                || pointLights.length % POINT_LIGHT_FLOATS != 0 || spotLights.length % SPOT_LIGHT_FLOATS != 0)
+            throw new IOException("Light arrays of the scene snapshot are invalid.");
+    }
+
+    /**
+     * Creates stored content in the scene. Must be called from the thread which owns GL context.
+     * @param scene - Scene where content is created, objects keep their handles if they are free.
+     */
+    public void instantiate(Scene scene) {
+        long start = System.nanoTime();
+
+        if (terrainVertices != null) {
+            Terrain terrain = new Terrain(scene.getGameEngine(), terrainName, terrainXSize, terrainZSize, terrainHeights, terrainVertices, terrainColors, terrainNormals, terrainIndices, false);
+            scene.instantiate(terrain, terrainHandle);
+        }
+
+        Map<String, Prefab> loadedPrefabs = scene.getGameEngine().getAssetManager().getLoadedPrefabs();
+        Prefab[] prefabList = new Prefab[prefabNames.length];
+        for (int i = 0; i < prefabNames.length; i++) {
+            prefabList[i] = loadedPrefabs.get(prefabNames[i]);
+            if (prefabList[i] == null)
+                Debugger.logError(LOG_PREFIX, "Prefab " + prefabNames[i] + " is not loaded, its objects are skipped.");
+        }
+
+        GameObject[] gameObjects = new GameObject[handles.length];
+        Quaternionf rotation = new Quaternionf();
+        for (int i = 0; i < gameObjects.length; i++) {
+            Prefab prefab = prefabList[prefabs[i]];
+            if (prefab == null)
+                continue;
+
+            GameObject gameObject = prefab.instantiateObject();
+            gameObject.setGameObjectName(objectNames[i]);
+            gameObject.setTexturePosition(texturePositions[i]);
+
+            int offset = i * TRANSFORM_FLOATS;
+            gameObject.setPosition(transforms[offset], transforms[offset + 1], transforms[offset + 2]);
+            gameObject.setRotation(rotation.set(transforms[offset + 3], transforms[offset + 4], transforms[offset + 5], transforms[offset + 6]));
+
+            // Scale is applied to mesh positions, so it is set only when it differs from prefab one
+            Vector3f scale = gameObject.getTransform().getScale();
+            if (scale.x() != transforms[offset + 7] || scale.y() != transforms[offset + 8] || scale.z() != transforms[offset + 9])
+                gameObject.setScale(transforms[offset + 7], transforms[offset + 8], transforms[offset + 9]);
+
+            for (GameObjectTag tag : GameObjectTag.values()) {
+                if ((tagMasks[i] & tag.getMask()) != 0)
+                    gameObject.addTag(tag);
+            }
+
+            Mesh mesh = gameObject.getMesh();
+            if (materialFlags[i] != 0 && mesh != null) {
+                offset = i * MATERIAL_FLOATS;
+                mesh.setMaterial(new Material(loadColor(materials, offset), loadColor(materials, offset + 4), loadColor(materials, offset + 8), null, materials[offset + 12]));
+            }
+
+            scene.instantiate(gameObject, handles[i]);
+            gameObjects[i] = gameObject;
+        }
+
+        for (int i = 0; i < gameObjects.length; i++) {
+            if (gameObjects[i] != null && parents[i] >= 0 && gameObjects[parents[i]] != null)
+                gameObjects[i].setParent(gameObjects[parents[i]]);
+        }
+
+        // Lights get new handles, so they are created after objects which keep theirs
+        instantiateLights(scene);
+
+        Debugger.log(LOG_PREFIX, "Instantiated " + gameObjects.length + " objects in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+    }
+
+    private void instantiateLights(Scene scene) {
+        SceneLight sceneLight = scene.getSceneLight();
+        sceneLight.setAmbientLight(new Vector3f(ambientLight[0], ambientLight[1], ambientLight[2]));
+
+        if (directionalLight.length > 0 && sceneLight.getDirectionalLight() != null) {
+            DirectionalLightComponent light = sceneLight.getDirectionalLight().getDirectionalLight();
+            light.setColor(new Vector3f(directionalLight[0], directionalLight[1], directionalLight[2]));
+            light.setDirection(new Vector3f(directionalLight[3], directionalLight[4], directionalLight[5]));
+            light.setIntensity(directionalLight[6]);
+            light.setShadowPosMulti(directionalLight[7]);
+            light.setOrthographicCoordinates(directionalLight[8], directionalLight[9], directionalLight[10], directionalLight[11], directionalLight[12], directionalLight[13]);
+        }
+
+        for (int offset = 0; offset < pointLights.length; offset += POINT_LIGHT_FLOATS) {
+            float[] data = pointLights;
+            scene.instantiate(new PointLight(scene.getGameEngine(), new Vector3f(data[offset], data[offset + 1], data[offset + 2]), new Vector3f(data[offset + 3], data[offset + 4], data[offset + 5]), data[offset + 6],
+                    new Light.Attenuation(data[offset + 7], data[offset + 8], data[offset + 9])));
+        }
+
+        for (int offset = 0; offset < spotLights.length; offset += SPOT_LIGHT_FLOATS) {
+            float[] data = spotLights;
+            scene.instantiate(new SpotLight(scene.getGameEngine(), new Vector3f(data[offset], data[offset + 1], data[offset + 2]), new Vector3f(data[offset + 3], data[offset + 4], data[offset + 5]), data[offset + 6],
+                    new Light.Attenuation(data[offset + 7], data[offset + 8], data[offset + 9]), new Vector3f(data[offset + 10], data[offset + 11], data[offset + 12]), data[offset + 13]));
+        }
+    }
+
+    private static void storeLight(Light light, float[] data, int offset) {
+        storeVector(light.getColor(), data, offset);
+        storeVector(light.getPosition(), data, offset + 3);
+        data[offset + 6] = light.getIntensity();
+
+        Light.Attenuation attenuation = light.getAttenuation();
+        data[offset + 7] = attenuation.getConstant();
+        data[offset + 8] = attenuation.getLinear();
+        data[offset + 9] = attenuation.getExponent();
+    }
+
+    private static void storeVector(Vector3f vector, float[] data, int offset) {
+        data[offset] = vector.x();
+        data[offset + 1] = vector.y();
+        data[offset + 2] = vector.z();
+    }
+
+    private static void storeColor(Color color, float[] data, int offset) {
+        data[offset] = color.getRedValue();
+        data[offset + 1] = color.getGreenValue();
+        data[offset + 2] = color.getBlueValue();
+        data[offset + 3] = color.getAlphaValue();
+    }
+
+    private static Color loadColor(float[] data, int offset) {
+        return new Color(data[offset], data[offset + 1], data[offset + 2], data[offset + 3]);
+    }
+
+    /**
+     * Growing little endian buffer, arrays are stored with their length.
+     */
+    private static class SnapshotWriter {
+
+        private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+        void putInt(int value) {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putInts(int[] values) {
+            putInt(values.length);
+            ensure(values.length * 4);
+            buffer.asIntBuffer().put(values);
+            buffer.position(buffer.position() + values.length * 4);
+        }
+
+        void putLongs(long[] values) {
+            putInt(values.length);
+            ensure(values.length * 8);
+            buffer.asLongBuffer().put(values);
+            buffer.position(buffer.position() + values.length * 8);
+        }
+
+        void putFloats(float[] values) {
+            putInt(values.length);
+            ensure(values.length * 4);
+            buffer.asFloatBuffer().put(values);
+            buffer.position(buffer.position() + values.length * 4);
+        }
+
+        /**
+         * Strings are stored as offsets into one UTF-8 block.
+         */
+        void putStrings(String[] values) {
+            int[] offsets = new int[values.length + 1];
+            byte[][] bytes = new byte[values.length][];
+            for (int i = 0; i < values.length; i++) {
+                bytes[i] = values[i].getBytes(StandardCharsets.UTF_8);
+                offsets[i + 1] = offsets[i] + bytes[i].length;
+            }
+
+            putInts(offsets);
+            ensure(offsets[values.length]);
+            for (byte[] value : bytes) {
+                buffer.put(value);
+            }
+        }
+
+        ByteBuffer finish() {
+            buffer.flip();
+            return buffer;
+        }
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() >= bytes)
+                return;
+
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes)).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+
+    /**
+     * Every length is checked against the rest of the file before an array is allocated,
+     * so corrupted file fails with <code>IOException</code>.
+     */
+    private static class SnapshotReader {
+
+        private final ByteBuffer buffer;
+
+        SnapshotReader(ByteBuffer buffer) {
+            this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        int getInt() {
+            return buffer.getInt();
+        }
+
+        int[] getInts() throws IOException {
+            int[] values = new int[getLength(4)];
+            buffer.asIntBuffer().get(values);
+            buffer.position(buffer.position() + values.length * 4);
+            return values;
+        }
+
+        long[] getLongs() throws IOException {
+            long[] values = new long[getLength(8)];
+            buffer.asLongBuffer().get(values);
+            buffer.position(buffer.position() + values.length * 8);
+            return values;
+        }
+
+        float[] getFloats() throws IOException {
+            float[] values = new float[getLength(4)];
+            buffer.asFloatBuffer().get(values);
+            buffer.position(buffer.position() + values.length * 4);
+            return values;
+        }
+
+        String[] getStrings() throws IOException {
+            int[] offsets = getInts();
+            if (offsets.length == 0 || offsets[0] != 0)
+                throw new IOException("Invalid string offsets.");
+
+            for (int i = 1; i < offsets.length; i++) {
+                if (offsets[i] < offsets[i - 1])
+                    throw new IOException("String offsets are not ascending.");
+            }
+
+            if (offsets[offsets.length - 1] > buffer.remaining())
+                throw new IOException("Strings are longer than the rest of the file.");
+
+            byte[] bytes = new byte[offsets[offsets.length - 1]];
+            buffer.get(bytes);
+
+            String[] values = new String[offsets.length - 1];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = new String(bytes, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+            }
+
+            return values;
+        }
+
+        /**
+         * @param elementBytes - Size of one element of the array.
+         * @return - Length of the next array.
+         */
+        private int getLength(int elementBytes) throws IOException {
+            int length = getInt();
+            if (length < 0 || length > buffer.remaining() / elementBytes)
+                throw new IOException("Array length " + length + " doesn't fit into the rest of the file.");
+
+            return length;
+        }
+    }
+}
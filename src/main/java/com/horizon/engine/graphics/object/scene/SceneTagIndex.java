@@ -0,0 +1,71 @@
+package com.horizon.engine.graphics.object.scene;
+
+import com.horizon.engine.graphics.object.GameObject;
+import com.horizon.engine.graphics.object.data.GameObjectTag;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Live index of scene objects for every tag. Game object registered in the index reports
+ * its tag changes, so all objects with a tag can be iterated without scanning the scene.
+ *
+ * @author Horizon
+ */
+public class SceneTagIndex {
+
+    private final Set<GameObject>[] taggedObjects;
+    private final Set<GameObject>[] taggedObjectViews;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public SceneTagIndex() {
+        GameObjectTag[] tags = GameObjectTag.values();
+        this.taggedObjects = new Set[tags.length];
+        this.taggedObjectViews = new Set[tags.length];
+
+        for (int i = 0; i < tags.length; i++) {
+            taggedObjects[i] = Collections.newSetFromMap(new IdentityHashMap<>());
+            taggedObjectViews[i] = Collections.unmodifiableSet(taggedObjects[i]);
+        }
+    }
+
+    public void register(GameObject gameObject) {
+        gameObject.setTagIndex(this);
+
+        for (GameObjectTag tag : GameObjectTag.values()) {
+            if (gameObject.hasTag(tag))
+                taggedObjects[tag.ordinal()].add(gameObject);
+        }
+    }
+
+    public void unregister(GameObject gameObject) {
+        if (gameObject.getTagIndex() != this)
+            return;
+
+        gameObject.setTagIndex(null);
+
+        for (GameObjectTag tag : GameObjectTag.values()) {
+            if (gameObject.hasTag(tag))
+                taggedObjects[tag.ordinal()].remove(gameObject);
+        }
+    }
+
+    /**
+     * Called by the game object when its tag is added or removed.
+     */
+    public void onTagChanged(GameObject gameObject, GameObjectTag tag, boolean added) {
+        if (added) {
+            taggedObjects[tag.ordinal()].add(gameObject);
+        } else {
+            taggedObjects[tag.ordinal()].remove(gameObject);
+        }
+    }
+
+    /**
+     * @return - Unmodifiable live view of the objects with inserted tag.
+     */
+    public Set<GameObject> getObjects(GameObjectTag tag) {
+        return taggedObjectViews[tag.ordinal()];
+    }
+}
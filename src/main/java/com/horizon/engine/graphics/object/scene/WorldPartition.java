@@ -0,0 +1,345 @@
+package com.horizon.engine.graphics.object.scene;
+
+import com.horizon.engine.component.component.mesh.InstancedMesh;
+import com.horizon.engine.component.component.mesh.Mesh;
+import com.horizon.engine.data.ApplicationData;
+import com.horizon.engine.graphics.object.GameObject;
+import lombok.Getter;
+import org.joml.Vector3f;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * World partition splits the scene into fixed size cells on XZ plane. Only cells within
+ * streaming radius around the camera are loaded, objects of other cells are parked. Parked
+ * object stays in the scene, but it is not in render lists or entity storage and its mesh
+ * has no GPU buffers. Cells are streamed in and out over multiple frames within per-frame
+ * time budget.
+ *
+ * @apiNote Scene adds every instantiated object with mesh when partitioning is enabled,
+ *          everything else stays resident. Moved objects are queued from any thread and
+ *          relocated to the cell of their new position in <code>update()</code>. In pipelined
+ *          mode partition is updated only at the scene command sync point, so live transforms
+ *          are read while simulation waits.
+ *
+ * @author Horizon
+ */
+public class WorldPartition {
+
+    private final Scene scene;
+
+    private final Map<Long, Cell> cells;
+    private final Map<GameObject, Cell> objectCells;
+
+    private final Queue<Cell> streamQueue;
+    private final Set<GameObject> parkedObjects;
+    private final Set<GameObject> movedObjects;
+    private final List<GameObject> relocatedObjects;
+
+    private final Vector3f worldPosition;
+
+    private boolean cameraCellValid;
+    private int cameraCellX;
+    private int cameraCellZ;
+
+    @Getter private int loadedCells;
+
+    public WorldPartition(Scene scene) {
+        this.scene = scene;
+        this.cells = new HashMap<>();
+        this.objectCells = new IdentityHashMap<>();
+        this.streamQueue = new ArrayDeque<>();
+        this.parkedObjects = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.movedObjects = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.relocatedObjects = new ArrayList<>();
+        this.worldPosition = new Vector3f();
+    }
+
+    /**
+     * Adds instantiated object into the partition. Object in a cell which is not
+     * loaded is parked immediately.
+     * @param gameObject - Game object which is already part of the scene.
+     */
+    public void add(GameObject gameObject) {
+        if (objectCells.containsKey(gameObject))
+            return;
+
+        Cell cell = getCell(gameObject.getTransform().getWorldPosition(worldPosition));
+        cell.objects.add(gameObject);
+        objectCells.put(gameObject, cell);
+        gameObject.setWorldPartition(this);
+
+        if (!cell.loaded)
+            park(gameObject);
+    }
+
+    /**
+     * Removes object from the partition. Parked object is unparked, so it is in
+     * the same state as other scene objects.
+     */
+    public void remove(GameObject gameObject) {
+        remove(gameObject, true);
+    }
+
+    /**
+     * @param release - If object was already removed from the scene, true releases its mesh,
+     *                  false restores its buffers so the object can be instantiated again.
+     */
+    public void remove(GameObject gameObject, boolean release) {
+        Cell cell = objectCells.remove(gameObject);
+        if (cell == null)
+            return;
+
+        gameObject.setWorldPartition(null);
+
+        // Objects are streamed by index, so removal before the index must not skip the next one
+        int index = cell.objects.indexOf(gameObject);
+        cell.objects.remove(index);
+        if (index < cell.streamIndex)
+            cell.streamIndex--;
+
+        if (!parkedObjects.contains(gameObject))
+            return;
+
+        if (scene.getSceneObjects().get(gameObject.getGameObjectName()) == gameObject) {
+            unpark(gameObject);
+            return;
+        }
+
+        // Object was removed from the scene while parked, its buffers are already released
+        parkedObjects.remove(gameObject);
+        Mesh mesh = gameObject.getMesh();
+        if (mesh == null || mesh instanceof InstancedMesh)
+            return;
+
+        if (release) {
+            mesh.cleanUp();
+        } else {
+            mesh.upload();
+        }
+    }
+
+    /**
+     * Queues object whose world transform changed. Can be called from any thread.
+     */
+    public synchronized void markMoved(GameObject gameObject) {
+        movedObjects.add(gameObject);
+    }
+
+    /**
+     * Moves object into cell matching its current position.
+     */
+    public void relocate(GameObject gameObject) {
+        if (!needsRelocation(gameObject))
+            return;
+
+        remove(gameObject);
+        add(gameObject);
+    }
+
+    private boolean needsRelocation(GameObject gameObject) {
+        Cell cell = objectCells.get(gameObject);
+        return cell != null && cell != getCell(gameObject.getTransform().getWorldPosition(worldPosition));
+    }
+
+    /**
+     * Drops moved objects which are still in their cell, so only real relocations need
+     * an update. Called from the thread which changes the scene.
+     * @param cameraPosition - Position of the scene camera.
+     * @return - True if <code>update()</code> has some work to do.
+     */
+    public boolean isUpdatePending(Vector3f cameraPosition) {
+        synchronized (this) {
+            movedObjects.removeIf(gameObject -> !needsRelocation(gameObject));
+            if (!movedObjects.isEmpty())
+                return true;
+        }
+
+        float cellSize = ApplicationData.getPartitionCellSize();
+        return !streamQueue.isEmpty() || !cameraCellValid || (int) Math.floor(cameraPosition.x() / cellSize) != cameraCellX
+                || (int) Math.floor(cameraPosition.z() / cellSize) != cameraCellZ;
+    }
+
+    /**
+     * Relocates moved objects, updates set of the loaded cells for current camera position
+     * and streams cells in and out. At least one object is streamed in every call, so
+     * streaming finishes even when frames have no time left. Must be called from the main thread.
+     * @param cameraPosition - Position of the scene camera.
+     * @param budget - Time in nanoseconds which can be spent on streaming in this frame.
+     */
+    public void update(Vector3f cameraPosition, long budget) {
+        long end = System.nanoTime() + budget;
+
+        synchronized (this) {
+            relocatedObjects.addAll(movedObjects);
+            movedObjects.clear();
+        }
+
+        for (GameObject gameObject : relocatedObjects) {
+            relocate(gameObject);
+        }
+        relocatedObjects.clear();
+
+        float cellSize = ApplicationData.getPartitionCellSize();
+        int cellX = (int) Math.floor(cameraPosition.x() / cellSize);
+        int cellZ = (int) Math.floor(cameraPosition.z() / cellSize);
+
+        if (!cameraCellValid || cellX != cameraCellX || cellZ != cameraCellZ) {
+            cameraCellValid = true;
+            cameraCellX = cellX;
+            cameraCellZ = cellZ;
+
+            for (Cell cell : cells.values()) {
+                boolean wanted = isWanted(cell);
+                if (wanted != cell.targetLoaded) {
+                    cell.targetLoaded = wanted;
+                    cell.streamIndex = 0;
+                    if (!cell.queued) {
+                        cell.queued = true;
+                        streamQueue.add(cell);
+                    }
+                }
+            }
+        }
+
+        if (streamQueue.isEmpty())
+            return;
+
+        do {
+            Cell cell = streamQueue.peek();
+            if (cell.stream(this, end)) {
+                cell.queued = false;
+                streamQueue.poll();
+            }
+        } while (!streamQueue.isEmpty() && System.nanoTime() < end);
+    }
+
+    /**
+     * Cells are loaded within streaming radius and unloaded only after they leave the
+     * radius increased by one cell, so camera moving on cell border doesn't cause thrashing.
+     */
+    private boolean isWanted(Cell cell) {
+        float cellSize = ApplicationData.getPartitionCellSize();
+        int radius = (int) Math.ceil(ApplicationData.getPartitionStreamingRadius() / cellSize);
+        if (cell.loaded)
+            radius++;
+
+        return Math.abs(cell.x - cameraCellX) <= radius && Math.abs(cell.z - cameraCellZ) <= radius;
+    }
+
+    public int getPendingCells() {
+        return streamQueue.size();
+    }
+
+    public int getParkedObjects() {
+        return parkedObjects.size();
+    }
+
+    public boolean isParked(GameObject gameObject) {
+        return parkedObjects.contains(gameObject);
+    }
+
+    public int getCellCount() {
+        return cells.size();
+    }
+
+    private Cell getCell(Vector3f position) {
+        float cellSize = ApplicationData.getPartitionCellSize();
+        int x = (int) Math.floor(position.x() / cellSize);
+        int z = (int) Math.floor(position.z() / cellSize);
+
+        long key = ((long) x << 32) | (z & 0xFFFFFFFFL);
+        Cell cell = cells.get(key);
+        if (cell == null) {
+            cell = new Cell(x, z);
+            cell.loaded = !cameraCellValid || isWanted(cell);
+            cell.targetLoaded = cell.loaded;
+            cells.put(key, cell);
+
+            if (cell.loaded)
+                loadedCells++;
+        }
+
+        return cell;
+    }
+
+    private void park(GameObject gameObject) {
+        if (!parkedObjects.add(gameObject))
+            return;
+
+        scene.getEntityStorage().remove(gameObject);
+
+        Mesh mesh = gameObject.getMesh();
+        if (scene.unregisterMesh(gameObject) && !(mesh instanceof InstancedMesh))
+            mesh.releaseBuffers();
+    }
+
+    private void unpark(GameObject gameObject) {
+        if (!parkedObjects.remove(gameObject))
+            return;
+
+        Mesh mesh = gameObject.getMesh();
+        if (mesh != null && !(mesh instanceof InstancedMesh))
+            mesh.upload();
+
+        scene.addMesh(gameObject);
+        if (scene.isEntityStorageEnabled())
+            scene.getEntityStorage().add(gameObject);
+    }
+
+    private static class Cell {
+
+        private final int x;
+        private final int z;
+        private final List<GameObject> objects;
+
+        private boolean loaded = true;
+        private boolean targetLoaded = true;
+        private boolean queued;
+
+        /**
+         * Index of the next object which has to be streamed, so cell can be streamed
+         * over multiple frames.
+         */
+        private int streamIndex;
+
+        Cell(int x, int z) {
+            this.x = x;
+            this.z = z;
+            this.objects = new ArrayList<>();
+        }
+
+        /**
+         * Streams at least one object before the time is checked.
+         * @return - True if the cell reached its target state.
+         */
+        boolean stream(WorldPartition partition, long end) {
+            // Objects already in target state are skipped, so stream can be restarted any time
+            while (streamIndex < objects.size()) {
+                GameObject gameObject = objects.get(streamIndex++);
+                if (targetLoaded) {
+                    partition.unpark(gameObject);
+                } else {
+                    partition.park(gameObject);
+                }
+
+                if (streamIndex < objects.size() && System.nanoTime() >= end)
+                    return false;
+            }
+
+            streamIndex = 0;
+            if (loaded != targetLoaded)
+                partition.loadedCells += targetLoaded ? 1 : -1;
+            loaded = targetLoaded;
+            return true;
+        }
+    }
+}
@@ -6,11 +6,13 @@ import com.horizon.engine.common.ColorPalette;
 import com.horizon.engine.common.UtilDataStore;
 import com.horizon.engine.common.UtilNormalGenerator;
 import com.horizon.engine.common.random.PerlinNoise;
+import com.horizon.engine.component.ComponentType;
 import com.horizon.engine.component.component.generator.BiomeGenerator;
 import com.horizon.engine.component.component.mesh.TerrainMesh;
 import com.horizon.engine.debug.Debugger;
 import com.horizon.engine.graphics.data.Material;
 import com.horizon.engine.graphics.object.GameObject;
+import com.horizon.engine.job.JobSystem;
 import lombok.Getter;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
@@ -30,16 +32,29 @@ public class Terrain extends GameObject {
     protected int xVertexCount;
     protected int zVertexCount;
 
-    private final float[][] heightMap;
+    @Getter private final float[][] heightMap;
 
     @Getter private final float size = 10.0f;
     @Getter private final Map<Vector2f, TerrainSquare> terrainSquareMap = new HashMap<>();
 
+    /**
+     * Generated mesh data waiting for upload.
+     */
+    private TerrainMeshData meshData;
+
     public Terrain(GameEngine gameEngine, String terrainName, int xSize, int zSize) {
         this(gameEngine, terrainName, xSize, zSize, new PerlinNoise(5f, 3, 0.3f, 589454546), new ColorPalette(new Color[]{new Color(240.0f, 250.0f, 255.0f)}));
     }
 
     public Terrain(GameEngine gameEngine, String terrainName, int xSize, int zSize, PerlinNoise heightNoise, ColorPalette biomePalette) {
+        this(gameEngine, terrainName, xSize, zSize, heightNoise, biomePalette, true);
+    }
+
+    /**
+     * @param uploadMesh - When false, only CPU data of the mesh is generated, so terrain can be
+     *                   created on worker thread. Mesh is uploaded when terrain is instantiated.
+     */
+    public Terrain(GameEngine gameEngine, String terrainName, int xSize, int zSize, PerlinNoise heightNoise, ColorPalette biomePalette, boolean uploadMesh) {
         super(gameEngine, terrainName);
 
         this.heightNoise = heightNoise;
@@ -55,9 +70,53 @@ public class Terrain extends GameObject {
 
         Debugger.log("Terrain", "Generating terrain mesh...");
 
-        TerrainMesh terrainMesh = generateTerrain();
+        generateTerrainData();
+        if (uploadMesh)
+            uploadMesh();
+    }
+
+    /**
+     * Creates terrain from saved data, heights and mesh are not generated again, so height
+     * noise and biome generator of this terrain are null.
+     * @param heightMap - Heights of the terrain corners.
+     * @param vertices - Vertices of the terrain mesh, colors of the squares are read from mesh colors.
+     * @param uploadMesh - When false, mesh is uploaded when terrain is instantiated.
+     */
+    public Terrain(GameEngine gameEngine, String terrainName, int xSize, int zSize, float[][] heightMap, float[] vertices, float[] colors, float[] normals, int[] indices, boolean uploadMesh) {
+        super(gameEngine, terrainName);
+
+        this.xSize = xSize;
+        this.zSize = zSize;
+
+        this.xVertexCount = xSize * 2;
+        this.zVertexCount = zSize * 2;
+
+        this.heightMap = heightMap;
+
+        Color[] squareColors = new Color[xSize * zSize];
+        Vector4f color = new Vector4f();
+        for (int i = 0; i < squareColors.length; i++) {
+            squareColors[i] = new Color(color.set(colors[i * 16], colors[i * 16 + 1], colors[i * 16 + 2], colors[i * 16 + 3]));
+        }
+
+        createSquares(squareColors);
+        meshData = new TerrainMeshData(vertices, colors, normals, indices);
+        if (uploadMesh)
+            uploadMesh();
+    }
+
+    /**
+     * Creates terrain mesh from generated data. Must be called from the thread which
+     * owns GL context, does nothing if mesh was already uploaded.
+     */
+    public void uploadMesh() {
+        if (meshData == null)
+            return;
+
+        TerrainMesh terrainMesh = new TerrainMesh(meshData.vertices, meshData.colors, meshData.normals, meshData.indices);
         terrainMesh.setMaterial(new Material(Color.WHITE));
         addComponent(terrainMesh);
+        meshData = null;
 
         Debugger.log("Terrain", "Terrain mesh generated.");
         Debugger.log("Terrain", "Vertices: " + terrainMesh.getVertexCount());
@@ -76,11 +135,41 @@ public class Terrain extends GameObject {
      * @return - Terrain mesh
      */
     public TerrainMesh generateTerrain() {
+        generateTerrainData();
+
+        TerrainMesh terrainMesh = new TerrainMesh(meshData.vertices, meshData.colors, meshData.normals, meshData.indices);
+        meshData = null;
+        return terrainMesh;
+    }
+
+    /**
+     * Generates CPU side data of the terrain mesh, doesn't need GL context.
+     */
+    private void generateTerrainData() {
         float[] vertices = new float[(zVertexCount * xSize) * 9];
         float[] colors = new float[(zVertexCount * xSize) * 8];
         float[] normals = new float[(zVertexCount * xSize) * 8];
         int[] indices = new int[(zVertexCount * xSize) * 3];
 
+        TerrainSquare[] squares = createSquares(biomeGenerator.getColors());
+
+        // Every square writes only into its own part of the arrays
+        JobSystem jobSystem = getGameEngine() != null ? getGameEngine().getJobSystem() : null;
+        if (jobSystem != null) {
+            jobSystem.parallelFor(0, squares.length, (from, to) -> storeSquares(squares, from, to, vertices, colors, normals, indices));
+        } else {
+            storeSquares(squares, 0, squares.length, vertices, colors, normals, indices);
+        }
+
+        meshData = new TerrainMeshData(vertices, colors, normals, indices);
+    }
+
+    /**
+     * @param squareColors - Colors indexed by square id.
+     */
+    private TerrainSquare[] createSquares(Color[] squareColors) {
+        // Squares share corners with their neighbours, so they have to be created in order
+        TerrainSquare[] squares = new TerrainSquare[xSize * zSize];
         for(int x = 0; x < xSize; x++) {
             for(int z = 0; z < zSize; z++) {
                 TerrainSquare square = new TerrainSquare(this, new Vector2f(x, z),
@@ -89,18 +178,25 @@ public class Terrain extends GameObject {
                                 z == 0 ? 0 : size * z),
                         null);
 
-                square.setColor(biomeGenerator.getColors()[square.getSquareId()]);
-
-                storeSquareVertices(vertices, square);
-                storeSquareColors(colors, square);
-                storeSquareNormals(normals, square);
-                storeSquareIndices(indices, square);
+                square.setColor(squareColors[square.getSquareId()]);
+                squares[x * zSize + z] = square;
 
                 terrainSquareMap.put(square.getSquareIndex(), square);
             }
         }
 
-        return new TerrainMesh(vertices, colors, normals, indices);
+        return squares;
+    }
+
+    private void storeSquares(TerrainSquare[] squares, int from, int to, float[] vertices, float[] colors, float[] normals, int[] indices) {
+        for (int i = from; i < to; i++) {
+            TerrainSquare square = squares[i];
+
+            storeSquareVertices(vertices, square);
+            storeSquareColors(colors, square);
+            storeSquareNormals(normals, square);
+            storeSquareIndices(indices, square);
+        }
     }
 
     private void storeSquareVertices(float[] vertices, TerrainSquare square) {
@@ -160,7 +256,29 @@ public class Terrain extends GameObject {
 
     }
 
+    /**
+     * @return - Mesh of the terrain or null if it is not uploaded yet.
+     */
+    public TerrainMesh getTerrainMesh() {
+        return (TerrainMesh) getComponent(ComponentType.MESH);
+    }
+
     public float getHeight(int x, int z) {
         return heightMap[x][z];
     }
+
+    private static class TerrainMeshData {
+
+        private final float[] vertices;
+        private final float[] colors;
+        private final float[] normals;
+        private final int[] indices;
+
+        TerrainMeshData(float[] vertices, float[] colors, float[] normals, int[] indices) {
+            this.vertices = vertices;
+            this.colors = colors;
+            this.normals = normals;
+            this.indices = indices;
+        }
+    }
 }
@@ -0,0 +1,269 @@
+package com.horizon.engine.graphics.render;
+
+import com.horizon.engine.graphics.object.GameObject;
+import com.horizon.engine.graphics.object.scene.BoundingVolumeHierarchy;
+import lombok.Getter;
+import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Frustum results of one view kept between frames. Reference frame queries the bounding
+ * volume hierarchy with planes moved outwards by a margin and stores every returned leaf
+ * box with its distance from the reference planes. Following frames reuse results of
+ * boxes whose distance is larger than the plane movement since the reference frame, so
+ * only boxes near the planes are tested again.
+ *
+ * @apiNote Plane moves at most by its normal change times distance from the reference
+ *          near plane plus its distance change at that point. Reference is replaced when
+ *          the tree changed, the frustum left the enlarged reference frustum or too many
+ *          boxes had to be tested again.
+ *
+ * @author Horizon
+ */
+public class CullingCache {
+
+    private static final int PLANE_COUNT = 6;
+    private static final int CORNER_COUNT = 8;
+
+    /**
+     * Distance the reference planes are moved by, boxes farther outside are not stored.
+     */
+    private static final float REFERENCE_MARGIN = 8.0f;
+
+    /**
+     * Reference is replaced when this fraction of stored boxes had to be tested again.
+     */
+    private static final float RETEST_FRACTION = 0.25f;
+
+    // Planes are stored as normal x, y, z and distance
+    private final float[] planes;
+    private final float[] corners;
+    private final float[] referencePlanes;
+    private final Vector3f referenceOrigin;
+    private int referenceVersion;
+    private boolean referenceValid;
+
+    //Boxes of the reference frame stored as center and extent
+    private GameObject[] objects;
+    private float[] boxes;
+    private float[] slacks;
+    private float[] distances;
+    private boolean[] results;
+    private int size;
+
+    /**
+     * Number of boxes tested by the last query, every stored box for reference frame.
+     */
+    @Getter private int testedBoxes;
+
+    private final List<GameObject> queriedObjects;
+    private final Vector4f plane;
+    private final Vector3f boundsMin;
+    private final Vector3f boundsMax;
+
+    public CullingCache() {
+        this.planes = new float[PLANE_COUNT * 4];
+        this.corners = new float[CORNER_COUNT * 3];
+        this.referencePlanes = new float[PLANE_COUNT * 4];
+        this.referenceOrigin = new Vector3f();
+        this.queriedObjects = new ArrayList<>();
+        this.plane = new Vector4f();
+        this.boundsMin = new Vector3f();
+        this.boundsMax = new Vector3f();
+
+        allocate(64);
+    }
+
+    /**
+     * @param projectionViewMatrix - Frustum of the frame.
+     */
+    public void update(Matrix4f projectionViewMatrix) {
+        for (int i = 0; i < PLANE_COUNT; i++) {
+            projectionViewMatrix.frustumPlane(i, plane);
+            planes[i * 4] = plane.x;
+            planes[i * 4 + 1] = plane.y;
+            planes[i * 4 + 2] = plane.z;
+            planes[i * 4 + 3] = plane.w;
+        }
+
+        for (int i = 0; i < CORNER_COUNT; i++) {
+            projectionViewMatrix.frustumCorner(i, boundsMin);
+            corners[i * 3] = boundsMin.x;
+            corners[i * 3 + 1] = boundsMin.y;
+            corners[i * 3 + 2] = boundsMin.z;
+        }
+    }
+
+    /**
+     * Adds objects whose leaf box intersects frustum of the frame, same objects as frustum
+     * query of the tree adds.
+     * @param boundingVolumes - Updated tree.
+     * @param result - Destination of the objects.
+     */
+    public void query(BoundingVolumeHierarchy boundingVolumes, List<GameObject> result) {
+        boolean valid = referenceValid && referenceVersion == boundingVolumes.getVersion() && insideReference();
+        if (valid && query(result, false))
+            return;
+
+        setReference(boundingVolumes);
+        query(result, true);
+    }
+
+    /**
+     * @param reference - True for reference frame, its result is always added.
+     * @return - False if too many boxes would have to be tested, nothing is added then.
+     */
+    private boolean query(List<GameObject> result, boolean reference) {
+        float normalDrift = 0.0f;
+        float distanceDrift = 0.0f;
+        for (int i = 0; i < PLANE_COUNT * 4; i += 4) {
+            float x = planes[i] - referencePlanes[i];
+            float y = planes[i + 1] - referencePlanes[i + 1];
+            float z = planes[i + 2] - referencePlanes[i + 2];
+            float w = planes[i + 3] - referencePlanes[i + 3];
+
+            normalDrift = Math.max(normalDrift, (float) Math.sqrt(x * x + y * y + z * z));
+            distanceDrift = Math.max(distanceDrift, Math.abs(x * referenceOrigin.x + y * referenceOrigin.y + z * referenceOrigin.z + w));
+        }
+
+        int tested = 0;
+        for (int i = 0; i < size; i++) {
+            if (slacks[i] <= normalDrift * distances[i] + distanceDrift)
+                tested++;
+        }
+
+        if (!reference && tested > size * RETEST_FRACTION)
+            return false;
+
+        for (int i = 0; i < size; i++) {
+            boolean visible = slacks[i] > normalDrift * distances[i] + distanceDrift ? results[i] : intersects(i);
+            if (visible)
+                result.add(objects[i]);
+        }
+
+        testedBoxes = reference ? size : tested;
+        return true;
+    }
+
+    private boolean intersects(int index) {
+        int offset = index * 6;
+        for (int i = 0; i < PLANE_COUNT * 4; i += 4) {
+            float distance = planes[i] * boxes[offset] + planes[i + 1] * boxes[offset + 1] + planes[i + 2] * boxes[offset + 2] + planes[i + 3];
+            float radius = Math.abs(planes[i]) * boxes[offset + 3] + Math.abs(planes[i + 1]) * boxes[offset + 4] + Math.abs(planes[i + 2]) * boxes[offset + 5];
+            if (distance + radius < 0)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return - True if every corner of the frustum is inside of the enlarged reference frustum,
+     *           so boxes which were not stored are still outside.
+     */
+    private boolean insideReference() {
+        for (int corner = 0; corner < CORNER_COUNT * 3; corner += 3) {
+            for (int i = 0; i < PLANE_COUNT * 4; i += 4) {
+                float distance = referencePlanes[i] * corners[corner] + referencePlanes[i + 1] * corners[corner + 1]
+                        + referencePlanes[i + 2] * corners[corner + 2] + referencePlanes[i + 3];
+                if (distance < -REFERENCE_MARGIN)
+                    return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void setReference(BoundingVolumeHierarchy boundingVolumes) {
+        System.arraycopy(planes, 0, referencePlanes, 0, planes.length);
+        referenceVersion = boundingVolumes.getVersion();
+        referenceValid = true;
+
+        // Center of the near plane is close to every plane of perspective and orthographic frustum
+        referenceOrigin.zero();
+        for (int i = Matrix4fc.CORNER_NXNYNZ; i <= Matrix4fc.CORNER_NXPYNZ; i++) {
+            referenceOrigin.add(corners[i * 3], corners[i * 3 + 1], corners[i * 3 + 2]);
+        }
+        referenceOrigin.mul(0.25f);
+
+        queriedObjects.clear();
+        boundingVolumes.query(referencePlanes, REFERENCE_MARGIN, queriedObjects);
+        if (objects.length < queriedObjects.size())
+            allocate(Math.max(queriedObjects.size(), objects.length * 2));
+
+        // References of objects which are not stored anymore are released
+        if (size > queriedObjects.size())
+            Arrays.fill(objects, queriedObjects.size(), size, null);
+        size = 0;
+
+        for (GameObject gameObject : queriedObjects) {
+            objects[size] = gameObject;
+
+            // Objects with disabled frustum culling are always visible
+            if (gameObject.isDisableFrustumCulling() || !boundingVolumes.getLeafBounds(gameObject, boundsMin, boundsMax)) {
+                slacks[size] = Float.POSITIVE_INFINITY;
+                results[size++] = true;
+                continue;
+            }
+
+            int offset = size * 6;
+            boxes[offset] = (boundsMin.x + boundsMax.x) * 0.5f;
+            boxes[offset + 1] = (boundsMin.y + boundsMax.y) * 0.5f;
+            boxes[offset + 2] = (boundsMin.z + boundsMax.z) * 0.5f;
+            boxes[offset + 3] = boundsMax.x - boxes[offset];
+            boxes[offset + 4] = boundsMax.y - boxes[offset + 1];
+            boxes[offset + 5] = boundsMax.z - boxes[offset + 2];
+            setSlack(size++);
+        }
+    }
+
+    /**
+     * Box stays visible while it is inside of every plane and hidden while it is outside of
+     * the plane it is farthest from.
+     */
+    private void setSlack(int index) {
+        int offset = index * 6;
+        float insideSlack = Float.POSITIVE_INFINITY;
+        float outsideSlack = 0.0f;
+
+        for (int i = 0; i < PLANE_COUNT * 4; i += 4) {
+            float distance = referencePlanes[i] * boxes[offset] + referencePlanes[i + 1] * boxes[offset + 1] + referencePlanes[i + 2] * boxes[offset + 2] + referencePlanes[i + 3];
+            float radius = Math.abs(referencePlanes[i]) * boxes[offset + 3] + Math.abs(referencePlanes[i + 1]) * boxes[offset + 4] + Math.abs(referencePlanes[i + 2]) * boxes[offset + 5];
+
+            insideSlack = Math.min(insideSlack, distance + radius);
+            outsideSlack = Math.max(outsideSlack, -(distance + radius));
+        }
+
+        float offsetX = boxes[offset] - referenceOrigin.x;
+        float offsetY = boxes[offset + 1] - referenceOrigin.y;
+        float offsetZ = boxes[offset + 2] - referenceOrigin.z;
+        float extent = (float) Math.sqrt(boxes[offset + 3] * boxes[offset + 3] + boxes[offset + 4] * boxes[offset + 4] + boxes[offset + 5] * boxes[offset + 5]);
+
+        results[index] = outsideSlack == 0.0f;
+        slacks[index] = results[index] ? insideSlack : outsideSlack;
+        distances[index] = (float) Math.sqrt(offsetX * offsetX + offsetY * offsetY + offsetZ * offsetZ) + extent;
+    }
+
+    private void allocate(int capacity) {
+        if (objects == null) {
+            objects = new GameObject[capacity];
+            boxes = new float[capacity * 6];
+            slacks = new float[capacity];
+            distances = new float[capacity];
+            results = new boolean[capacity];
+            return;
+        }
+
+        objects = Arrays.copyOf(objects, capacity);
+        boxes = Arrays.copyOf(boxes, capacity * 6);
+        slacks = Arrays.copyOf(slacks, capacity);
+        distances = Arrays.copyOf(distances, capacity);
+        results = Arrays.copyOf(results, capacity);
+    }
+}
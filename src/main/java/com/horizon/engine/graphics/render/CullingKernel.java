@@ -0,0 +1,88 @@
+package com.horizon.engine.graphics.render;
+
+import org.joml.Matrix4fc;
+import org.joml.Vector4f;
+
+/**
+ * Frustum test of spheres stored in packed arrays of centers and radii. Test loop reads
+ * only primitive arrays and has no branches, so its speed doesn't depend on how visible
+ * and hidden spheres are mixed and JIT can unroll it, result is a bit set with one bit
+ * per sphere.
+ *
+ * @apiNote Ranges tested by different threads have to start at a multiple of
+ *          <code>WORD_SIZE</code>, so threads never write the same word of the bit set.
+ *
+ * @author Horizon
+ */
+public final class CullingKernel {
+
+    public static final int WORD_SIZE = 64;
+    public static final int PLANE_COUNT = 6;
+
+    private CullingKernel() {
+    }
+
+    /**
+     * @param projectionViewMatrix - Frustum whose planes are stored.
+     * @param planes - Destination of normalized planes stored as normal x, y, z and distance.
+     * @return - Planes.
+     */
+    public static float[] getPlanes(Matrix4fc projectionViewMatrix, float[] planes) {
+        Vector4f plane = new Vector4f();
+        for (int i = 0; i < PLANE_COUNT; i++) {
+            projectionViewMatrix.frustumPlane(i, plane);
+            planes[i * 4] = plane.x;
+            planes[i * 4 + 1] = plane.y;
+            planes[i * 4 + 2] = plane.z;
+            planes[i * 4 + 3] = plane.w;
+        }
+
+        return planes;
+    }
+
+    /**
+     * @return - Number of words of the bit set with the count of bits.
+     */
+    public static int getWordCount(int count) {
+        return (count + WORD_SIZE - 1) / WORD_SIZE;
+    }
+
+    /**
+     * Sets bits of spheres in range which intersect the frustum and clears bits of the other
+     * spheres. Radius of positive infinity is always visible, negative infinity never.
+     * @param planes - Planes from <code>getPlanes()</code>.
+     * @param visible - Bit set at least <code>getWordCount(to)</code> words long.
+     * @param from - First sphere, multiple of <code>WORD_SIZE</code>.
+     * @param to - Last sphere, exclusive.
+     */
+    public static void testSpheres(float[] planes, float[] centerX, float[] centerY, float[] centerZ, float[] radius,
+                                   long[] visible, int from, int to) {
+        float ax = planes[0], ay = planes[1], az = planes[2], aw = planes[3];
+        float bx = planes[4], by = planes[5], bz = planes[6], bw = planes[7];
+        float cx = planes[8], cy = planes[9], cz = planes[10], cw = planes[11];
+        float dx = planes[12], dy = planes[13], dz = planes[14], dw = planes[15];
+        float ex = planes[16], ey = planes[17], ez = planes[18], ew = planes[19];
+        float fx = planes[20], fy = planes[21], fz = planes[22], fw = planes[23];
+
+        for (int word = from / WORD_SIZE; word * WORD_SIZE < to; word++) {
+            int start = word * WORD_SIZE;
+            int end = Math.min(start + WORD_SIZE, to);
+
+            long bits = 0L;
+            for (int i = start; i < end; i++) {
+                float x = centerX[i], y = centerY[i], z = centerZ[i], r = radius[i];
+
+                // Sign bit of any plane distance plus radius means the sphere is outside of the plane
+                int outside = Float.floatToRawIntBits(ax * x + ay * y + az * z + aw + r)
+                        | Float.floatToRawIntBits(bx * x + by * y + bz * z + bw + r)
+                        | Float.floatToRawIntBits(cx * x + cy * y + cz * z + cw + r)
+                        | Float.floatToRawIntBits(dx * x + dy * y + dz * z + dw + r)
+                        | Float.floatToRawIntBits(ex * x + ey * y + ez * z + ew + r)
+                        | Float.floatToRawIntBits(fx * x + fy * y + fz * z + fw + r);
+
+                bits |= (long) (~outside >>> 31) << (i - start);
+            }
+            visible[word] = bits;
+        }
+    }
+}
@@ -1,71 +1,280 @@
 package com.horizon.engine.graphics.render;
 
+import com.horizon.engine.common.HandleTable;
 import com.horizon.engine.component.component.mesh.InstancedMesh;
+import com.horizon.engine.component.ComponentType;
 import com.horizon.engine.component.component.mesh.Mesh;
+import com.horizon.engine.data.ApplicationData;
+import com.horizon.engine.ecs.Archetype;
+import com.horizon.engine.ecs.EntityStorage;
+import com.horizon.engine.graphics.data.Transformation;
 import com.horizon.engine.graphics.object.GameObject;
+import com.horizon.engine.graphics.object.scene.BoundingVolumeHierarchy;
+import com.horizon.engine.graphics.object.scene.MeshTable;
+import com.horizon.engine.graphics.object.scene.Scene;
+import com.horizon.engine.graphics.render.snapshot.RenderSnapshot;
+import com.horizon.engine.job.JobSystem;
+import com.horizon.engine.job.RangeJob;
+import lombok.Getter;
 import org.joml.FrustumIntersection;
-import org.joml.Matrix4f;
 import org.joml.Vector3f;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.IntFunction;
 
+/**
+ * Builds visibility lists of views. Objects are taken from bounding volume hierarchy,
+ * entity storage, render snapshot or render lists of the scene, depending on which of them
+ * is used. Entity storage and render snapshot are tested by packed culling kernel.
+ * Main view is also culled by occluders and it updates <code>insideFrustum</code> flags
+ * of the game objects.
+ */
 public class FrustumCullingFilter {
 
-    private final Matrix4f prjViewMatrix;
-    private final FrustumIntersection frustumIntersection;
+    private final Transformation transformation;
 
-    public FrustumCullingFilter() {
-        prjViewMatrix = new Matrix4f();
-        frustumIntersection = new FrustumIntersection();
+    private final Vector3f position;
+    private final List<GameObject> queriedObjects;
+    private boolean[] visibleObjects;
+
+    //Packed culling
+    private final float[] planes;
+    private long[] visibleBits;
+
+    // Objects marked inside frustum by the last main view
+    private final List<GameObject> insideFrustumObjects;
+
+    @Getter private final OcclusionCuller occlusionCuller;
+
+    public FrustumCullingFilter(Transformation transformation) {
+        this.transformation = transformation;
+        position = new Vector3f();
+        queriedObjects = new ArrayList<>();
+        visibleObjects = new boolean[64];
+        planes = new float[CullingKernel.PLANE_COUNT * 4];
+        visibleBits = new long[1];
+        insideFrustumObjects = new ArrayList<>();
+        occlusionCuller = new OcclusionCuller(transformation, ApplicationData.getOcclusionBufferWidth(),
+                ApplicationData.getOcclusionBufferHeight(), ApplicationData.getMaxOccluders());
+    }
+
+    /**
+     * Rebuilds visibility list from the frustum of the list. When frustum culling is
+     * disabled every object with mesh is visible.
+     * @param scene - Scene whose objects are filtered.
+     * @param visibility - List with frustum of the view.
+     */
+    public void filter(Scene scene, VisibilityList visibility) {
+        visibility.clear();
+
+        FrustumIntersection frustum = visibility.getFrustumIntersection();
+        boolean sceneThread = transformation.getRenderSnapshot() == null;
+
+        if (!ApplicationData.isFrustumCulling()) {
+            filterObjects(scene.getNonInstancedMeshes(), null, visibility);
+            filterLists(scene.getInstancedMeshes(), null, visibility);
+        } else if (sceneThread && scene.isEntityStorageEnabled()) {
+            filter(scene.getEntityStorage(), visibility);
+        } else if (sceneThread && scene.isBoundingVolumeCullingEnabled()) {
+            filter(scene.getBoundingVolumes(), visibility);
+        } else if (!sceneThread) {
+            filter(transformation.getRenderSnapshot(), visibility);
+        } else {
+            filterObjects(scene.getNonInstancedMeshes(), frustum, visibility);
+            filterLists(scene.getInstancedMeshes(), frustum, visibility);
+        }
+
+        if (visibility.getView() != InstancedMesh.MAIN_VIEW)
+            return;
+
+        // Shadow casters hidden from the camera still cast visible shadows, so cascades are not occluded
+        if (ApplicationData.isFrustumCulling() && ApplicationData.isOcclusionCulling())
+            occlusionCuller.cull(scene, visibility);
+
+        updateInsideFrustum(visibility);
+    }
+
+    /**
+     * Walks bounding volume hierarchy, so only visited nodes and visible objects are processed.
+     * With culling cache only boxes near the planes of the previous frustums are tested.
+     */
+    private void filter(BoundingVolumeHierarchy boundingVolumes, VisibilityList visibility) {
+        boundingVolumes.update();
+
+        queriedObjects.clear();
+        if (ApplicationData.isCullingCache()) {
+            CullingCache cache = visibility.getCullingCache();
+            cache.update(visibility.getProjectionViewMatrix());
+            cache.query(boundingVolumes, queriedObjects);
+        } else {
+            boundingVolumes.query(visibility.getFrustumIntersection(), queriedObjects);
+        }
+
+        for (GameObject gameObject : queriedObjects) {
+            visibility.add(gameObject);
+        }
+    }
+
+    /**
+     * Filters every stored entity with mesh. Kernel reads only dense position and radius
+     * arrays of the archetype.
+     */
+    private void filter(EntityStorage entityStorage, VisibilityList visibility) {
+        CullingKernel.getPlanes(visibility.getProjectionViewMatrix(), planes);
+
+        for (Archetype archetype : entityStorage.getArchetypes()) {
+            int size = archetype.getSize();
+            if (size == 0 || !archetype.hasComponent(ComponentType.MESH))
+                continue;
+
+            testSpheres(size, (from, to) -> testRange(archetype, from, to));
+
+            GameObject[] objects = archetype.getObjects();
+            addVisible(size, index -> objects[index], visibility);
+        }
+    }
+
+    private void testRange(Archetype archetype, int from, int to) {
+        CullingKernel.testSpheres(planes, archetype.getPositionX(), archetype.getPositionY(), archetype.getPositionZ(),
+                archetype.getBoundingRadius(), visibleBits, from, to);
+
+        int[] flags = archetype.getFlags();
+        for (int i = from; i < to; i++) {
+            if ((flags[i] & EntityStorage.FLAG_DISABLE_FRUSTUM_CULLING) != 0)
+                visibleBits[i / CullingKernel.WORD_SIZE] |= 1L << i;
+        }
     }
 
-    public void updateFrustum(Matrix4f projMatrix, Matrix4f viewMatrix) {
-        // Calculate projection view matrix
-        prjViewMatrix.set(projMatrix);
-        prjViewMatrix.mul(viewMatrix);
-        // Update frustum intersection class
-        frustumIntersection.set(prjViewMatrix);
+    /**
+     * Filters every object of the render snapshot with the packed bounds captured by the
+     * simulation thread, objects instantiated after the capture are visible from the next one.
+     */
+    private void filter(RenderSnapshot snapshot, VisibilityList visibility) {
+        CullingKernel.getPlanes(visibility.getProjectionViewMatrix(), planes);
+
+        testSpheres(snapshot.getObjectCount(), (from, to) -> CullingKernel.testSpheres(planes, snapshot.getCenterX(),
+                snapshot.getCenterY(), snapshot.getCenterZ(), snapshot.getBoundingRadii(), visibleBits, from, to));
+
+        // Objects removed from the scene or parked after the capture are not drawn anymore
+        addVisible(snapshot.getObjectCount(), index -> {
+            GameObject gameObject = snapshot.getObject(index);
+            return gameObject.getHandle() != HandleTable.INVALID_HANDLE && !gameObject.isParked() ? gameObject : null;
+        }, visibility);
     }
 
-    public void filterObject(Map<Integer, Map.Entry<Mesh, GameObject>> mapMesh) {
-        float boundingRadius;
-        Vector3f position;
+    /**
+     * Splits spheres into ranges of whole bit set words, so jobs never write the same word.
+     */
+    private void testSpheres(int count, RangeJob test) {
+        int words = CullingKernel.getWordCount(count);
+        if (visibleBits.length < words)
+            visibleBits = new long[Math.max(words, visibleBits.length * 2)];
 
-        for (Map.Entry<Integer, Map.Entry<Mesh, GameObject>> entry : mapMesh.entrySet()) {
-            Mesh mesh = entry.getValue().getKey();
-            GameObject gameObject = entry.getValue().getValue();
+        JobSystem jobSystem = transformation.getJobSystem();
+        if (jobSystem != null) {
+            jobSystem.parallelFor(0, words,
+                    (from, to) -> test.execute(from * CullingKernel.WORD_SIZE, Math.min(to * CullingKernel.WORD_SIZE, count)));
+        } else {
+            test.execute(0, count);
+        }
+    }
 
-            if (!gameObject.isDisableFrustumCulling()) {
-                float gameObjectScale = Math.max(gameObject.getTransform().getScaleX(), Math.max(gameObject.getTransform().getScaleY(), gameObject.getTransform().getScaleZ()));
-                boundingRadius = gameObjectScale * mesh.getBoundingRadius();
-                position = gameObject.getPosition();
-                gameObject.setInsideFrustum(insideFrustum(position.x(), position.y(), position.z(), boundingRadius));
+    /**
+     * Only set bits are visited, so hidden objects are never read. Null objects are skipped.
+     */
+    private void addVisible(int count, IntFunction<GameObject> objects, VisibilityList visibility) {
+        for (int word = 0; word < CullingKernel.getWordCount(count); word++) {
+            long bits = visibleBits[word];
+            while (bits != 0) {
+                GameObject gameObject = objects.apply(word * CullingKernel.WORD_SIZE + Long.numberOfTrailingZeros(bits));
+                if (gameObject != null)
+                    visibility.add(gameObject);
+                bits &= bits - 1;
             }
         }
     }
 
-    public void filterList(Map<Integer, Map.Entry<InstancedMesh, List<GameObject>>> mapMesh) {
-        for (Map.Entry<Integer, Map.Entry<InstancedMesh, List<GameObject>>> entry : mapMesh.entrySet()) {
-            List<GameObject> gameObjects = entry.getValue().getValue();
-            filter(gameObjects, entry.getValue().getKey().getBoundingRadius());
+    private void filterObjects(MeshTable<Mesh, GameObject> meshTable, FrustumIntersection frustum, VisibilityList visibility) {
+        for (int i = 0; i < meshTable.size(); i++) {
+            GameObject gameObject = meshTable.getValueAt(i);
+            if (frustum == null || insideFrustum(gameObject, meshTable.getMeshAt(i).getBoundingRadius(), frustum, position))
+                visibility.add(gameObject);
         }
     }
 
-    public void filter(List<GameObject> gameObjects, float meshBoundingRadius) {
-        float boundingRadius;
-        Vector3f position;
-        for (GameObject gameObject : gameObjects) {
-            if (!gameObject.isDisableFrustumCulling()) {
-                float gameObjectScale = Math.max(gameObject.getTransform().getScaleX(), Math.max(gameObject.getTransform().getScaleY(), gameObject.getTransform().getScaleZ()));
-                boundingRadius = gameObjectScale * meshBoundingRadius;
-                position = gameObject.getPosition();
-                gameObject.setInsideFrustum(insideFrustum(position.x(), position.y(), position.z(), boundingRadius));
+    private void filterLists(MeshTable<InstancedMesh, List<GameObject>> meshTable, FrustumIntersection frustum, VisibilityList visibility) {
+        for (int i = 0; i < meshTable.size(); i++) {
+            List<GameObject> gameObjects = meshTable.getValueAt(i);
+            if (frustum == null) {
+                for (GameObject gameObject : gameObjects) {
+                    visibility.add(gameObject);
+                }
+                continue;
             }
+
+            filterList(gameObjects, meshTable.getMeshAt(i).getBoundingRadius(), frustum, visibility);
         }
     }
 
-    public boolean insideFrustum(float x0, float y0, float z0, float boundingRadius) {
-        return frustumIntersection.testSphere(x0, y0, z0, boundingRadius);
+    /**
+     * Objects of large lists are tested in parallel, visible ones are added in list order.
+     */
+    private void filterList(List<GameObject> gameObjects, float meshBoundingRadius, FrustumIntersection frustum, VisibilityList visibility) {
+        JobSystem jobSystem = transformation.getJobSystem();
+        if (jobSystem == null || !(gameObjects instanceof RandomAccess)) {
+            for (GameObject gameObject : gameObjects) {
+                if (insideFrustum(gameObject, meshBoundingRadius, frustum, position))
+                    visibility.add(gameObject);
+            }
+            return;
+        }
+
+        boolean[] visible = getVisibleObjects(gameObjects.size());
+        jobSystem.parallelFor(0, gameObjects.size(), (from, to) -> {
+            Vector3f objectPosition = new Vector3f();
+            for (int i = from; i < to; i++) {
+                visible[i] = insideFrustum(gameObjects.get(i), meshBoundingRadius, frustum, objectPosition);
+            }
+        });
+
+        for (int i = 0; i < gameObjects.size(); i++) {
+            if (visible[i])
+                visibility.add(gameObjects.get(i));
+        }
+    }
+
+    private boolean insideFrustum(GameObject gameObject, float meshBoundingRadius, FrustumIntersection frustum, Vector3f position) {
+        if (gameObject.isDisableFrustumCulling())
+            return true;
+
+        float gameObjectScale = gameObject.getTransform().getWorldMaxScale();
+        gameObject.getTransform().getWorldPosition(position);
+
+        float boundingRadius = gameObjectScale * meshBoundingRadius;
+        return frustum.testSphere(position.x(), position.y(), position.z(), boundingRadius);
+    }
+
+    /**
+     * Flags are cleared only on objects marked by the previous frame.
+     */
+    private void updateInsideFrustum(VisibilityList visibility) {
+        for (GameObject gameObject : insideFrustumObjects) {
+            gameObject.setInsideFrustum(false);
+        }
+        insideFrustumObjects.clear();
+
+        visibility.forEach(gameObject -> {
+            gameObject.setInsideFrustum(true);
+            insideFrustumObjects.add(gameObject);
+        });
+    }
+
+    private boolean[] getVisibleObjects(int size) {
+        if (visibleObjects.length < size)
+            visibleObjects = new boolean[Math.max(size, visibleObjects.length * 2)];
+
+        return visibleObjects;
     }
 }
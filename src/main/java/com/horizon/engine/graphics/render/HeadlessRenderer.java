@@ -0,0 +1,30 @@
+package com.horizon.engine.graphics.render;
+
+import com.horizon.engine.Window;
+import com.horizon.engine.graphics.hud.Canvas;
+import com.horizon.engine.graphics.object.Camera;
+import com.horizon.engine.graphics.object.scene.Scene;
+
+/**
+ * Renderer used in headless mode. No shaders are created and nothing is drawn,
+ * so simulation can run without GL context.
+ *
+ * @author Horizon
+ */
+public class HeadlessRenderer extends Renderer {
+
+    @Override
+    public void initialize(Window window) {
+
+    }
+
+    @Override
+    public void render(Window window, Camera camera, Scene scene, Canvas canvas) {
+
+    }
+
+    @Override
+    public void cleanup() {
+
+    }
+}
@@ -0,0 +1,416 @@
+package com.horizon.engine.graphics.render;
+
+import com.horizon.engine.component.component.mesh.Mesh;
+import com.horizon.engine.component.component.mesh.TerrainMesh;
+import com.horizon.engine.graphics.data.Transformation;
+import com.horizon.engine.graphics.object.GameObject;
+import com.horizon.engine.graphics.object.scene.Scene;
+import com.horizon.engine.graphics.object.terrain.Terrain;
+import com.horizon.engine.job.JobSystem;
+import lombok.Getter;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Software occlusion culling of the main view. Triangles of the largest visible occluders
+ * and of the terrain are rasterized on the CPU into a low resolution depth buffer, objects
+ * whose screen bounds are behind the occluders in every covered pixel are removed from the
+ * visibility list.
+ *
+ * @apiNote Depth buffer is conservative, pixel is written only when a triangle covers it
+ *          completely and with the farthest depth of the triangle, so visible object is
+ *          never removed. Only objects marked as occluders are rasterized.
+ *
+ * @author Horizon
+ */
+public class OcclusionCuller {
+
+    // Triangle is stored as x0, y0, x1, y1, x2, y2 in pixels and its farthest depth
+    private static final int TRIANGLE_FLOATS = 7;
+    private static final float NEAR_DEPTH = 0.01f;
+    private static final int BAND_HEIGHT = 8;
+
+    private final Transformation transformation;
+
+    @Getter private final int width;
+    @Getter private final int height;
+    @Getter private final int maxOccluders;
+
+    /**
+     * View depth of the nearest occluder in every pixel, infinity for empty pixels.
+     */
+    @Getter private final float[] depthBuffer;
+    private Matrix4f projectionViewMatrix;
+
+    //Occluders of the frame
+    private final GameObject[] selectedOccluders;
+    private final float[] occluderScores;
+    private int selectedCount;
+
+    private final List<Matrix4f> occluderMatrices;
+    private float[][] occluderPositions;
+    private int[][] occluderIndices;
+    private int[] triangleOffsets;
+    private int occluderCount;
+
+    private float[] triangles;
+    private int triangleCount;
+    private boolean[] occludedObjects;
+
+    /**
+     * Number of triangles written into the depth buffer by the last frame.
+     */
+    @Getter private int rasterizedTriangles;
+
+    /**
+     * Number of objects removed from the visibility list by the last frame.
+     */
+    @Getter private int culledObjects;
+
+    public OcclusionCuller(Transformation transformation, int width, int height, int maxOccluders) {
+        this.transformation = transformation;
+        this.width = width;
+        this.height = height;
+        this.maxOccluders = maxOccluders;
+        this.depthBuffer = new float[width * height];
+
+        this.selectedOccluders = new GameObject[maxOccluders];
+        this.occluderScores = new float[maxOccluders];
+        this.occluderMatrices = new ArrayList<>();
+        this.occluderPositions = new float[maxOccluders + 1][];
+        this.occluderIndices = new int[maxOccluders + 1][];
+        this.triangleOffsets = new int[maxOccluders + 2];
+        this.triangles = new float[1024 * TRIANGLE_FLOATS];
+        this.occludedObjects = new boolean[64];
+    }
+
+    /**
+     * Rasterizes occluders of the visibility list and removes objects hidden behind them.
+     * @param scene - Scene whose terrain is used as occluder when it is marked as occluder.
+     * @param visibility - Visibility list of the main view.
+     */
+    public void cull(Scene scene, VisibilityList visibility) {
+        projectionViewMatrix = visibility.getProjectionViewMatrix();
+        JobSystem jobSystem = transformation.getJobSystem();
+
+        prepareOccluders(scene, visibility);
+        if (jobSystem != null) {
+            jobSystem.parallelFor(0, triangleCount, (from, to) -> setupTriangles(from, to, new Matrix4f()));
+            jobSystem.parallelFor(0, (height + BAND_HEIGHT - 1) / BAND_HEIGHT, 1, this::rasterizeBands);
+        } else {
+            setupTriangles(0, triangleCount, new Matrix4f());
+            rasterizeBands(0, (height + BAND_HEIGHT - 1) / BAND_HEIGHT);
+        }
+
+        rasterizedTriangles = 0;
+        for (int i = 0; i < triangleCount; i++) {
+            if (!Float.isNaN(triangles[i * TRIANGLE_FLOATS + 6]))
+                rasterizedTriangles++;
+        }
+
+        culledObjects = 0;
+        for (int list = 0; list < visibility.getListCount(); list++) {
+            List<GameObject> gameObjects = visibility.getList(list);
+            int size = gameObjects.size();
+            if (occludedObjects.length < size)
+                occludedObjects = new boolean[Math.max(size, occludedObjects.length * 2)];
+
+            boolean[] occluded = occludedObjects;
+            if (jobSystem != null) {
+                jobSystem.parallelFor(0, size, (from, to) -> testObjects(gameObjects, occluded, from, to));
+            } else {
+                testObjects(gameObjects, occluded, 0, size);
+            }
+
+            culledObjects += visibility.removeObjects(list, occluded);
+        }
+    }
+
+    //Occluders
+
+    /**
+     * Chooses occluders with the largest projected size and stores their geometry.
+     */
+    private void prepareOccluders(Scene scene, VisibilityList visibility) {
+        selectedCount = 0;
+        Matrix4f modelMatrix = new Matrix4f();
+        Vector3f scale = new Vector3f();
+
+        visibility.forEach(gameObject -> {
+            Mesh mesh = gameObject.getMesh();
+            if (!gameObject.isOccluder() || mesh.getPositions() == null || mesh.getIndices() == null)
+                return;
+
+            transformation.buildModelMatrix(gameObject, modelMatrix);
+            float depth = projectionViewMatrix.m03() * modelMatrix.m30() + projectionViewMatrix.m13() * modelMatrix.m31()
+                    + projectionViewMatrix.m23() * modelMatrix.m32() + projectionViewMatrix.m33();
+            float radius = mesh.getBoundingRadius() * modelMatrix.getScale(scale).maxComponent();
+
+            selectOccluder(gameObject, radius * radius / Math.max(depth * depth, NEAR_DEPTH));
+        });
+
+        occluderCount = 0;
+        triangleCount = 0;
+
+        Terrain terrain = scene.getTerrain();
+        if (terrain != null && terrain.isOccluder() && terrain.getTerrainMesh() != null) {
+            TerrainMesh terrainMesh = terrain.getTerrainMesh();
+            addOccluder(terrain, terrainMesh.getPositions(), terrainMesh.getIndices());
+        }
+
+        for (int i = 0; i < selectedCount; i++) {
+            Mesh mesh = selectedOccluders[i].getMesh();
+            addOccluder(selectedOccluders[i], mesh.getPositions(), mesh.getIndices());
+        }
+        triangleOffsets[occluderCount] = triangleCount;
+
+        if (triangles.length < triangleCount * TRIANGLE_FLOATS)
+            triangles = new float[Math.max(triangleCount, triangles.length / TRIANGLE_FLOATS * 2) * TRIANGLE_FLOATS];
+    }
+
+    /**
+     * Keeps occluders with the highest score sorted from the highest one.
+     */
+    private void selectOccluder(GameObject gameObject, float score) {
+        if (selectedCount == maxOccluders && score <= occluderScores[selectedCount - 1])
+            return;
+
+        int index = selectedCount < maxOccluders ? selectedCount++ : selectedCount - 1;
+        while (index > 0 && occluderScores[index - 1] < score) {
+            occluderScores[index] = occluderScores[index - 1];
+            selectedOccluders[index] = selectedOccluders[index - 1];
+            index--;
+        }
+
+        occluderScores[index] = score;
+        selectedOccluders[index] = gameObject;
+    }
+
+    private void addOccluder(GameObject gameObject, float[] positions, int[] indices) {
+        if (positions == null || indices == null)
+            return;
+
+        if (occluderMatrices.size() == occluderCount)
+            occluderMatrices.add(new Matrix4f());
+
+        Matrix4f matrix = occluderMatrices.get(occluderCount);
+        transformation.buildModelMatrix(gameObject, matrix);
+        projectionViewMatrix.mul(matrix, matrix);
+
+        occluderPositions[occluderCount] = positions;
+        occluderIndices[occluderCount] = indices;
+        triangleOffsets[occluderCount] = triangleCount;
+        triangleCount += indices.length / 3;
+        occluderCount++;
+    }
+
+    //Rasterization
+
+    /**
+     * Projects triangles in range into pixels. Triangles crossing near plane or too small to
+     * cover a whole pixel are rejected, their depth is NaN.
+     */
+    private void setupTriangles(int from, int to, Matrix4f matrix) {
+        if (from >= to)
+            return;
+
+        int occluder = 0;
+        while (triangleOffsets[occluder + 1] <= from)
+            occluder++;
+
+        float[] vertices = new float[9];
+        for (int triangle = from; triangle < to; triangle++) {
+            while (triangleOffsets[occluder + 1] <= triangle)
+                occluder++;
+
+            matrix.set(occluderMatrices.get(occluder));
+            float[] positions = occluderPositions[occluder];
+            int[] indices = occluderIndices[occluder];
+            int index = (triangle - triangleOffsets[occluder]) * 3;
+            int offset = triangle * TRIANGLE_FLOATS;
+
+            boolean valid = true;
+            float depth = 0.0f;
+            for (int i = 0; i < 3; i++) {
+                int position = indices[index + i] * 3;
+                float x = positions[position];
+                float y = positions[position + 1];
+                float z = positions[position + 2];
+
+                float w = matrix.m03() * x + matrix.m13() * y + matrix.m23() * z + matrix.m33();
+                if (w < NEAR_DEPTH) {
+                    valid = false;
+                    break;
+                }
+
+                vertices[i * 3] = ((matrix.m00() * x + matrix.m10() * y + matrix.m20() * z + matrix.m30()) / w * 0.5f + 0.5f) * width;
+                vertices[i * 3 + 1] = ((matrix.m01() * x + matrix.m11() * y + matrix.m21() * z + matrix.m31()) / w * 0.5f + 0.5f) * height;
+                depth = Math.max(depth, w);
+            }
+
+            triangles[offset + 6] = valid ? storeTriangle(vertices, offset, depth) : Float.NaN;
+        }
+    }
+
+    /**
+     * @return - Depth of the triangle or NaN if it can't cover any pixel.
+     */
+    private float storeTriangle(float[] vertices, int offset, float depth) {
+        float x0 = vertices[0], y0 = vertices[1];
+        float x1 = vertices[3], y1 = vertices[4];
+        float x2 = vertices[6], y2 = vertices[7];
+
+        float minX = Math.min(x0, Math.min(x1, x2));
+        float maxX = Math.max(x0, Math.max(x1, x2));
+        float minY = Math.min(y0, Math.min(y1, y2));
+        float maxY = Math.max(y0, Math.max(y1, y2));
+        if (maxX - minX < 1.0f || maxY - minY < 1.0f || maxX < 0 || maxY < 0 || minX > width || minY > height)
+            return Float.NaN;
+
+        // Triangles are stored counter clockwise, both faces occlude
+        float area = (x1 - x0) * (y2 - y0) - (x2 - x0) * (y1 - y0);
+        if (area == 0)
+            return Float.NaN;
+
+        triangles[offset] = x0;
+        triangles[offset + 1] = y0;
+        if (area > 0) {
+            triangles[offset + 2] = x1;
+            triangles[offset + 3] = y1;
+            triangles[offset + 4] = x2;
+            triangles[offset + 5] = y2;
+        } else {
+            triangles[offset + 2] = x2;
+            triangles[offset + 3] = y2;
+            triangles[offset + 4] = x1;
+            triangles[offset + 5] = y1;
+        }
+        return depth;
+    }
+
+    /**
+     * Every band of rows is cleared and rasterized by one job, so bands never write
+     * the same pixel.
+     */
+    private void rasterizeBands(int fromBand, int toBand) {
+        int fromRow = fromBand * BAND_HEIGHT;
+        int toRow = Math.min(height, toBand * BAND_HEIGHT);
+        Arrays.fill(depthBuffer, fromRow * width, toRow * width, Float.POSITIVE_INFINITY);
+
+        for (int triangle = 0; triangle < triangleCount; triangle++) {
+            int offset = triangle * TRIANGLE_FLOATS;
+            if (!Float.isNaN(triangles[offset + 6]))
+                rasterizeTriangle(offset, fromRow, toRow);
+        }
+    }
+
+    /**
+     * Writes pixels completely covered by the triangle. Edge function is lowest in one of
+     * the pixel corners, so pixel is covered when the value in its center is at least half
+     * of the edge gradient sum for all three edges.
+     */
+    private void rasterizeTriangle(int offset, int fromRow, int toRow) {
+        float x0 = triangles[offset], y0 = triangles[offset + 1];
+        float x1 = triangles[offset + 2], y1 = triangles[offset + 3];
+        float x2 = triangles[offset + 4], y2 = triangles[offset + 5];
+        float depth = triangles[offset + 6];
+
+        int minY = Math.max(fromRow, (int) Math.floor(Math.min(y0, Math.min(y1, y2))));
+        int maxY = Math.min(toRow - 1, (int) Math.ceil(Math.max(y0, Math.max(y1, y2))) - 1);
+        if (minY > maxY)
+            return;
+
+        int minX = Math.max(0, (int) Math.floor(Math.min(x0, Math.min(x1, x2))));
+        int maxX = Math.min(width - 1, (int) Math.ceil(Math.max(x0, Math.max(x1, x2))) - 1);
+
+        // Edge function a * x + b * y + c, positive inside of the triangle
+        float a0 = y0 - y1, b0 = x1 - x0, c0 = -(a0 * x0 + b0 * y0) - 0.5f * (Math.abs(a0) + Math.abs(b0));
+        float a1 = y1 - y2, b1 = x2 - x1, c1 = -(a1 * x1 + b1 * y1) - 0.5f * (Math.abs(a1) + Math.abs(b1));
+        float a2 = y2 - y0, b2 = x0 - x2, c2 = -(a2 * x2 + b2 * y2) - 0.5f * (Math.abs(a2) + Math.abs(b2));
+
+        for (int y = minY; y <= maxY; y++) {
+            float centerY = y + 0.5f;
+            int row = y * width;
+
+            for (int x = minX; x <= maxX; x++) {
+                float centerX = x + 0.5f;
+                if (a0 * centerX + b0 * centerY + c0 < 0 || a1 * centerX + b1 * centerY + c1 < 0 || a2 * centerX + b2 * centerY + c2 < 0)
+                    continue;
+
+                if (depthBuffer[row + x] > depth)
+                    depthBuffer[row + x] = depth;
+            }
+        }
+    }
+
+    //Testing
+
+    private void testObjects(List<GameObject> gameObjects, boolean[] occluded, int from, int to) {
+        Matrix4f modelMatrix = new Matrix4f();
+        Vector3f boundsMin = new Vector3f();
+        Vector3f boundsMax = new Vector3f();
+
+        for (int i = from; i < to; i++) {
+            GameObject gameObject = gameObjects.get(i);
+            occluded[i] = !gameObject.isOccluder() && !gameObject.isDisableFrustumCulling()
+                    && isOccluded(gameObject, modelMatrix, boundsMin, boundsMax);
+        }
+    }
+
+    /**
+     * @return - True if depth buffer is nearer than the nearest corner of the object bounds
+     *           in every pixel covered by the projected bounds.
+     */
+    private boolean isOccluded(GameObject gameObject, Matrix4f modelMatrix, Vector3f boundsMin, Vector3f boundsMax) {
+        Mesh mesh = gameObject.getMesh();
+        transformation.buildModelMatrix(gameObject, modelMatrix)
+                .transformAab(mesh.getBoundsMin(), mesh.getBoundsMax(), boundsMin, boundsMax);
+
+        Matrix4f matrix = projectionViewMatrix;
+        float minX = Float.POSITIVE_INFINITY, maxX = Float.NEGATIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+        float minDepth = Float.POSITIVE_INFINITY;
+
+        for (int corner = 0; corner < 8; corner++) {
+            float x = (corner & 1) == 0 ? boundsMin.x : boundsMax.x;
+            float y = (corner & 2) == 0 ? boundsMin.y : boundsMax.y;
+            float z = (corner & 4) == 0 ? boundsMin.z : boundsMax.z;
+
+            // Bounds crossing near plane can't be projected
+            float w = matrix.m03() * x + matrix.m13() * y + matrix.m23() * z + matrix.m33();
+            if (w < NEAR_DEPTH)
+                return false;
+
+            float screenX = ((matrix.m00() * x + matrix.m10() * y + matrix.m20() * z + matrix.m30()) / w * 0.5f + 0.5f) * width;
+            float screenY = ((matrix.m01() * x + matrix.m11() * y + matrix.m21() * z + matrix.m31()) / w * 0.5f + 0.5f) * height;
+
+            minX = Math.min(minX, screenX);
+            maxX = Math.max(maxX, screenX);
+            minY = Math.min(minY, screenY);
+            maxY = Math.max(maxY, screenY);
+            minDepth = Math.min(minDepth, w);
+        }
+
+        // Parts outside of the screen are not drawn, so only pixels on the screen are tested
+        int fromX = Math.max(0, (int) Math.floor(minX));
+        int toX = Math.min(width - 1, (int) Math.floor(maxX));
+        int fromY = Math.max(0, (int) Math.floor(minY));
+        int toY = Math.min(height - 1, (int) Math.floor(maxY));
+        if (fromX > toX || fromY > toY)
+            return false;
+
+        for (int y = fromY; y <= toY; y++) {
+            int row = y * width;
+            for (int x = fromX; x <= toX; x++) {
+                if (depthBuffer[row + x] >= minDepth)
+                    return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -1,14 +1,15 @@
 package com.horizon.engine.graphics.render;
 
 import com.horizon.engine.Window;
-import com.horizon.engine.data.ApplicationData;
+import com.horizon.engine.component.component.light.DirectionalLightComponent;
+import com.horizon.engine.component.component.mesh.InstancedMesh;
 import com.horizon.engine.event.event.ScreenResizeEvent;
 import com.horizon.engine.graphics.data.Transformation;
 import com.horizon.engine.graphics.hud.Canvas;
 import com.horizon.engine.graphics.object.Camera;
-import com.horizon.engine.graphics.object.GameObject;
 import com.horizon.engine.graphics.object.scene.Scene;
 import com.horizon.engine.graphics.object.terrain.Terrain;
+import com.horizon.engine.graphics.render.snapshot.RenderSnapshot;
 import com.horizon.engine.graphics.shader.shader.DepthShader;
 import com.horizon.engine.graphics.shader.shader.GraphicShader;
 import com.horizon.engine.graphics.shader.shader.HudShader;
@@ -16,9 +17,6 @@ import com.horizon.engine.graphics.shader.shader.TerrainShader;
 import lombok.Getter;
 import org.joml.Vector3f;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import static org.lwjgl.opengl.GL11.*;
 
 public class Renderer {
@@ -32,15 +30,15 @@ public class Renderer {
     @Getter private TerrainShader terrainShader;
 
     @Getter private final FrustumCullingFilter frustumCullingFilter;
-    @Getter private final List<GameObject> filteredItems;
+    @Getter private final VisibilityList cameraVisibility;
 
     @Getter private final float specularPower;
 
     public Renderer() {
         transformation = new Transformation();
         specularPower = 10f;
-        frustumCullingFilter = new FrustumCullingFilter();
-        filteredItems = new ArrayList<>();
+        frustumCullingFilter = new FrustumCullingFilter(transformation);
+        cameraVisibility = new VisibilityList(InstancedMesh.MAIN_VIEW);
     }
 
     public void initialize(Window window) throws Exception {
@@ -76,15 +74,58 @@ public class Renderer {
         glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT | GL_STENCIL_BUFFER_BIT);
     }
 
+    /**
+     * Sets snapshot that will be rendered instead of the live scene state. Used by
+     * pipelined game loop, where scene is simulated on another thread.
+     * @param renderSnapshot - Snapshot of the scene or null for live scene state.
+     */
+    public void setRenderSnapshot(RenderSnapshot renderSnapshot) {
+        transformation.setRenderSnapshot(renderSnapshot);
+    }
+
+    public RenderSnapshot getRenderSnapshot() {
+        return transformation.getRenderSnapshot();
+    }
+
+    /**
+     * @param interpolationAlpha - Blend factor between previous and current simulation step.
+     */
+    public void setInterpolationAlpha(float interpolationAlpha) {
+        transformation.setInterpolationAlpha(interpolationAlpha);
+    }
+
+    public DirectionalLightComponent getDirectionalLight(Scene scene) {
+        RenderSnapshot renderSnapshot = getRenderSnapshot();
+        if (renderSnapshot != null)
+            return renderSnapshot.getDirectionalLight();
+
+        return scene.getSceneLight().getDirectionalLight().getDirectionalLight();
+    }
+
+    public Vector3f getAmbientLight(Scene scene) {
+        RenderSnapshot renderSnapshot = getRenderSnapshot();
+        if (renderSnapshot != null)
+            return renderSnapshot.getAmbientLight();
+
+        return scene.getSceneLight().getAmbientLight();
+    }
+
     public void render(Window window, Camera camera, Scene scene, Canvas canvas) {
         clear();
 
-        if (ApplicationData.isFrustumCulling()) {
-            frustumCullingFilter.updateFrustum(window.getProjectionMatrix(), camera.getViewMatrix());
-            frustumCullingFilter.filterObject(scene.getGameEngine().getAssetManager().getNonInstancedMeshes());
-            frustumCullingFilter.filterList(scene.getGameEngine().getAssetManager().getInstancedMeshes());
+        // Passes below read world matrices on job workers, so lazy rebuilds are done here first
+        if (getRenderSnapshot() != null) {
+            camera = getRenderSnapshot().getCamera();
+        } else {
+            scene.updateWorldTransforms();
         }
 
+        transformation.setJobSystem(scene.getGameEngine().getJobSystem());
+
+        // Shadow cascades build their own lists in depth shader
+        cameraVisibility.setFrustum(window.getProjectionMatrix(), camera.getViewMatrix());
+        frustumCullingFilter.filter(scene, cameraVisibility);
+
         depthShader.render(window, camera, scene, canvas);
 
         glViewport(0, 0, Window.getWidth(), Window.getHeight());
@@ -0,0 +1,180 @@
+package com.horizon.engine.graphics.render;
+
+import com.horizon.engine.component.component.mesh.InstancedMesh;
+import com.horizon.engine.component.component.mesh.Mesh;
+import com.horizon.engine.graphics.object.GameObject;
+import lombok.Getter;
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Objects visible from one view, for example main camera or one shadow cascade. Objects
+ * with instanced mesh are grouped by mesh identifier, so render pass draws every instanced
+ * mesh only with its own visible objects.
+ *
+ * @apiNote List is rebuilt every frame by <code>FrustumCullingFilter</code>, clearing it
+ *          costs only the objects and meshes which were visible.
+ *
+ * @author Horizon
+ */
+public class VisibilityList {
+
+    /**
+     * Index of instance buffers used by this view, see <code>InstancedMesh.MAIN_VIEW</code>.
+     */
+    @Getter private final int view;
+
+    @Getter private final Matrix4f projectionViewMatrix;
+    @Getter private final FrustumIntersection frustumIntersection;
+    @Getter private final CullingCache cullingCache;
+
+    private final List<GameObject> objects;
+    private final List<GameObject> objectsView;
+
+    // Visible objects of instanced meshes indexed by mesh identifier
+    private List<GameObject>[] instancedObjects;
+    private int[] instancedIdentifiers;
+    private int instancedCount;
+    private int size;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public VisibilityList(int view) {
+        this.view = view;
+        this.projectionViewMatrix = new Matrix4f();
+        this.frustumIntersection = new FrustumIntersection();
+        this.cullingCache = new CullingCache();
+        this.objects = new ArrayList<>();
+        this.objectsView = Collections.unmodifiableList(objects);
+        this.instancedObjects = new List[16];
+        this.instancedIdentifiers = new int[16];
+    }
+
+    /**
+     * @param projectionMatrix - Projection of the view.
+     * @param viewMatrix - View matrix of the view.
+     */
+    public void setFrustum(Matrix4f projectionMatrix, Matrix4f viewMatrix) {
+        projectionViewMatrix.set(projectionMatrix).mul(viewMatrix);
+        frustumIntersection.set(projectionViewMatrix);
+    }
+
+    public void clear() {
+        objects.clear();
+        for (int i = 0; i < instancedCount; i++) {
+            instancedObjects[instancedIdentifiers[i]].clear();
+        }
+
+        instancedCount = 0;
+        size = 0;
+    }
+
+    /**
+     * @param gameObject - Visible object with mesh registered in the scene.
+     */
+    public void add(GameObject gameObject) {
+        Mesh mesh = gameObject.getMesh();
+        size++;
+
+        if (!(mesh instanceof InstancedMesh)) {
+            objects.add(gameObject);
+            return;
+        }
+
+        int identifier = mesh.getMeshId();
+        if (identifier >= instancedObjects.length)
+            instancedObjects = Arrays.copyOf(instancedObjects, Math.max(identifier + 1, instancedObjects.length * 2));
+
+        List<GameObject> list = instancedObjects[identifier];
+        if (list == null) {
+            list = new ArrayList<>();
+            instancedObjects[identifier] = list;
+        }
+
+        if (list.isEmpty()) {
+            if (instancedCount == instancedIdentifiers.length)
+                instancedIdentifiers = Arrays.copyOf(instancedIdentifiers, instancedCount * 2);
+            instancedIdentifiers[instancedCount++] = identifier;
+        }
+
+        list.add(gameObject);
+    }
+
+    /**
+     * @return - Visible objects with non instanced mesh.
+     */
+    public List<GameObject> getObjects() {
+        return objectsView;
+    }
+
+    /**
+     * @param meshIdentifier - Identifier of instanced mesh.
+     * @return - Visible objects of the mesh, empty list when none of them is visible.
+     */
+    public List<GameObject> getInstancedObjects(int meshIdentifier) {
+        if (meshIdentifier < 0 || meshIdentifier >= instancedObjects.length || instancedObjects[meshIdentifier] == null)
+            return Collections.emptyList();
+
+        return instancedObjects[meshIdentifier];
+    }
+
+    /**
+     * Calls the action for every visible object.
+     */
+    public void forEach(Consumer<GameObject> action) {
+        for (GameObject gameObject : objects) {
+            action.accept(gameObject);
+        }
+
+        for (int i = 0; i < instancedCount; i++) {
+            for (GameObject gameObject : instancedObjects[instancedIdentifiers[i]]) {
+                action.accept(gameObject);
+            }
+        }
+    }
+
+    //Lists modified by culling stages
+
+    /**
+     * @return - Number of lists, list 0 contains non instanced objects.
+     */
+    int getListCount() {
+        return 1 + instancedCount;
+    }
+
+    List<GameObject> getList(int index) {
+        return index == 0 ? objects : instancedObjects[instancedIdentifiers[index - 1]];
+    }
+
+    /**
+     * Removes objects of the list whose flag is set, order of other objects is kept.
+     * @param removed - Flags indexed by position in the list.
+     * @return - Number of removed objects.
+     */
+    int removeObjects(int index, boolean[] removed) {
+        List<GameObject> list = getList(index);
+
+        int kept = 0;
+        for (int i = 0; i < list.size(); i++) {
+            if (!removed[i])
+                list.set(kept++, list.get(i));
+        }
+
+        int count = list.size() - kept;
+        list.subList(kept, list.size()).clear();
+        size -= count;
+        return count;
+    }
+
+    /**
+     * @return - Number of visible objects.
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,241 @@
+package com.horizon.engine.graphics.render.snapshot;
+
+import com.horizon.engine.component.Component;
+import com.horizon.engine.component.ComponentType;
+import com.horizon.engine.component.component.light.DirectionalLightComponent;
+import com.horizon.engine.component.component.mesh.Mesh;
+import com.horizon.engine.graphics.data.Transform;
+import com.horizon.engine.graphics.object.Camera;
+import com.horizon.engine.graphics.object.GameObject;
+import com.horizon.engine.graphics.object.scene.Scene;
+import com.horizon.engine.graphics.object.scene.SceneLight;
+import lombok.Getter;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Render snapshot is a copy of everything the renderer needs from the scene
+ * at the end of one simulation tick. It is written by the simulation thread and
+ * read by the render thread, so the renderer never sees transforms that are
+ * changing in the middle of a frame.
+ *
+ * @apiNote Snapshots are reused, never create them outside of the
+ *          <code>RenderSnapshotBuffer</code>.
+ *
+ * @author Horizon
+ */
+public class RenderSnapshot {
+
+    private static final int MATRIX_SIZE_FLOATS = 4 * 4;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int HASH_MULTIPLIER = 0x9E3779B9;
+
+    @Getter private long tick;
+    @Getter private int objectCount;
+
+    /**
+     * Scene this snapshot was captured from, meshes of its objects belong to that scene.
+     */
+    @Getter private Scene scene;
+
+    private GameObject[] objects;
+    private float[] modelMatrices;
+    private float[] boundingScales;
+
+    /**
+     * Open addressing table from captured object to its index, keys are compared by identity.
+     * Table belongs to this snapshot, so render thread never reads state which simulation
+     * thread is changing for the next snapshot.
+     */
+    private GameObject[] indexKeys;
+    private int[] indexValues;
+
+    /**
+     * Bounding spheres of the objects packed for culling, only first <code>objectCount</code>
+     * values are valid. Radius is positive infinity for objects with disabled frustum culling
+     * and negative infinity for objects without mesh or parked by the world partition.
+     */
+    @Getter private float[] centerX;
+    @Getter private float[] centerY;
+    @Getter private float[] centerZ;
+    @Getter private float[] boundingRadii;
+
+    @Getter private final Camera camera;
+    @Getter private final DirectionalLightComponent directionalLight;
+    @Getter private final Vector3f ambientLight;
+
+    public RenderSnapshot() {
+        this.objects = new GameObject[INITIAL_CAPACITY];
+        this.modelMatrices = new float[INITIAL_CAPACITY * MATRIX_SIZE_FLOATS];
+        this.boundingScales = new float[INITIAL_CAPACITY];
+        this.centerX = new float[INITIAL_CAPACITY];
+        this.centerY = new float[INITIAL_CAPACITY];
+        this.centerZ = new float[INITIAL_CAPACITY];
+        this.boundingRadii = new float[INITIAL_CAPACITY];
+        this.indexKeys = new GameObject[INITIAL_CAPACITY * 2];
+        this.indexValues = new int[INITIAL_CAPACITY * 2];
+
+        this.camera = new Camera();
+        this.directionalLight = new DirectionalLightComponent(new Vector3f(), new Vector3f(), 0.0f);
+        this.ambientLight = new Vector3f();
+    }
+
+    /**
+     * Copies transforms of every scene object, camera and light data into this snapshot.
+     * @param scene - Scene that will be copied.
+     * @param tick - Number of the simulation tick that produced this snapshot.
+     */
+    public void capture(Scene scene, long tick) {
+        this.tick = tick;
+        this.scene = scene;
+
+        Collection<GameObject> sceneObjects = scene.getSceneObjects().values();
+        ensureCapacity(sceneObjects.size());
+        Arrays.fill(indexKeys, null);
+
+        int index = 0;
+        for (GameObject gameObject : sceneObjects) {
+            Transform transform = gameObject.getTransform();
+
+            int offset = index * MATRIX_SIZE_FLOATS;
+            transform.getModelMatrix().get(modelMatrices, offset);
+            boundingScales[index] = transform.getWorldMaxScale();
+
+            // Terrain stores its own mesh type under the same component type
+            Component mesh = gameObject.getComponents().get(ComponentType.MESH);
+            centerX[index] = modelMatrices[offset + 12];
+            centerY[index] = modelMatrices[offset + 13];
+            centerZ[index] = modelMatrices[offset + 14];
+            if (!(mesh instanceof Mesh) || gameObject.isParked()) {
+                boundingRadii[index] = Float.NEGATIVE_INFINITY;
+            } else {
+                boundingRadii[index] = gameObject.isDisableFrustumCulling() ? Float.POSITIVE_INFINITY : boundingScales[index] * ((Mesh) mesh).getBoundingRadius();
+            }
+
+            objects[index] = gameObject;
+            putIndex(gameObject, index);
+            index++;
+        }
+
+        // Release objects that are no longer part of the scene.
+        if (index < objectCount) {
+            Arrays.fill(objects, index, objectCount, null);
+        }
+        objectCount = index;
+
+        captureCamera(scene.getSceneCamera());
+        captureLights(scene.getSceneLight());
+    }
+
+    private void captureCamera(Camera sceneCamera) {
+        if (sceneCamera == null)
+            return;
+
+        camera.getPosition().set(sceneCamera.getPosition());
+        camera.getRotation().set(sceneCamera.getRotation());
+        camera.getViewMatrix().set(sceneCamera.getViewMatrix());
+    }
+
+    private void captureLights(SceneLight sceneLight) {
+        if (sceneLight == null)
+            return;
+
+        if (sceneLight.getAmbientLight() != null)
+            ambientLight.set(sceneLight.getAmbientLight());
+
+        if (sceneLight.getDirectionalLight() == null)
+            return;
+
+        DirectionalLightComponent light = sceneLight.getDirectionalLight().getDirectionalLight();
+        directionalLight.getColor().set(light.getColor());
+        directionalLight.getDirection().set(light.getDirection());
+        directionalLight.setIntensity(light.getIntensity());
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (objects.length >= capacity)
+            return;
+
+        int newCapacity = Math.max(capacity, objects.length * 2);
+        objects = Arrays.copyOf(objects, newCapacity);
+        modelMatrices = Arrays.copyOf(modelMatrices, newCapacity * MATRIX_SIZE_FLOATS);
+        boundingScales = Arrays.copyOf(boundingScales, newCapacity);
+        centerX = Arrays.copyOf(centerX, newCapacity);
+        centerY = Arrays.copyOf(centerY, newCapacity);
+        centerZ = Arrays.copyOf(centerZ, newCapacity);
+        boundingRadii = Arrays.copyOf(boundingRadii, newCapacity);
+
+        // Table is kept at most half full
+        int tableCapacity = Integer.highestOneBit(newCapacity * 2 - 1) << 1;
+        indexKeys = new GameObject[tableCapacity];
+        indexValues = new int[tableCapacity];
+    }
+
+    private void putIndex(GameObject gameObject, int index) {
+        int mask = indexKeys.length - 1;
+        int slot = System.identityHashCode(gameObject) * HASH_MULTIPLIER & mask;
+        while (indexKeys[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+
+        indexKeys[slot] = gameObject;
+        indexValues[slot] = index;
+    }
+
+    /**
+     * @param gameObject - Game object that should be looked up.
+     * @return - Index of the game object in this snapshot or -1 if it was not captured.
+     */
+    public int indexOf(GameObject gameObject) {
+        int mask = indexKeys.length - 1;
+        int slot = System.identityHashCode(gameObject) * HASH_MULTIPLIER & mask;
+        for (GameObject key = indexKeys[slot]; key != null; key = indexKeys[slot]) {
+            if (key == gameObject)
+                return indexValues[slot];
+
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * @param gameObject - Game object that should be looked up.
+     * @return - True if this snapshot contains state of inserted game object.
+     */
+    public boolean contains(GameObject gameObject) {
+        return indexOf(gameObject) >= 0;
+    }
+
+    /**
+     * @param index - Index lower than <code>objectCount</code>.
+     */
+    public GameObject getObject(int index) {
+        return objects[index];
+    }
+
+    /**
+     * @param index - Index from <code>indexOf()</code>.
+     */
+    public Matrix4f getModelMatrix(int index, Matrix4f destination) {
+        return destination.set(modelMatrices, index * MATRIX_SIZE_FLOATS);
+    }
+
+    /**
+     * @param index - Index from <code>indexOf()</code>.
+     */
+    public Vector3f getPosition(int index, Vector3f destination) {
+        int offset = index * MATRIX_SIZE_FLOATS;
+        return destination.set(modelMatrices[offset + 12], modelMatrices[offset + 13], modelMatrices[offset + 14]);
+    }
+
+    /**
+     * @param index - Index from <code>indexOf()</code>.
+     */
+    public float getBoundingScale(int index) {
+        return boundingScales[index];
+    }
+}
@@ -0,0 +1,83 @@
+package com.horizon.engine.graphics.render.snapshot;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Triple buffered render snapshots. Simulation thread always writes into its own
+ * snapshot and publishes it, render thread always reads the newest published one.
+ * Neither of the threads ever waits for the other one.
+ *
+ * @author Horizon
+ */
+public class RenderSnapshotBuffer {
+
+    private static final int SNAPSHOT_COUNT = 3;
+    private static final int INDEX_MASK = 0x3;
+    private static final int FRESH_BIT = 0x4;
+
+    private final RenderSnapshot[] snapshots;
+
+    /**
+     * Index of the snapshot that is waiting for the render thread. Fresh bit is set
+     * when it was published after the last acquire.
+     */
+    private final AtomicInteger pendingIndex;
+
+    private int writeIndex;
+    private int readIndex;
+
+    private volatile boolean published;
+    private boolean acquired;
+
+    public RenderSnapshotBuffer() {
+        snapshots = new RenderSnapshot[SNAPSHOT_COUNT];
+        for (int i = 0; i < SNAPSHOT_COUNT; i++) {
+            snapshots[i] = new RenderSnapshot();
+        }
+
+        writeIndex = 0;
+        pendingIndex = new AtomicInteger(1);
+        readIndex = 2;
+    }
+
+    /**
+     * Should be called only from the simulation thread.
+     * @return - Snapshot that can be filled with the current tick.
+     */
+    public RenderSnapshot getWriteSnapshot() {
+        return snapshots[writeIndex];
+    }
+
+    /**
+     * Makes the write snapshot visible for the render thread. Should be called only
+     * from the simulation thread.
+     */
+    public void publish() {
+        writeIndex = pendingIndex.getAndSet(writeIndex | FRESH_BIT) & INDEX_MASK;
+        published = true;
+    }
+
+    /**
+     * Should be called only from the render thread.
+     * @return - Newest published snapshot or null if nothing was published yet.
+     */
+    public RenderSnapshot acquire() {
+        if (!published)
+            return null;
+
+        if ((pendingIndex.get() & FRESH_BIT) != 0) {
+            readIndex = pendingIndex.getAndSet(readIndex) & INDEX_MASK;
+        }
+
+        acquired = true;
+        return snapshots[readIndex];
+    }
+
+    /**
+     * Should be called only from the render thread.
+     * @return - Snapshot returned by the last acquire or null if nothing was acquired yet.
+     */
+    public RenderSnapshot getReadSnapshot() {
+        return acquired ? snapshots[readIndex] : null;
+    }
+}
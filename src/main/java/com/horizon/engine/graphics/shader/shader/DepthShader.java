@@ -1,29 +1,28 @@
 package com.horizon.engine.graphics.shader.shader;
 
 import com.horizon.engine.Window;
-import com.horizon.engine.asset.AssetManager;
 import com.horizon.engine.common.file.File;
 import com.horizon.engine.component.component.light.DirectionalLightComponent;
 import com.horizon.engine.component.component.mesh.InstancedMesh;
 import com.horizon.engine.component.component.mesh.Mesh;
 import com.horizon.engine.graphics.data.Transformation;
 import com.horizon.engine.graphics.hud.Canvas;
-import com.horizon.engine.graphics.light.DirectionalLight;
 import com.horizon.engine.graphics.object.Camera;
 import com.horizon.engine.graphics.object.GameObject;
+import com.horizon.engine.graphics.object.scene.MeshTable;
 import com.horizon.engine.graphics.object.scene.Scene;
-import com.horizon.engine.graphics.object.scene.SceneLight;
 import com.horizon.engine.graphics.render.Renderer;
+import com.horizon.engine.graphics.render.VisibilityList;
 import com.horizon.engine.graphics.shader.MeshShader;
 import com.horizon.engine.graphics.shader.uniform.Uniform;
 import com.horizon.engine.graphics.shadow.ShadowBuffer;
 import com.horizon.engine.graphics.shadow.ShadowCascade;
+import com.horizon.engine.job.JobSystem;
 import lombok.Getter;
 import org.joml.Matrix4f;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL13.GL_TEXTURE2;
@@ -34,8 +33,13 @@ public class DepthShader extends MeshShader {
     @Getter private static final int NUM_CASCADES = 3;
     @Getter private static final float[] CASCADE_SPLITS = new float[]{Window.getZ_FAR() / 20.0f, Window.getZ_FAR() / 10.0f, Window.getZ_FAR()};
 
+    /**
+     * Instance buffer view of the first cascade, next cascades use following views.
+     */
+    private static final int FIRST_CASCADE_VIEW = InstancedMesh.MAIN_VIEW + 1;
+
     @Getter private List<ShadowCascade> shadowCascades;
-    @Getter private final List<GameObject> filteredItems;
+    @Getter private List<VisibilityList> cascadeVisibility;
 
     @Getter private final Transformation transformation;
     @Getter private ShadowBuffer shadowBuffer;
@@ -46,18 +50,19 @@ public class DepthShader extends MeshShader {
                 new Uniform("isInstanced"), new Uniform("jointsMatrix"), new Uniform("modelNonInstancedMatrix"));
 
         this.transformation = transformation;
-        this.filteredItems = new ArrayList<>();
     }
 
     @Override
     public void initialize() {
         shadowBuffer = new ShadowBuffer();
         shadowCascades = new ArrayList<>();
+        cascadeVisibility = new ArrayList<>();
 
         float zNear = Window.getZ_NEAR();
         for (int i = 0; i < NUM_CASCADES; i++) {
             ShadowCascade shadowCascade = new ShadowCascade(zNear, CASCADE_SPLITS[i]);
             shadowCascades.add(shadowCascade);
+            cascadeVisibility.add(new VisibilityList(FIRST_CASCADE_VIEW + i));
             zNear = CASCADE_SPLITS[i];
         }
     }
@@ -79,14 +84,19 @@ public class DepthShader extends MeshShader {
             for (int i = 0; i < NUM_CASCADES; i++) {
                 ShadowCascade shadowCascade = shadowCascades.get(i);
 
+                // Casters are culled by the light frustum of the cascade
+                VisibilityList visibility = cascadeVisibility.get(i);
+                visibility.setFrustum(shadowCascade.getOrthographicProjectionMatrix(), shadowCascade.getLightViewMatrix());
+                getRenderer().getFrustumCullingFilter().filter(scene, visibility);
+
                 setUniformMatrix4("orthographicProjectionMatrix", shadowCascade.getOrthographicProjectionMatrix());
                 setUniformMatrix4("lightViewMatrix", shadowCascade.getLightViewMatrix());
 
                 glFramebufferTexture2D(GL_FRAMEBUFFER, GL_DEPTH_ATTACHMENT, GL_TEXTURE_2D, shadowBuffer.getDepthMap().getIds()[i], 0);
                 glClear(GL_DEPTH_BUFFER_BIT);
 
-                renderNonInstancedMeshes(scene, transformation);
-                renderInstancedMeshes(scene, transformation);
+                renderNonInstancedMeshes(visibility, transformation);
+                renderInstancedMeshes(scene, visibility, transformation);
             }
 
             // Stop the shader program.
@@ -95,17 +105,13 @@ public class DepthShader extends MeshShader {
         }
     }
 
-    private void renderNonInstancedMeshes(Scene scene, Transformation transformation) {
+    private void renderNonInstancedMeshes(VisibilityList visibility, Transformation transformation) {
         setUniformInt("isInstanced", 0);
 
-        // Render each mesh with the associated game Items
-        AssetManager assetManager = scene.getGameEngine().getAssetManager();
-        // Render each mesh with the associated game Items
-        Map<Integer, Map.Entry<Mesh, GameObject>> mapMeshes = assetManager.getNonInstancedMeshes();
-        for (Integer identifier : mapMeshes.keySet()) {
+        // Render each visible mesh with the associated game Items
+        for (GameObject gameObject : visibility.getObjects()) {
 
-            Mesh mesh = mapMeshes.get(identifier).getKey();
-            GameObject gameObject = mapMeshes.get(identifier).getValue();
+            Mesh mesh = gameObject.getMesh();
 
             Matrix4f modelMatrix = transformation.buildModelMatrix(gameObject);
             setUniformMatrix4("modelNonInstancedMatrix", modelMatrix);
@@ -114,35 +120,37 @@ public class DepthShader extends MeshShader {
         }
     }
 
-    private void renderInstancedMeshes(Scene scene, Transformation transformation) {
+    private void renderInstancedMeshes(Scene scene, VisibilityList visibility, Transformation transformation) {
         setUniformInt("isInstanced", 1);
 
-        // Render each mesh with the associated game Items
-        AssetManager assetManager = scene.getGameEngine().getAssetManager();
-        // Render each mesh with the associated game Items
-        Map<Integer, Map.Entry<InstancedMesh, List<GameObject>>> mapMeshes = assetManager.getInstancedMeshes();
-        for (Integer identifier : mapMeshes.keySet()) {
+        // Render each mesh with its visible game Items
+        MeshTable<InstancedMesh, List<GameObject>> meshTable = scene.getInstancedMeshes();
+        for (int i = 0; i < meshTable.size(); i++) {
 
-            InstancedMesh mesh = mapMeshes.get(identifier).getKey();
-
-            filteredItems.clear();
-            for (GameObject gameItem : mapMeshes.get(identifier).getValue()) {
-                if (gameItem.isInsideFrustum()) {
-                    filteredItems.add(gameItem);
-                }
-            }
+            List<GameObject> gameObjects = visibility.getInstancedObjects(meshTable.getIdentifierAt(i));
+            if (gameObjects.isEmpty())
+                continue;
 
             bindTextures(GL_TEXTURE2);
 
-            mesh.renderListInstanced(filteredItems, transformation, null);
+            meshTable.getMeshAt(i).renderListInstanced(gameObjects, false, transformation, null, visibility.getView());
         }
     }
 
     private void update(Window window, Matrix4f viewMatrix, Scene scene) {
-        SceneLight sceneLight = scene.getSceneLight();
-        DirectionalLight directionalLight = sceneLight != null ? sceneLight.getDirectionalLight() : null;
+        DirectionalLightComponent directionalLight = getRenderer().getDirectionalLight(scene);
+
+        JobSystem jobSystem = transformation.getJobSystem();
+        if (jobSystem != null) {
+            // Cascades are independent, every one of them can be updated by different worker
+            jobSystem.parallelFor(0, NUM_CASCADES, 1, (from, to) -> updateCascades(window, viewMatrix, directionalLight, from, to));
+        } else {
+            updateCascades(window, viewMatrix, directionalLight, 0, NUM_CASCADES);
+        }
+    }
 
-        for (int i = 0; i < NUM_CASCADES; i++) {
+    private void updateCascades(Window window, Matrix4f viewMatrix, DirectionalLightComponent directionalLight, int from, int to) {
+        for (int i = from; i < to; i++) {
             ShadowCascade shadowCascade = shadowCascades.get(i);
             shadowCascade.update(window, viewMatrix, directionalLight);
         }
@@ -1,7 +1,6 @@
 package com.horizon.engine.graphics.shader.shader;
 
 import com.horizon.engine.Window;
-import com.horizon.engine.asset.AssetManager;
 import com.horizon.engine.common.file.File;
 import com.horizon.engine.component.ComponentType;
 import com.horizon.engine.component.component.mesh.InstancedMesh;
@@ -15,10 +14,12 @@ import com.horizon.engine.graphics.hud.Canvas;
 import com.horizon.engine.graphics.object.BatchGameObject;
 import com.horizon.engine.graphics.object.Camera;
 import com.horizon.engine.graphics.object.GameObject;
+import com.horizon.engine.graphics.object.scene.MeshTable;
 import com.horizon.engine.graphics.object.scene.Scene;
 import com.horizon.engine.graphics.object.scene.SceneLight;
 import com.horizon.engine.graphics.postprocessing.Fog;
 import com.horizon.engine.graphics.render.Renderer;
+import com.horizon.engine.graphics.render.VisibilityList;
 import com.horizon.engine.graphics.shader.MeshShader;
 import com.horizon.engine.graphics.shader.ShaderProgram;
 import com.horizon.engine.graphics.shader.uniform.Uniform;
@@ -31,7 +32,6 @@ import org.joml.Vector3f;
 import org.joml.Vector4f;
 
 import java.util.List;
-import java.util.Map;
 
 import static org.lwjgl.opengl.GL11.GL_TEXTURE_2D;
 import static org.lwjgl.opengl.GL11.glBindTexture;
@@ -170,7 +170,7 @@ public class GraphicShader extends MeshShader {
         }
 
         SceneLight sceneLight = scene.getSceneLight();
-        renderLights(viewMatrix, sceneLight);
+        renderLights(viewMatrix, scene, sceneLight);
 
         setUniform(scene.getFog());
         setUniformInt("texture_sampler", 0);
@@ -181,24 +181,21 @@ public class GraphicShader extends MeshShader {
         }
         setUniformInt("renderShadow", scene.isRenderShadows() ? 1 : 0);
 
-        renderNonInstancedMeshes(scene);
-        renderInstancedMeshes(scene, viewMatrix);
+        VisibilityList visibility = getRenderer().getCameraVisibility();
+        renderNonInstancedMeshes(visibility);
+        renderInstancedMeshes(scene, visibility, viewMatrix);
 
         // Stops the shader program.
         stop();
     }
 
-    private void renderNonInstancedMeshes(Scene scene) {
+    private void renderNonInstancedMeshes(VisibilityList visibility) {
         setUniformInt("isInstanced", 0);
 
-        // Render each mesh with the associated game Items
-        AssetManager assetManager = scene.getGameEngine().getAssetManager();
-        // Render each mesh with the associated game Items
-        Map<Integer, Map.Entry<Mesh, GameObject>> mapMeshes = assetManager.getNonInstancedMeshes();
-        for (Integer identifier : mapMeshes.keySet()) {
+        // Render each visible mesh with the associated game Items
+        for (GameObject gameObject : visibility.getObjects()) {
 
-            Mesh mesh = mapMeshes.get(identifier).getKey();
-            GameObject gameObject = mapMeshes.get(identifier).getValue();
+            Mesh mesh = gameObject.getMesh();
             setUniform(mesh.getMaterial());
 
             Texture text = mesh.getMaterial().getTexture();
@@ -216,16 +213,18 @@ public class GraphicShader extends MeshShader {
         }
     }
 
-    private void renderInstancedMeshes(Scene scene, Matrix4f viewMatrix) {
+    private void renderInstancedMeshes(Scene scene, VisibilityList visibility, Matrix4f viewMatrix) {
         setUniformInt("isInstanced", 1);
 
-        // Render each mesh with the associated game Items
-        AssetManager assetManager = scene.getGameEngine().getAssetManager();
-        // Render each mesh with the associated game Items
-        Map<Integer, Map.Entry<InstancedMesh, List<GameObject>>> mapMeshes = assetManager.getInstancedMeshes();
-        for (Integer identifier : mapMeshes.keySet()) {
+        // Render each mesh with its visible game Items
+        MeshTable<InstancedMesh, List<GameObject>> meshTable = scene.getInstancedMeshes();
+        for (int i = 0; i < meshTable.size(); i++) {
 
-            InstancedMesh mesh = mapMeshes.get(identifier).getKey();
+            List<GameObject> gameObjects = visibility.getInstancedObjects(meshTable.getIdentifierAt(i));
+            if (gameObjects.isEmpty())
+                continue;
+
+            InstancedMesh mesh = meshTable.getMeshAt(i);
             Texture texture = mesh.getMaterial().getTexture();
 
             if (texture != null) {
@@ -235,15 +234,9 @@ public class GraphicShader extends MeshShader {
 
             setUniform(mesh.getMaterial());
 
-            getRenderer().getFilteredItems().clear();
-            for (GameObject gameObject : mapMeshes.get(identifier).getValue()) {
-                if (gameObject.isInsideFrustum()) {
-                    getRenderer().getFilteredItems().add(gameObject);
-                }
-            }
             getRenderer().getDepthShader().bindTextures(GL_TEXTURE2);
 
-            mesh.renderListInstanced(getRenderer().getFilteredItems(), transformation, viewMatrix);
+            mesh.renderListInstanced(gameObjects, false, transformation, viewMatrix, visibility.getView());
         }
     }
 
@@ -264,9 +257,9 @@ public class GraphicShader extends MeshShader {
         }
     }
 
-    private void renderLights(Matrix4f viewMatrix, SceneLight sceneLight) {
+    private void renderLights(Matrix4f viewMatrix, Scene scene, SceneLight sceneLight) {
 
-        setUniformVector3f("ambientLight", sceneLight.getAmbientLight());
+        setUniformVector3f("ambientLight", getRenderer().getAmbientLight(scene));
         setUniformFloat("specularPower", specularPower);
 
         // Process Point Lights
@@ -303,7 +296,7 @@ public class GraphicShader extends MeshShader {
         }
 
         // Get a copy of the directional light object and transform its position to view coordinates
-        DirectionalLightComponent currDirLight = new DirectionalLightComponent(sceneLight.getDirectionalLight().getDirectionalLight());
+        DirectionalLightComponent currDirLight = new DirectionalLightComponent(getRenderer().getDirectionalLight(scene));
         Vector4f direction = new Vector4f(currDirLight.getDirection(), 0);
         direction.mul(viewMatrix);
         currDirLight.setDirection(new Vector3f(direction.x, direction.y, direction.z));
@@ -3,6 +3,7 @@ package com.horizon.engine.graphics.shader.shader;
 import com.horizon.engine.Window;
 import com.horizon.engine.common.file.File;
 import com.horizon.engine.component.ComponentType;
+import com.horizon.engine.component.component.light.DirectionalLightComponent;
 import com.horizon.engine.component.component.mesh.TerrainMesh;
 import com.horizon.engine.debug.Debugger;
 import com.horizon.engine.graphics.data.Transformation;
@@ -16,17 +17,21 @@ import com.horizon.engine.graphics.shader.uniform.Uniform;
 import lombok.Getter;
 import org.joml.Matrix4f;
 import org.joml.Vector2f;
+import org.joml.Vector3f;
 
 public class TerrainShader extends ShaderProgram {
 
     @Getter private final Transformation transformation;
 
+    private final Vector3f lightDirection;
+
     public TerrainShader(Renderer renderer, Transformation transformation) {
         super(renderer, new File("shaders/graphic/terrain_vertex.vs"), new File("shaders/graphic/terrain_fragment.fs"));
         super.storeAllUniformLocations(new Uniform("projectionMatrix"), new Uniform("viewMatrix"), new Uniform("lightDirection"),
                 new Uniform("lightColour"), new Uniform("lightBias"), new Uniform("modelMatrix"));
 
         this.transformation = transformation;
+        this.lightDirection = new Vector3f();
     }
 
     @Override
@@ -43,8 +48,9 @@ public class TerrainShader extends ShaderProgram {
         setUniformMatrix4("projectionMatrix", projectionMatrix);
 
         setUniformVector2f("lightBias", new Vector2f(0.5f, 0.6f));
-        setUniformVector3f("lightDirection", scene.getSceneLight().getDirectionalLight().getDirectionalLight().getDirection().negate());
-        setUniformVector3f("lightColour", scene.getSceneLight().getDirectionalLight().getDirectionalLight().getColor());
+        DirectionalLightComponent directionalLight = getRenderer().getDirectionalLight(scene);
+        setUniformVector3f("lightDirection", lightDirection.set(directionalLight.getDirection()).negate());
+        setUniformVector3f("lightColour", directionalLight.getColor());
 
         Matrix4f modelMatrix = transformation.buildModelMatrix(scene.getTerrain());
         setUniformMatrix4("modelMatrix", modelMatrix);
@@ -2,7 +2,7 @@ package com.horizon.engine.graphics.shadow;
 
 import com.horizon.engine.Window;
 import com.horizon.engine.graphics.data.Transformation;
-import com.horizon.engine.graphics.light.DirectionalLight;
+import com.horizon.engine.component.component.light.DirectionalLightComponent;
 import lombok.Data;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
@@ -41,7 +41,7 @@ public @Data class ShadowCascade {
         tmpVec = new Vector4f();
     }
 
-    public void update(Window window, Matrix4f viewMatrix, DirectionalLight light) {
+    public void update(Window window, Matrix4f viewMatrix, DirectionalLightComponent light) {
         // Build projection view matrix for this cascade
         float aspectRatio = (float) Window.getWidth() / (float) Window.getHeight();
         projViewMatrix.setPerspective(Window.getFOV(), aspectRatio, zNear, zFar);
@@ -61,7 +61,7 @@ public @Data class ShadowCascade {
         }
 
         // Go back from the centroid up to max.z - min.z in the direction of light
-        Vector3f lightDirection = light.getDirectionalLight().getDirection();
+        Vector3f lightDirection = light.getDirection();
         Vector3f lightPosInc = new Vector3f().set(lightDirection);
         float distance = maxZ - minZ;
         lightPosInc.mul(distance);
@@ -3,7 +3,9 @@ package com.horizon.engine.graphics.texture;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 
+import com.horizon.engine.data.ApplicationData;
 import lombok.Data;
+import org.lwjgl.BufferUtils;
 import org.lwjgl.system.MemoryStack;
 
 import static org.lwjgl.opengl.GL11.*;
@@ -28,9 +30,13 @@ public @Data class Texture {
      * @throws Exception
      */
     public Texture(int width, int height, int pixelFormat) throws Exception {
-        this.id = glGenTextures();
         this.width = width;
         this.height = height;
+
+        if (ApplicationData.isHeadless())
+            return;
+
+        this.id = glGenTextures();
         glBindTexture(GL_TEXTURE_2D, this.id);
         glTexImage2D(GL_TEXTURE_2D, 0, GL_DEPTH_COMPONENT, this.width, this.height, 0, pixelFormat, GL_FLOAT, (ByteBuffer) null);
         glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
@@ -89,13 +95,50 @@ public @Data class Texture {
         }
     }
 
+    /**
+     * Creates texture from decoded image, so one image can be used by many textures
+     * without decoding the file again.
+     */
+    public Texture(ImageData image) {
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.id = createTexture(image.getPixels());
+    }
+
     public Texture(String fileName, int numCols, int numRows) {
         this(fileName);
         this.numCols = numCols;
         this.numRows = numRows;
     }
 
+    /**
+     * Decodes image file into RGBA pixels.
+     * @param fileName - Path of the image.
+     * @return - Decoded image or null if the file can't be loaded.
+     */
+    public static ImageData loadImage(String fileName) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer w = stack.mallocInt(1);
+            IntBuffer h = stack.mallocInt(1);
+            IntBuffer channels = stack.mallocInt(1);
+
+            ByteBuffer buf = stbi_load(fileName, w, h, channels, 4);
+            if (buf == null)
+                return null;
+
+            ByteBuffer pixels = BufferUtils.createByteBuffer(buf.remaining());
+            pixels.put(buf.duplicate()).flip();
+            stbi_image_free(buf);
+
+            return new ImageData(w.get(), h.get(), pixels);
+        }
+    }
+
     private int createTexture(ByteBuffer buf) {
+        // Headless mode has no GL context, only image size is kept.
+        if (ApplicationData.isHeadless())
+            return 0;
+
         int textureId = glGenTextures();
         glBindTexture(GL_TEXTURE_2D, textureId);
         glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
@@ -112,6 +155,16 @@ public @Data class Texture {
     }
 
     public void cleanup() {
+        if (ApplicationData.isHeadless())
+            return;
+
         glDeleteTextures(id);
     }
+
+    public static @Data class ImageData {
+
+        private final int width;
+        private final int height;
+        private final ByteBuffer pixels;
+    }
 }
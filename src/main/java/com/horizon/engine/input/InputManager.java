@@ -2,6 +2,7 @@ package com.horizon.engine.input;
 
 import com.horizon.engine.AbstractManager;
 import com.horizon.engine.GameEngine;
+import com.horizon.engine.data.ApplicationData;
 import com.horizon.engine.input.other.InputHandler;
 import lombok.Getter;
 import org.lwjgl.glfw.GLFWKeyCallback;
@@ -24,6 +25,10 @@ public class InputManager extends AbstractManager {
 
     @Override
     public void onEnable() {
+        // There is no window to receive key callbacks from in headless mode.
+        if (ApplicationData.isHeadless())
+            return;
+
         GLFWKeyCallback callback = glfwSetKeyCallback(getGameEngine().getWindow().getWindowHandle(), (window, key, scancode, action, mods) -> {
             try {
                 for(String handler : getUpdateMap().keySet()) {
@@ -56,6 +56,25 @@ public class MouseInput {
         previousPosition.y = currentPosition.y;
     }
 
+    /**
+     * Copies state of other mouse input and adds its display vector to the one of this
+     * input, so movement of several frames is kept until it is cleared.
+     * @param mouseInput - Input whose state is copied.
+     */
+    public void accumulate(MouseInput mouseInput) {
+        previousPosition.set(mouseInput.previousPosition);
+        currentPosition.set(mouseInput.currentPosition);
+        displayVector.add(mouseInput.displayVector);
+
+        inWindow = mouseInput.inWindow;
+        leftButtonPressed = mouseInput.leftButtonPressed;
+        rightButtonPressed = mouseInput.rightButtonPressed;
+    }
+
+    public void clearDisplayVector() {
+        displayVector.zero();
+    }
+
     public boolean isLeftButtonPressed() {
         return leftButtonPressed;
     }
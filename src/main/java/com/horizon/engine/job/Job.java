@@ -0,0 +1,49 @@
+package com.horizon.engine.job;
+
+import lombok.Getter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Handle of the job scheduled in <code>JobSystem</code>. Can be used as dependency
+ * of other jobs or awaited directly.
+ *
+ * @author Horizon
+ */
+public class Job {
+
+    @Getter private final String name;
+    private final CompletableFuture<Void> future;
+
+    Job(String name, CompletableFuture<Void> future) {
+        this.name = name;
+        this.future = future;
+    }
+
+    CompletableFuture<Void> getFuture() {
+        return future;
+    }
+
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * Blocks until this job and all of its dependencies are finished.
+     * Exception thrown by the job is rethrown to the caller.
+     */
+    public void await() {
+        try {
+            future.join();
+        } catch (CompletionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+
+            throw new IllegalStateException("Job " + name + " failed.", cause);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.horizon.engine.job;
+
+import com.horizon.engine.debug.Debugger;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Engine wide job system built on work stealing <code>ForkJoinPool</code>.
+ * Supports jobs with dependencies, parallel for loops over index ranges and
+ * frame end sync point, which waits for every job scheduled during the frame.
+ *
+ * @apiNote Jobs must not touch GL, context is current only on the thread that owns the window.
+ *
+ * @author Horizon
+ */
+public class JobSystem {
+
+    private static final int DEFAULT_GRAIN_SIZE = 64;
+    private static final int SPLITS_PER_WORKER = 4;
+
+    private final ForkJoinPool pool;
+    private final Queue<Job> frameJobs;
+
+    @Getter private final int workerCount;
+
+    /**
+     * Ranges smaller than this are never split and run on the calling thread.
+     */
+    @Getter @Setter private int minimalGrainSize = DEFAULT_GRAIN_SIZE;
+
+    /**
+     * @param workerCount - Number of worker threads, zero or less uses all available cores.
+     */
+    public JobSystem(int workerCount) {
+        this.workerCount = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+        this.frameJobs = new ConcurrentLinkedQueue<>();
+        this.pool = new ForkJoinPool(this.workerCount, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("Job Worker #" + thread.getPoolIndex());
+            return thread;
+        }, (thread, exception) -> Debugger.logError("Job System", "Job failed on " + thread.getName() + ": " + exception), false);
+
+        Debugger.log("Job System", "Started with " + this.workerCount + " workers.");
+    }
+
+    /**
+     * Schedules job which will be run after all of its dependencies are finished.
+     * @param name - Name of the job, used in error messages.
+     * @param task - Work of the job.
+     * @param dependencies - Jobs that have to be finished first.
+     * @return - Handle of the scheduled job.
+     */
+    public Job schedule(String name, Runnable task, Job... dependencies) {
+        Job job = scheduleDetached(name, task, dependencies);
+        frameJobs.add(job);
+        return job;
+    }
+
+    /**
+     * Schedules job which is not awaited by frame end sync point, caller has to await it.
+     * Used by other threads than main one, so the main thread never waits for their jobs,
+     * and for long running loading and generation spanning many frames.
+     * @param name - Name of the job, used in error messages.
+     * @param task - Work of the job.
+     * @param dependencies - Jobs that have to be finished first.
+     * @return - Handle of the scheduled job.
+     */
+    public Job scheduleDetached(String name, Runnable task, Job... dependencies) {
+        CompletableFuture<Void> future;
+        if (dependencies.length == 0) {
+            future = CompletableFuture.runAsync(task, pool);
+        } else {
+            CompletableFuture<?>[] dependencyFutures = new CompletableFuture<?>[dependencies.length];
+            for (int i = 0; i < dependencies.length; i++) {
+                dependencyFutures[i] = dependencies[i].getFuture();
+            }
+
+            future = CompletableFuture.allOf(dependencyFutures).thenRunAsync(task, pool);
+        }
+
+        return new Job(name, future);
+    }
+
+    /**
+     * Runs body over the range split into chunks on all workers and waits for it.
+     * Chunk size is chosen, so every worker gets few chunks to steal.
+     * @param from - First index, inclusive.
+     * @param to - Last index, exclusive.
+     * @param body - Body of the loop.
+     */
+    public void parallelFor(int from, int to, RangeJob body) {
+        int count = to - from;
+        parallelFor(from, to, Math.max(minimalGrainSize, count / (workerCount * SPLITS_PER_WORKER)), body);
+    }
+
+    /**
+     * @param from - First index, inclusive.
+     * @param to - Last index, exclusive.
+     * @param grainSize - Maximal size of the range run by single call of the body.
+     * @param body - Body of the loop.
+     */
+    public void parallelFor(int from, int to, int grainSize, RangeJob body) {
+        if (to <= from)
+            return;
+
+        if (workerCount <= 1 || to - from <= grainSize) {
+            body.execute(from, to);
+            return;
+        }
+
+        pool.invoke(new RangeTask(from, to, Math.max(1, grainSize), body));
+    }
+
+    /**
+     * Frame end sync point. Waits for every job scheduled since last call and
+     * rethrows first exception thrown by any of them.
+     */
+    public void endFrame() {
+        RuntimeException failure = null;
+
+        Job job;
+        while ((job = frameJobs.poll()) != null) {
+            try {
+                job.await();
+            } catch (RuntimeException exception) {
+                if (failure == null)
+                    failure = exception;
+            }
+        }
+
+        if (failure != null)
+            throw failure;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(1, TimeUnit.SECONDS))
+                pool.shutdownNow();
+        } catch (InterruptedException ignored) {
+            pool.shutdownNow();
+        }
+    }
+
+    private static class RangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int grainSize;
+        private final RangeJob body;
+
+        RangeTask(int from, int to, int grainSize, RangeJob body) {
+            this.from = from;
+            this.to = to;
+            this.grainSize = grainSize;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grainSize) {
+                body.execute(from, to);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, middle, grainSize, body), new RangeTask(middle, to, grainSize, body));
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.horizon.engine.job;
+
+/**
+ * Body of the parallel for loop. Every call gets its own range of indices,
+ * so temporary objects can be allocated once per call instead of once per index.
+ *
+ * @author Horizon
+ */
+@FunctionalInterface
+public interface RangeJob {
+
+    /**
+     * @param from - First index of the range, inclusive.
+     * @param to - Last index of the range, exclusive.
+     */
+    void execute(int from, int to);
+}
@@ -0,0 +1,203 @@
+package com.horizon.engine.scheduler;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Budget scheduler runs resumable background tasks in the time left in the frame.
+ * Every frame it gets the frame deadline and spends at most the configured budget,
+ * but never more than the time remaining until the deadline. Cost of the steps is
+ * measured for every task, so a step which would not fit into remaining budget is
+ * postponed to next frame instead of causing a hitch.
+ *
+ * @apiNote Tasks are run on the thread calling <code>runFrame</code>, they can be
+ *          submitted from any thread. Priority class with pending tasks which did not
+ *          run any step for <code>MAX_STARVED_FRAMES</code> frames runs one step even
+ *          when it does not fit, so expensive tasks and frames without any time left
+ *          never stop background work.
+ *
+ * @author Horizon
+ */
+public class BudgetScheduler {
+
+    private static final float COST_SMOOTHING = 0.2f;
+    private static final long SAFETY_MARGIN = 250_000L;
+    private static final int MAX_STARVED_FRAMES = 8;
+
+    private final Queue<ScheduledTask> submittedTasks;
+    private final Deque<ScheduledTask>[] tasks;
+
+    /**
+     * Number of frames every priority class had pending tasks, but no step was run.
+     */
+    private final int[] starvedFrames;
+
+    /**
+     * Maximal time in nanoseconds spent on background work in one frame.
+     */
+    @Getter private long frameBudget;
+
+    //Statistics
+    @Getter private long lastFrameTime;
+    @Getter private long lastFrameSteps;
+    @Getter private long completedTasks;
+    @Getter private long budgetOverruns;
+
+    /**
+     * Average time of the scheduler itself (queue handling and clock reads) per frame.
+     */
+    @Getter private long averageOverhead;
+
+    @Getter @Setter private boolean enabled = true;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BudgetScheduler(float frameBudgetMillis) {
+        setFrameBudget(frameBudgetMillis);
+
+        submittedTasks = new ConcurrentLinkedQueue<>();
+        tasks = new Deque[TaskPriority.values().length];
+        starvedFrames = new int[tasks.length];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new ArrayDeque<>();
+        }
+    }
+
+    public void setFrameBudget(float frameBudgetMillis) {
+        if (frameBudgetMillis < 0)
+            throw new IllegalArgumentException("Frame budget can't be negative.");
+
+        this.frameBudget = (long) (frameBudgetMillis * 1_000_000L);
+    }
+
+    public void submit(TimeSlicedTask task) {
+        submit(task, TaskPriority.NORMAL);
+    }
+
+    public void submit(TimeSlicedTask task, TaskPriority priority) {
+        submittedTasks.add(new ScheduledTask(task, priority));
+    }
+
+    /**
+     * Runs background tasks until budget of this frame is spent.
+     * @param frameDeadline - <code>System.nanoTime()</code> when the frame has to be finished.
+     */
+    public void runFrame(long frameDeadline) {
+        long frameStart = System.nanoTime();
+        lastFrameSteps = 0;
+
+        ScheduledTask submitted;
+        while ((submitted = submittedTasks.poll()) != null) {
+            tasks[submitted.priority.ordinal()].addLast(submitted);
+        }
+
+        if (!enabled)
+            return;
+
+        // Scheduler overhead is reserved up front, so it does not push the frame over deadline
+        long budgetEnd = Math.min(frameStart + frameBudget, frameDeadline - SAFETY_MARGIN) - averageOverhead;
+        long stepsTime = 0;
+
+        for (int priority = 0; priority < tasks.length; priority++) {
+            Deque<ScheduledTask> queue = tasks[priority];
+            boolean critical = priority == TaskPriority.CRITICAL.ordinal();
+            boolean starved = starvedFrames[priority] >= MAX_STARVED_FRAMES;
+            boolean stepped = false;
+
+            // Every task of the class gets one chance per round, so long tasks don't starve the others
+            int remaining = queue.size();
+            while (remaining-- > 0) {
+                ScheduledTask task = queue.pollFirst();
+                long stepStart = System.nanoTime();
+
+                boolean fits = stepStart + task.averageCost <= budgetEnd;
+                boolean forced = (critical && !task.steppedThisFrame(frameStart)) || (starved && !stepped);
+                if (!fits && !forced) {
+                    // Cheaper tasks behind it can still fit
+                    queue.addLast(task);
+                    continue;
+                }
+
+                boolean finished = task.task.step();
+                long stepEnd = System.nanoTime();
+                long stepCost = stepEnd - stepStart;
+
+                task.record(stepCost, frameStart);
+                stepsTime += stepCost;
+                lastFrameSteps++;
+                stepped = true;
+
+                if (finished) {
+                    completedTasks++;
+                } else {
+                    queue.addLast(task);
+                    // Task was put back to the end, it may get another step if budget remains
+                    if (remaining == 0 && stepEnd + task.averageCost <= budgetEnd)
+                        remaining = queue.size();
+                }
+            }
+
+            starvedFrames[priority] = stepped || queue.isEmpty() ? 0 : starvedFrames[priority] + 1;
+        }
+
+        long frameEnd = System.nanoTime();
+        lastFrameTime = frameEnd - frameStart;
+        if (frameEnd > frameDeadline || lastFrameTime > frameBudget)
+            budgetOverruns++;
+
+        long overhead = lastFrameTime - stepsTime;
+        averageOverhead += (long) ((overhead - averageOverhead) * COST_SMOOTHING);
+    }
+
+    /**
+     * Runs background tasks for whole configured budget.
+     */
+    public void runFrame() {
+        runFrame(Long.MAX_VALUE);
+    }
+
+    public int getPendingTasks() {
+        int count = submittedTasks.size();
+        for (Deque<ScheduledTask> queue : tasks) {
+            count += queue.size();
+        }
+        return count;
+    }
+
+    public void clear() {
+        submittedTasks.clear();
+        for (Deque<ScheduledTask> queue : tasks) {
+            queue.clear();
+        }
+    }
+
+    private static class ScheduledTask {
+
+        private final TimeSlicedTask task;
+        private final TaskPriority priority;
+
+        /**
+         * Smoothed cost of one step in nanoseconds.
+         */
+        private long averageCost;
+        private long lastStepFrame = -1;
+
+        ScheduledTask(TimeSlicedTask task, TaskPriority priority) {
+            this.task = task;
+            this.priority = priority;
+        }
+
+        boolean steppedThisFrame(long frameStart) {
+            return lastStepFrame == frameStart;
+        }
+
+        void record(long stepCost, long frameStart) {
+            averageCost = averageCost == 0 ? stepCost : averageCost + (long) ((stepCost - averageCost) * COST_SMOOTHING);
+            lastStepFrame = frameStart;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.horizon.engine.scheduler;
+
+import com.horizon.engine.debug.Debugger;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Fixed step scheduler decides how many simulation steps should be run for the
+ * time that passed since last frame. Number of catch-up steps is capped, so a long
+ * stall can not start endless chain of updates. Time that does not fit into the cap
+ * is dropped and reported.
+ *
+ * @author Horizon
+ */
+public class FixedStepScheduler {
+
+    @Getter private int updatesPerSecond;
+    @Getter private float interval;
+
+    @Getter @Setter private int maxCatchUpSteps;
+
+    private float accumulator;
+
+    /**
+     * Progress between last and next simulation step. Used for blending of the
+     * transforms when rendering.
+     */
+    @Getter private float alpha;
+
+    @Getter private float lastDroppedTime;
+    @Getter private double totalDroppedTime;
+    @Getter private long totalDroppedSteps;
+
+    public FixedStepScheduler(int updatesPerSecond, int maxCatchUpSteps) {
+        setUpdatesPerSecond(updatesPerSecond);
+        this.maxCatchUpSteps = maxCatchUpSteps;
+    }
+
+    public void setUpdatesPerSecond(int updatesPerSecond) {
+        if (updatesPerSecond <= 0)
+            throw new IllegalArgumentException("Updates per second must be positive.");
+
+        this.updatesPerSecond = updatesPerSecond;
+        this.interval = 1f / updatesPerSecond;
+    }
+
+    /**
+     * Adds elapsed time to the accumulator and returns how many fixed steps should be
+     * run in this frame. Interpolation alpha is updated for the remaining time.
+     * @param elapsedTime - Time in seconds since the last call.
+     * @return - Number of steps with length of <code>getInterval()</code>.
+     */
+    public int advance(float elapsedTime) {
+        accumulator += elapsedTime;
+
+        int steps = (int) (accumulator / interval);
+        lastDroppedTime = 0.0f;
+
+        if (maxCatchUpSteps > 0 && steps > maxCatchUpSteps) {
+            int droppedSteps = steps - maxCatchUpSteps;
+            lastDroppedTime = droppedSteps * interval;
+
+            totalDroppedSteps += droppedSteps;
+            totalDroppedTime += lastDroppedTime;
+
+            accumulator -= lastDroppedTime;
+            steps = maxCatchUpSteps;
+
+            Debugger.logWarning("Fixed Step Scheduler", "Simulation is behind, dropped " + droppedSteps + " steps ("
+                    + String.format("%.1f", lastDroppedTime * 1000.0f) + " ms).");
+        }
+
+        accumulator -= steps * interval;
+        alpha = Math.min(1.0f, accumulator / interval);
+
+        return steps;
+    }
+
+    /**
+     * @return - Time in seconds until the accumulated time is enough for the next step.
+     */
+    public float getTimeToNextStep() {
+        return Math.max(0.0f, interval - accumulator);
+    }
+
+    public void reset() {
+        accumulator = 0.0f;
+        alpha = 0.0f;
+    }
+}
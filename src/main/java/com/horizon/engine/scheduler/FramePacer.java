@@ -0,0 +1,115 @@
+package com.horizon.engine.scheduler;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Frame pacer keeps loop at the target rate by waiting for absolute frame deadlines.
+ * Most of the wait is done by parking the thread, last part of it is spin-waited, because
+ * sleeping overshoots by up to a few milliseconds on most systems.
+ *
+ * @apiNote Deadlines are advanced by exact frame period, so rounding errors don't build up.
+ *          When a deadline is missed, pacer is resynchronized from the current time instead
+ *          of rushing the following frames.
+ *
+ * @author Horizon
+ */
+public class FramePacer {
+
+    private static final long DEFAULT_SPIN_THRESHOLD = 2_000_000L;
+
+    @Getter private long framePeriod;
+
+    /**
+     * Remaining time in nanoseconds that is spin-waited instead of parked.
+     */
+    @Getter @Setter private long spinThreshold = DEFAULT_SPIN_THRESHOLD;
+
+    private long nextDeadline = -1L;
+
+    //Statistics
+    @Getter private long pacedFrames;
+    @Getter private long missedDeadlines;
+    @Getter private long worstLateness;
+    private long totalLateness;
+
+    /**
+     * @param targetRate - Number of frames per second.
+     */
+    public FramePacer(int targetRate) {
+        setTargetRate(targetRate);
+    }
+
+    public void setTargetRate(int targetRate) {
+        if (targetRate <= 0)
+            throw new IllegalArgumentException("Target rate must be positive.");
+
+        this.framePeriod = 1_000_000_000L / targetRate;
+    }
+
+    /**
+     * Blocks until the deadline of the current frame and schedules the next one.
+     * First call only starts the pacing.
+     */
+    public void waitForNextFrame() {
+        long now = System.nanoTime();
+        if (nextDeadline < 0) {
+            nextDeadline = now + framePeriod;
+            return;
+        }
+
+        pacedFrames++;
+
+        long lateness = now - nextDeadline;
+        if (lateness > 0) {
+            missedDeadlines++;
+            totalLateness += lateness;
+            worstLateness = Math.max(worstLateness, lateness);
+
+            nextDeadline = now + framePeriod;
+            return;
+        }
+
+        waitUntil(nextDeadline);
+        nextDeadline += framePeriod;
+    }
+
+    /**
+     * Blocks until the deadline without changing frame deadlines of this pacer.
+     * @param deadline - <code>System.nanoTime()</code> when the wait ends.
+     */
+    public void waitUntil(long deadline) {
+        long remaining = deadline - System.nanoTime();
+        while (remaining > spinThreshold) {
+            LockSupport.parkNanos(remaining - spinThreshold);
+            remaining = deadline - System.nanoTime();
+        }
+
+        while (System.nanoTime() < deadline) {
+            // Spin, Java 8 has no spin-wait hint.
+        }
+    }
+
+    /**
+     * @return - Average lateness of missed frames in milliseconds.
+     */
+    public double getAverageLateness() {
+        return missedDeadlines == 0 ? 0.0 : totalLateness / (double) missedDeadlines / 1_000_000.0;
+    }
+
+    public String getStatistics() {
+        return "Paced frames: " + pacedFrames + ", missed deadlines: " + missedDeadlines
+                + ", average lateness: " + String.format("%.3f", getAverageLateness()) + " ms"
+                + ", worst lateness: " + String.format("%.3f", worstLateness / 1_000_000.0) + " ms";
+    }
+
+    public void reset() {
+        nextDeadline = -1L;
+        pacedFrames = 0;
+        missedDeadlines = 0;
+        worstLateness = 0;
+        totalLateness = 0;
+    }
+}
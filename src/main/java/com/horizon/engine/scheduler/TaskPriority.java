@@ -0,0 +1,15 @@
+package com.horizon.engine.scheduler;
+
+/**
+ * Priority classes of the background tasks. Higher classes are served first,
+ * critical tasks get at least one step every frame even when budget is exhausted.
+ *
+ * @author Horizon
+ */
+public enum TaskPriority {
+
+    CRITICAL,
+    HIGH,
+    NORMAL,
+    LOW
+}
@@ -0,0 +1,17 @@
+package com.horizon.engine.scheduler;
+
+/**
+ * Resumable piece of background work. Task keeps its own progress and does one small
+ * step of work per call, so it can be spread across many frames by <code>BudgetScheduler</code>.
+ *
+ * @author Horizon
+ */
+@FunctionalInterface
+public interface TimeSlicedTask {
+
+    /**
+     * Runs next step of the task. Step should be short, budget is checked only between steps.
+     * @return - True if the task is finished and should be removed.
+     */
+    boolean step();
+}
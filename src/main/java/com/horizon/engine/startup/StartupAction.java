@@ -0,0 +1,12 @@
+package com.horizon.engine.startup;
+
+/**
+ * Work of one startup stage.
+ *
+ * @author Horizon
+ */
+@FunctionalInterface
+public interface StartupAction {
+
+    void run() throws Exception;
+}
@@ -0,0 +1,169 @@
+package com.horizon.engine.startup;
+
+import com.horizon.engine.debug.Debugger;
+import com.horizon.engine.job.JobSystem;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Startup pipeline runs engine initialization as a dependency graph of stages.
+ * Main thread stages are run in order on the calling thread, worker stages are
+ * scheduled in job system as soon as all of their dependencies are finished, so CPU
+ * only work like model parsing or font rasterization overlaps with GL setup.
+ * Timing of every stage is logged in startup report.
+ *
+ * @author Horizon
+ */
+public class StartupPipeline {
+
+    private static final String LOG_PREFIX = "Startup";
+
+    private final Map<String, StartupStage> stages;
+
+    @Getter private long totalTime;
+
+    public StartupPipeline() {
+        this.stages = new LinkedHashMap<>();
+    }
+
+    public StartupPipeline addMainStage(String name, StartupAction action, String... dependencies) {
+        return addStage(new StartupStage(name, true, action, dependencies));
+    }
+
+    public StartupPipeline addWorkerStage(String name, StartupAction action, String... dependencies) {
+        return addStage(new StartupStage(name, false, action, dependencies));
+    }
+
+    public StartupPipeline addStage(StartupStage stage) {
+        if (stages.containsKey(stage.getName()))
+            throw new IllegalArgumentException("Startup stage " + stage.getName() + " is already registered.");
+
+        stages.put(stage.getName(), stage);
+        return this;
+    }
+
+    public StartupStage getStage(String name) {
+        return stages.get(name);
+    }
+
+    /**
+     * Runs all stages and blocks until they are finished.
+     * @param jobSystem - Job system for worker stages, when null everything runs on calling thread.
+     * @throws Exception - First exception thrown by any of the stages.
+     */
+    public void run(JobSystem jobSystem) throws Exception {
+        validate();
+
+        long pipelineStart = System.nanoTime();
+
+        List<StartupStage> waiting = new ArrayList<>(stages.values());
+        Set<String> finished = new HashSet<>();
+        BlockingQueue<StartupStage> completed = new LinkedBlockingQueue<>();
+        Map<StartupStage, Exception> failures = new LinkedHashMap<>();
+        int running = 0;
+
+        while (!waiting.isEmpty() || running > 0) {
+            StartupStage mainStage = null;
+
+            for (int i = 0; i < waiting.size(); i++) {
+                StartupStage stage = waiting.get(i);
+                if (!finished.containsAll(stage.getDependencies()))
+                    continue;
+
+                if (stage.isMainThread() || jobSystem == null) {
+                    if (mainStage == null)
+                        mainStage = stage;
+                    continue;
+                }
+
+                waiting.remove(i--);
+                running++;
+                jobSystem.schedule(stage.getName(), () -> {
+                    try {
+                        stage.execute(pipelineStart);
+                    } catch (Exception exception) {
+                        synchronized (failures) {
+                            failures.put(stage, exception);
+                        }
+                    } finally {
+                        completed.add(stage);
+                    }
+                });
+            }
+
+            if (mainStage != null) {
+                waiting.remove(mainStage);
+                mainStage.execute(pipelineStart);
+                finished.add(mainStage.getName());
+            } else if (running > 0) {
+                finished.add(completed.take().getName());
+                running--;
+            }
+
+            // Collect everything finished in the meantime, so it can unblock more stages
+            StartupStage done;
+            while ((done = completed.poll()) != null) {
+                finished.add(done.getName());
+                running--;
+            }
+
+            synchronized (failures) {
+                if (!failures.isEmpty()) {
+                    Map.Entry<StartupStage, Exception> failure = failures.entrySet().iterator().next();
+                    Debugger.logError(LOG_PREFIX, "Stage " + failure.getKey().getName() + " failed.");
+                    throw failure.getValue();
+                }
+            }
+        }
+
+        totalTime = System.nanoTime() - pipelineStart;
+        logReport();
+    }
+
+    private void validate() {
+        for (StartupStage stage : stages.values()) {
+            for (String dependency : stage.getDependencies()) {
+                if (!stages.containsKey(dependency))
+                    throw new IllegalStateException("Startup stage " + stage.getName() + " depends on unknown stage " + dependency + ".");
+            }
+        }
+
+        // Every stage has to be reachable, otherwise there is a cycle in dependencies
+        Set<String> resolved = new HashSet<>();
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            for (StartupStage stage : stages.values()) {
+                if (!resolved.contains(stage.getName()) && resolved.containsAll(stage.getDependencies())) {
+                    resolved.add(stage.getName());
+                    progress = true;
+                }
+            }
+        }
+
+        if (resolved.size() != stages.size())
+            throw new IllegalStateException("Startup stages contain dependency cycle.");
+    }
+
+    private void logReport() {
+        long stagesTime = 0;
+
+        Debugger.log(LOG_PREFIX, "Startup report:");
+        for (StartupStage stage : stages.values()) {
+            stagesTime += stage.getDuration();
+            Debugger.log(LOG_PREFIX, String.format("  %-20s %8.2f ms (started at %8.2f ms on %s)", stage.getName(),
+                    stage.getDuration() / 1_000_000.0, stage.getStartTime() / 1_000_000.0, stage.getThreadName()));
+        }
+
+        Debugger.log(LOG_PREFIX, String.format("Startup finished in %.2f ms, stages took %.2f ms in total.",
+                totalTime / 1_000_000.0, stagesTime / 1_000_000.0));
+    }
+}
@@ -0,0 +1,49 @@
+package com.horizon.engine.startup;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One node of the startup dependency graph. Stage bound to the main thread is run on the
+ * thread which owns GL context, other stages are CPU only and can run on job workers.
+ *
+ * @author Horizon
+ */
+public class StartupStage {
+
+    @Getter private final String name;
+    @Getter private final boolean mainThread;
+    @Getter private final StartupAction action;
+    @Getter private final List<String> dependencies;
+
+    //Filled when the stage is run
+    @Getter private String threadName;
+    @Getter private long startTime;
+    @Getter private long duration;
+
+    public StartupStage(String name, boolean mainThread, StartupAction action, String... dependencies) {
+        this.name = name;
+        this.mainThread = mainThread;
+        this.action = action;
+        this.dependencies = Collections.unmodifiableList(Arrays.asList(dependencies));
+    }
+
+    /**
+     * Runs the action and records its timing.
+     * @param pipelineStart - <code>System.nanoTime()</code> when the pipeline was started.
+     */
+    void execute(long pipelineStart) throws Exception {
+        threadName = Thread.currentThread().getName();
+
+        long start = System.nanoTime();
+        startTime = start - pipelineStart;
+        try {
+            action.run();
+        } finally {
+            duration = System.nanoTime() - start;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.horizon.engine.system;
+
+import com.horizon.engine.component.Component;
+import com.horizon.engine.component.ComponentType;
+import com.horizon.engine.graphics.object.GameObject;
+import com.horizon.engine.graphics.object.scene.Scene;
+
+import java.util.EnumSet;
+
+/**
+ * Calls <code>Component.update()</code> of every component of inserted type in the scene.
+ *
+ * @author Horizon
+ */
+public class ComponentUpdateSystem extends GameSystem {
+
+    private final ComponentType componentType;
+
+    public ComponentUpdateSystem(ComponentType componentType) {
+        super(componentType.name() + " Update", EnumSet.noneOf(ComponentType.class), EnumSet.of(componentType));
+        this.componentType = componentType;
+    }
+
+    @Override
+    public void update(Scene scene, float interval) {
+        for (GameObject gameObject : scene.getSceneObjects().values()) {
+            Component component = gameObject.getComponent(componentType);
+            if (component != null)
+                component.update();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.horizon.engine.system;
+
+import com.horizon.engine.component.ComponentType;
+import com.horizon.engine.graphics.object.scene.Scene;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Game system is logic updated once per simulation tick. Every system declares component
+ * types it reads and writes, so <code>SystemScheduler</code> can run systems which don't
+ * conflict in parallel.
+ *
+ * @apiNote System must not add or remove scene objects directly, because other systems
+ *          can iterate the scene at the same time. Use scene command buffer instead.
+ *          System which moves game objects has to write <code>ComponentType.TRANSFORM</code>
+ *          and system which reads their world transforms has to read it, because setters
+ *          update shared scene structures and world matrices are rebuilt on read. System
+ *          touching shared state which can't be described by components should be exclusive.
+ *
+ * @author Horizon
+ */
+public abstract class GameSystem {
+
+    @Getter private final String name;
+    @Getter private final Set<ComponentType> reads;
+    @Getter private final Set<ComponentType> writes;
+    @Getter private final boolean exclusive;
+
+    @Getter @Setter private boolean enabled = true;
+
+    /**
+     * Duration of the last update in nanoseconds.
+     */
+    @Getter private volatile long lastUpdateTime;
+
+    /**
+     * @param name - Name of the system, used in logs and job names.
+     * @param reads - Component types which are only read by this system.
+     * @param writes - Component types which are changed by this system.
+     */
+    public GameSystem(String name, Set<ComponentType> reads, Set<ComponentType> writes) {
+        this(name, reads, writes, false);
+    }
+
+    /**
+     * @param exclusive - Exclusive system never runs in parallel with other systems.
+     */
+    public GameSystem(String name, Set<ComponentType> reads, Set<ComponentType> writes, boolean exclusive) {
+        this.name = name;
+        this.reads = Collections.unmodifiableSet(copy(reads));
+        this.writes = Collections.unmodifiableSet(copy(writes));
+        this.exclusive = exclusive;
+    }
+
+    public abstract void update(Scene scene, float interval);
+
+    /**
+     * Systems conflict when one of them writes component type used by the other one.
+     * @param other - Other system.
+     * @return - True if systems can't run in parallel.
+     */
+    public boolean conflictsWith(GameSystem other) {
+        if (exclusive || other.exclusive)
+            return true;
+
+        return !Collections.disjoint(writes, other.writes)
+                || !Collections.disjoint(writes, other.reads)
+                || !Collections.disjoint(reads, other.writes);
+    }
+
+    void run(Scene scene, float interval) {
+        long start = System.nanoTime();
+        update(scene, interval);
+        lastUpdateTime = System.nanoTime() - start;
+    }
+
+    private static EnumSet<ComponentType> copy(Set<ComponentType> componentTypes) {
+        return componentTypes == null || componentTypes.isEmpty() ? EnumSet.noneOf(ComponentType.class) : EnumSet.copyOf(componentTypes);
+    }
+}
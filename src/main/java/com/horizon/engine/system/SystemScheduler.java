@@ -0,0 +1,154 @@
+package com.horizon.engine.system;
+
+import com.horizon.engine.component.ComponentType;
+import com.horizon.engine.debug.Debugger;
+import com.horizon.engine.graphics.object.scene.Scene;
+import com.horizon.engine.job.Job;
+import com.horizon.engine.job.JobSystem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * System scheduler runs registered game systems once per simulation tick. Systems which
+ * don't conflict run in parallel on the job system, conflicting systems run in order of
+ * registration, so result of every tick is deterministic.
+ *
+ * @author Horizon
+ */
+public class SystemScheduler {
+
+    private final JobSystem jobSystem;
+    private final List<GameSystem> systems;
+
+    /**
+     * Execution plan rebuilt when systems change, so tick never locks.
+     */
+    private volatile Plan plan;
+
+    public SystemScheduler(JobSystem jobSystem) {
+        this.jobSystem = jobSystem;
+        this.systems = new ArrayList<>();
+        this.plan = new Plan(Collections.emptyList());
+    }
+
+    /**
+     * Registers system after all already registered ones.
+     * @param system - System that will be updated every tick.
+     */
+    public synchronized void addSystem(GameSystem system) {
+        systems.add(system);
+        plan = new Plan(systems);
+
+        int conflicts = plan.dependencies[plan.systems.length - 1].length;
+        Debugger.log("System Scheduler", "Registered system " + system.getName() + ", it waits for " + conflicts + " of " + (systems.size() - 1) + " earlier systems.");
+    }
+
+    public synchronized boolean removeSystem(GameSystem system) {
+        if (!systems.remove(system))
+            return false;
+
+        plan = new Plan(systems);
+        return true;
+    }
+
+    public synchronized List<GameSystem> getSystems() {
+        return new ArrayList<>(systems);
+    }
+
+    /**
+     * Runs one tick of all enabled systems and waits for them. Exception thrown by any system
+     * is rethrown after all other systems are finished.
+     * @param scene - Scene updated by systems.
+     * @param interval - Length of the tick in seconds.
+     */
+    public void update(Scene scene, float interval) {
+        Plan plan = this.plan;
+        if (scene == null || plan.systems.length == 0)
+            return;
+
+        if (plan.sequential || jobSystem == null || jobSystem.getWorkerCount() <= 1) {
+            for (GameSystem system : plan.systems) {
+                if (system.isEnabled())
+                    system.run(scene, interval);
+            }
+
+            return;
+        }
+
+        // Systems reading transforms in parallel must not rebuild the same world matrices
+        scene.updateWorldTransforms();
+
+        Job[] jobs = new Job[plan.systems.length];
+        List<Job> dependencies = new ArrayList<>();
+
+        for (int i = 0; i < plan.systems.length; i++) {
+            GameSystem system = plan.systems[i];
+            if (!system.isEnabled())
+                continue;
+
+            // Every earlier conflicting system is a dependency, so disabled system doesn't break the order
+            dependencies.clear();
+            for (int dependency : plan.dependencies[i]) {
+                if (jobs[dependency] != null)
+                    dependencies.add(jobs[dependency]);
+            }
+
+            // Transform writer conflicts with every transform reader, so it can update world matrices alone
+            boolean transformWriter = system.getWrites().contains(ComponentType.TRANSFORM);
+            jobs[i] = jobSystem.scheduleDetached(system.getName(), () -> {
+                system.run(scene, interval);
+                if (transformWriter)
+                    scene.updateWorldTransforms();
+            }, dependencies.toArray(new Job[0]));
+        }
+
+        RuntimeException failure = null;
+        for (Job job : jobs) {
+            if (job == null)
+                continue;
+
+            try {
+                job.await();
+            } catch (RuntimeException exception) {
+                if (failure == null)
+                    failure = exception;
+            }
+        }
+
+        if (failure != null)
+            throw failure;
+    }
+
+    private static class Plan {
+
+        private final GameSystem[] systems;
+        private final int[][] dependencies;
+
+        /**
+         * True when every system conflicts with the previous one, so nothing can run in parallel.
+         */
+        private final boolean sequential;
+
+        Plan(List<GameSystem> systemList) {
+            this.systems = systemList.toArray(new GameSystem[0]);
+            this.dependencies = new int[systems.length][];
+
+            boolean sequential = true;
+            for (int i = 0; i < systems.length; i++) {
+                List<Integer> conflicts = new ArrayList<>();
+                for (int j = 0; j < i; j++) {
+                    if (systems[i].conflictsWith(systems[j]))
+                        conflicts.add(j);
+                }
+
+                dependencies[i] = conflicts.stream().mapToInt(Integer::intValue).toArray();
+                if (i > 0 && !conflicts.contains(i - 1))
+                    sequential = false;
+            }
+
+            this.sequential = sequential;
+        }
+    }
+}
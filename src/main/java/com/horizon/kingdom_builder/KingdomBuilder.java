@@ -6,6 +6,7 @@ import com.horizon.engine.common.Color;
 import com.horizon.engine.common.ColorPalette;
 import com.horizon.engine.common.random.PerlinNoise;
 import com.horizon.engine.component.ComponentType;
+import com.horizon.engine.data.ApplicationData;
 import com.horizon.engine.debug.Debugger;
 import com.horizon.engine.graphics.data.Material;
 import com.horizon.engine.graphics.hud.Canvas;
@@ -14,6 +15,7 @@ import com.horizon.engine.graphics.object.GameObject;
 import com.horizon.engine.graphics.object.objects.ModelObject;
 import com.horizon.engine.graphics.object.primitive.PrimitiveObject;
 import com.horizon.engine.graphics.object.scene.Scene;
+import com.horizon.engine.graphics.object.scene.SceneSnapshot;
 import com.horizon.engine.graphics.object.terrain.Terrain;
 import com.horizon.engine.graphics.render.Renderer;
 import com.horizon.engine.input.other.MouseInput;
@@ -24,6 +26,10 @@ import com.horizon.kingdom_builder.gameplay.building.BuildingManager;
 import lombok.Getter;
 import org.joml.Vector3f;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
 public class KingdomBuilder  extends AbstractGameLogic {
 
     @Getter private TestManager testManager;
@@ -32,6 +38,8 @@ public class KingdomBuilder  extends AbstractGameLogic {
 
     @Getter private Map gameMap;
 
+    private static final String TEST_OBJECT_NAME = "Test Object";
+
     @Getter private ModelObject testObject;
 
     public KingdomBuilder() {
@@ -51,14 +59,29 @@ public class KingdomBuilder  extends AbstractGameLogic {
         buildingManager = new BuildingManager(this);
 
         preLoadMeshes();
+
+        if (!loadScene()) {
+            buildScene();
+            saveScene();
+        }
+
+        testObject = (ModelObject) getScene().getSceneObjects().get(TEST_OBJECT_NAME);
+
+        controllerManager.initialize();
+        buildingManager.initialize();
+    }
+
+    protected void buildScene() {
         loadLights();
 
         ModelObject cubeObject = getScene().instantiate(PrimitiveObject.CUBE);
         cubeObject.setRotation(0.0f, 45.0f, 0.0f);
         cubeObject.setPosition(1.0f, 2.5f, 1.0f);
 
-        testObject = getScene().instantiate(PrimitiveObject.CUBE);
+        ModelObject testObject = (ModelObject) getGameEngine().getAssetManager().getModel(PrimitiveObject.CUBE.getMeshName()).instantiateObject();
+        testObject.setGameObjectName(TEST_OBJECT_NAME);
         testObject.getMesh().setMaterial(new Material(Color.RED));
+        getScene().instantiate(testObject);
 
         ModelObject planeObject = getScene().instantiate(PrimitiveObject.PLANE);
         planeObject.getMesh().setMaterial(new Material(Color.GREEN));
@@ -72,10 +95,39 @@ public class KingdomBuilder  extends AbstractGameLogic {
                                                                 new Color(190.0f, 230.0f, 250.0f),
                                                                 new Color(190.0f, 230.0f, 130.0f)});
 
-        Terrain terrain = (Terrain) getScene().instantiate(new Terrain(getGameEngine(), "Terrain", 64, 64, new PerlinNoise(8f, 3, 0.3f, 589454546), colorPalette));
+        Terrain terrain = new Terrain(getGameEngine(), "Terrain", 64, 64, new PerlinNoise(8f, 3, 0.3f, 589454546), colorPalette);
+        terrain.setOccluder(true);
+        getScene().instantiate(terrain);
+    }
 
-        controllerManager.initialize();
-        buildingManager.initialize();
+    /**
+     * Loads scene from snapshot set in application data.
+     * @return - False if snapshot is disabled, doesn't exist or can't be read.
+     */
+    protected boolean loadScene() {
+        String snapshot = ApplicationData.getSceneSnapshot();
+        if (snapshot == null || !Files.exists(Paths.get(snapshot)))
+            return false;
+
+        try {
+            SceneSnapshot.read(Paths.get(snapshot)).instantiate(getScene());
+            return true;
+        } catch (IOException exception) {
+            Debugger.logError("Kingdom Builder", "Scene snapshot can't be loaded: " + exception.getMessage());
+            return false;
+        }
+    }
+
+    protected void saveScene() {
+        String snapshot = ApplicationData.getSceneSnapshot();
+        if (snapshot == null)
+            return;
+
+        try {
+            SceneSnapshot.write(getScene(), Paths.get(snapshot));
+        } catch (IOException exception) {
+            Debugger.logError("Kingdom Builder", "Scene snapshot can't be saved: " + exception.getMessage());
+        }
     }
 
     @Override
@@ -34,6 +34,7 @@ public abstract class Building extends GameObject {
         Mesh mesh = getGameEngine().getAssetManager().getModel(meshName).getMeshData().createMesh();
         mesh.setMaterial(new Material(new Texture("src/textures/texture.png")));
         addComponent(mesh);
+        setOccluder(true);
         getBuildingManager().getGameEngine().getScene().instantiate(this);
     }
 }